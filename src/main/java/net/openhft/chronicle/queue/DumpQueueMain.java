@@ -20,6 +20,7 @@ import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.bytes.MappedBytes;
 import net.openhft.chronicle.core.OS;
 import net.openhft.chronicle.queue.impl.single.DirectoryListing;
+import net.openhft.chronicle.queue.impl.single.ExcerptCodec;
 import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
 import net.openhft.chronicle.queue.impl.table.SingleTableBuilder;
 import net.openhft.chronicle.wire.WireDumper;
@@ -59,6 +60,9 @@ public class DumpQueueMain {
             if (directoryListing != null && directoryListing.length == 1) {
                 out.println(SingleTableBuilder.binary(directoryListing[0]).build().dump());
             }
+            final ExcerptCodec codec = ExcerptCodec.recordedIn(path);
+            if (codec != ExcerptCodec.NONE)
+                out.println("# excerpts are encoded with " + codec + ", and are shown as stored");
             File[] files = path.listFiles((d, n) -> n.endsWith(SingleChronicleQueue.SUFFIX));
             if (files == null) {
                 err.println("Directory not found " + path);
@@ -40,6 +40,18 @@ public interface ExcerptAppender extends ExcerptCommon<ExcerptAppender>, Marshal
         writeBytes((BytesStore) bytes);
     }
 
+    /**
+     * Write a batch of excerpts, one per element. Implementations may take the write lock once for
+     * the whole batch and publish the write position and index only after the last excerpt.
+     *
+     * @param bytes to write, one excerpt per element.
+     * @param count the number of elements of {@code bytes} to write.
+     */
+    default void writeBytes(@NotNull BytesStore[] bytes, int count) throws UnrecoverableTimeoutException {
+        for (int i = 0; i < count; i++)
+            writeBytes(bytes[i]);
+    }
+
     /**
      * Write an entry at a given index. This can use used for rebuilding a queue, or replication.
      *
@@ -15,13 +15,17 @@
  */
 package net.openhft.chronicle.queue;
 
+import net.openhft.chronicle.bytes.ReadBytesMarshallable;
 import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.threads.Pauser;
 import net.openhft.chronicle.wire.DocumentContext;
 import net.openhft.chronicle.wire.MarshallableIn;
 import net.openhft.chronicle.wire.ReadMarshallable;
 import net.openhft.chronicle.wire.SourceContext;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * <p>The component that facilitates sequentially reading data from a {@link ChronicleQueue}.</p>
  * <p><b>NOTE:</b> Tailers are NOT thread-safe, sharing the Tailer between threads will lead to errors and unpredictable behaviour.</p>
@@ -47,6 +51,58 @@ public interface ExcerptTailer extends ExcerptCommon<ExcerptTailer>, Marshallabl
     @NotNull
     DocumentContext readingDocument(boolean includeMetaData);
 
+    /**
+     * Wait up to {@code timeout} for an excerpt, rather than returning at once if there isn't one.
+     * A queue built with {@code appendNotification(true)} lets the tailer park until an appender
+     * signals; otherwise it polls.
+     *
+     * @return the document context, which is not present if none was found in time
+     */
+    @NotNull
+    default DocumentContext readingDocument(long timeout, @NotNull TimeUnit unit) {
+        final long end = System.nanoTime() + unit.toNanos(timeout);
+        final Pauser pauser = Pauser.balanced();
+        while (true) {
+            final DocumentContext dc = readingDocument();
+            if (dc.isPresent() || System.nanoTime() >= end)
+                return dc;
+            dc.close();
+            pauser.pause();
+        }
+    }
+
+    /**
+     * Read up to {@code maxMessages} excerpts, passing the bytes of each to the handler, as
+     * {@link #readBytes(ReadBytesMarshallable)} would one at a time. Implementations may read
+     * consecutive excerpts in one pass and move the index once at the end of it.
+     *
+     * @param handler     to pass the bytes of each excerpt to.
+     * @param maxMessages the most excerpts to read.
+     * @return the number of excerpts read, 0 if none are available.
+     */
+    default int readBatch(@NotNull ReadBytesMarshallable handler, int maxMessages) {
+        int count = 0;
+        while (count < maxMessages && readBytes(handler))
+            count++;
+        return count;
+    }
+
+    /**
+     * Read the next excerpt, passing its index and bytes to the handler without parsing them or
+     * copying them, for relaying excerpts as they are. Meta data is skipped.
+     *
+     * @param handler to pass the excerpt to.
+     * @return true if an excerpt was read.
+     */
+    default boolean readRaw(@NotNull RawExcerptHandler handler) {
+        try (DocumentContext dc = readingDocument()) {
+            if (!dc.isPresent())
+                return false;
+            handler.onExcerpt(dc.index(), dc.wire().bytes());
+        }
+        return true;
+    }
+
     /**
      * @return true if readingDocument should be called, false if most like it's not needed.
      */
@@ -76,6 +132,19 @@ public interface ExcerptTailer extends ExcerptCommon<ExcerptTailer>, Marshallabl
      */
     boolean moveToIndex(long index);
 
+    /**
+     * Move to where an excerpt appended at {@code epochMillis} would be, or a little before, using
+     * the time index the queue keeps if it was built with one. Every excerpt appended at or after
+     * that time is read from there, as may be a few appended before it.
+     *
+     * @param epochMillis the time to move to
+     * @return true if there is an excerpt there, false if the tailer has been moved to the end
+     * @throws UnsupportedOperationException if the tailer can't search by time
+     */
+    default boolean moveToTime(long epochMillis) {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Replay from the first entry in the first cycle.
      *
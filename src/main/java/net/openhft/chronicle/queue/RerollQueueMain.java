@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue;
+
+import net.openhft.chronicle.queue.impl.single.QueueReroller;
+
+import java.io.File;
+
+/**
+ * Rewrites a queue into a new queue with a longer roll cycle, see {@link QueueReroller}.
+ * <p>
+ * Usage: {@code RerollQueueMain <source> <target> <roll cycle> [threads]}
+ */
+public class RerollQueueMain {
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: RerollQueueMain <source> <target> <roll cycle> [threads]");
+            System.exit(1);
+        }
+        final QueueReroller reroller = new QueueReroller(new File(args[0]), new File(args[1]), RollCycles.valueOf(args[2]));
+        if (args.length > 3)
+            reroller.threads(Integer.parseInt(args[3]));
+        System.out.println(reroller.reroll());
+    }
+}
@@ -252,7 +252,7 @@ public abstract class AbstractChronicleQueueBuilder<B extends ChronicleQueueBuil
     }
 
     /**
-     * @return BufferMode to use for writes. Only None is available is the OSS
+     * @return BufferMode to use for writes. None and Asynchronous are available in the OSS
      */
     @NotNull
     public BufferMode writeBufferMode() {
@@ -1,6 +1,7 @@
 package net.openhft.chronicle.queue.impl;
 
 import net.openhft.chronicle.core.values.LongValue;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.function.Function;
 
@@ -20,6 +21,16 @@ public interface TableStore extends CommonStore {
      */
     LongValue acquireValueFor(CharSequence key);
 
+    /**
+     * Like {@link #acquireValueFor(CharSequence)}, but doesn't add the value when there isn't one,
+     * so looking a key up doesn't write to the file.
+     *
+     * @param key the key of the value
+     * @return {@link LongValue} object pointing to the value, or null if there isn't one
+     */
+    @Nullable
+    LongValue acquireExistingValueFor(CharSequence key);
+
     /**
      * Acquires file-system level lock on the underlying file, to prevent concurrent access from multiple processes.
      * It is recommended to use this when acquiring your values for the first time, otherwise it is possible to get
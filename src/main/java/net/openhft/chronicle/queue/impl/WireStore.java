@@ -77,6 +77,21 @@ public interface WireStore extends CommonStore {
 
     void setPositionForSequenceNumber(final ExcerptContext ec, long sequenceNumber, long position) throws UnrecoverableTimeoutException, StreamCorruptedException;
 
+    /**
+     * Record the positions of consecutive sequence numbers written as a batch.
+     *
+     * @param ec                  the context used to write the index
+     * @param firstSequenceNumber the sequence number of {@code positions[offset]}
+     * @param positions           the positions of the excerpts in the batch
+     * @param offset              the first element of {@code positions} to use
+     * @param length              the number of positions
+     */
+    default void setPositionForSequenceNumbers(final ExcerptContext ec, long firstSequenceNumber, long[] positions, int offset, int length)
+            throws UnrecoverableTimeoutException, StreamCorruptedException {
+        for (int i = 0; i < length; i++)
+            setPositionForSequenceNumber(ec, firstSequenceNumber + i, positions[offset + i]);
+    }
+
     void writeEOF(Wire wire, long timeoutMS);
 
     int deltaCheckpointInterval();
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.util.Histogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Timings in nanoseconds of each stage of an append, recorded by an appender when the queue has
+ * {@link SingleChronicleQueueBuilder#recordAppendLatencies(boolean)} set. The histograms are
+ * allocated up front, so recording doesn't allocate.
+ * <p>
+ * Each appender records into its own instance, from its own thread, and
+ * {@link SingleChronicleQueue#appendLatencies(boolean)} merges them.
+ */
+public final class AppendLatencies {
+    private static final Stage[] STAGES = Stage.values();
+    private final Histogram[] histograms = new Histogram[STAGES.length];
+
+    AppendLatencies() {
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new Histogram();
+    }
+
+    void sample(@NotNull Stage stage, long nanos) {
+        histograms[stage.ordinal()].sample(nanos);
+    }
+
+    void add(@NotNull AppendLatencies latencies) {
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i].add(latencies.histograms[i]);
+    }
+
+    void reset() {
+        for (Histogram histogram : histograms)
+            histogram.reset();
+    }
+
+    @NotNull
+    Map<Stage, Histogram> toMap() {
+        final Map<Stage, Histogram> map = new EnumMap<>(Stage.class);
+        for (Stage stage : STAGES)
+            map.put(stage, histograms[stage.ordinal()]);
+        return map;
+    }
+
+    public enum Stage {
+        /**
+         * waiting for the write lock.
+         */
+        LOCK,
+        /**
+         * moving to a new cycle, including creating its file.
+         */
+        ROLL,
+        /**
+         * finding the end of the queue and writing the header, which includes waiting for or
+         * recovering a header left incomplete, and the page fault of a new page.
+         */
+        HEADER,
+        /**
+         * copying the payload of {@code writeBytes}, or the whole of a batch.
+         */
+        WRITE,
+        /**
+         * completing the header of a document when it is closed.
+         */
+        COMMIT,
+        /**
+         * adding the excerpt to the index, including writing a new index block.
+         */
+        INDEX
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.values.LongValue;
+import net.openhft.chronicle.queue.impl.TableStore;
+import net.openhft.chronicle.queue.impl.table.SingleTableBuilder;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lets tailers wait for an append without polling the queue. Appenders add one to a sequence kept
+ * in the queue's metadata after each publish, and a waiting tailer parks until it changes.
+ * <p>
+ * Threads waiting in this process are unparked by the appender as soon as it publishes. Java can't
+ * wake a thread in another process, so those check the sequence between parks, backing off to
+ * {@code chronicle.queue.notifier.maxParkMicros}, which bounds their latency. Either way a waiting
+ * tailer reads one long rather than the queue, and doesn't hold a core.
+ * <p>
+ * Whether appenders notify isn't kept in the metadata, so one in a process which didn't turn it on
+ * never moves the sequence. Tailers look at the queue itself every
+ * {@code chronicle.queue.notifier.recheckMicros} as well, so they see its appends that much later
+ * rather than at the end of their timeout.
+ */
+final class AppendNotifier implements Closeable {
+    private static final String SEQUENCE_KEY = "chronicle.append.notifier";
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(
+            Long.getLong("chronicle.queue.notifier.maxParkMicros", 250));
+    static final long RECHECK_NANOS = TimeUnit.MICROSECONDS.toNanos(
+            Long.getLong("chronicle.queue.notifier.recheckMicros", 1000));
+
+    @NotNull
+    private final TableStore tableStore;
+    @NotNull
+    private final LongValue sequence;
+    private final Set<Thread> waiters = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed = false;
+
+    AppendNotifier(@NotNull File tableStoreFile) {
+        this.tableStore = SingleTableBuilder.binary(tableStoreFile).build();
+        this.sequence = tableStore.doWithExclusiveLock(ts -> ts.acquireValueFor(SEQUENCE_KEY));
+    }
+
+    /**
+     * Called by an appender after it has published, and released the write lock.
+     */
+    void published() {
+        if (closed)
+            return;
+        sequence.addAtomicValue(1);
+        if (!waiters.isEmpty())
+            for (Thread waiter : waiters)
+                LockSupport.unpark(waiter);
+    }
+
+    /**
+     * @return the current sequence, to be read before looking for an excerpt and passed to
+     * {@link #await(long, long)} if there wasn't one.
+     */
+    long sequence() {
+        return sequence.getVolatileValue();
+    }
+
+    /**
+     * Wait until there has been an append since the sequence was {@code seen}.
+     *
+     * @return true if there has, false on timeout, interrupt or close
+     */
+    boolean await(long seen, long timeoutNanos) {
+        final long end = System.nanoTime() + timeoutNanos;
+        final Thread thread = Thread.currentThread();
+        // register before checking, so an append between the two still unparks this thread
+        waiters.add(thread);
+        try {
+            long parkNanos = MIN_PARK_NANOS;
+            while (!closed) {
+                if (sequence.getVolatileValue() != seen)
+                    return true;
+                final long remaining = end - System.nanoTime();
+                if (remaining <= 0 || thread.isInterrupted())
+                    return false;
+                LockSupport.parkNanos(this, Math.min(parkNanos, remaining));
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+            return false;
+        } finally {
+            waiters.remove(thread);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        // let any waiters see it's closed before the sequence is unmapped
+        for (int i = 0; i < 100 && !waiters.isEmpty(); i++) {
+            for (Thread waiter : waiters)
+                LockSupport.unpark(waiter);
+            Jvm.pause(1);
+        }
+        Closeable.closeQuietly(sequence, tableStore);
+    }
+}
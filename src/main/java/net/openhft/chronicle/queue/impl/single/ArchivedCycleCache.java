@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.Jvm;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The cycles restored from their archives to be read, as a mapped file needs a file to map. The
+ * restored files are kept in a directory of their own until this process has restored more than
+ * its budget of them, when those used least recently are deleted. A file already restored, by
+ * this or another process, is used as it is.
+ */
+final class ArchivedCycleCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ArchivedCycleCache.class);
+
+    @NotNull
+    private final File dir;
+    private final long capacity;
+    private final Map<File, Long> restored = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    ArchivedCycleCache(@NotNull File dir, long capacity) {
+        this.dir = dir;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the restored copy of the archived cycle's file
+     */
+    @NotNull
+    synchronized File restore(@NotNull File cycleFile) throws IOException {
+        final File file = restoredFile(cycleFile);
+        if (restored.get(file) != null && file.exists())
+            return file;
+
+        if (!file.exists()) {
+            dir.mkdirs();
+            final File tmp = new File(dir, cycleFile.getName() + "." + Jvm.getProcessId() + ".tmp");
+            CycleArchive.restore(CycleArchive.archiveFor(cycleFile), tmp);
+            if (!tmp.renameTo(file) && !file.exists()) {
+                tmp.delete();
+                throw new IOException("Unable to rename " + tmp + " to " + file);
+            }
+            tmp.delete();
+        }
+        final Long previous = restored.put(file, file.length());
+        size += file.length() - (previous == null ? 0 : previous);
+        evict(file);
+        return file;
+    }
+
+    private void evict(@NotNull File keep) {
+        for (Iterator<Map.Entry<File, Long>> it = restored.entrySet().iterator(); it.hasNext() && size > capacity; ) {
+            final Map.Entry<File, Long> entry = it.next();
+            if (entry.getKey().equals(keep))
+                continue;
+            // a file still mapped stays readable where it is, and the mapping is released later
+            if (!entry.getKey().delete() && entry.getKey().exists()) {
+                LOG.debug("Unable to delete " + entry.getKey() + " yet");
+                continue;
+            }
+            size -= entry.getValue();
+            it.remove();
+        }
+    }
+
+    /**
+     * Delete the restored copy of a cycle's file, if there is one.
+     */
+    synchronized void remove(@NotNull File cycleFile) {
+        final File file = restoredFile(cycleFile);
+        final Long length = restored.remove(file);
+        if (length != null)
+            size -= length;
+        file.delete();
+    }
+
+    @NotNull
+    File restoredFile(@NotNull File cycleFile) {
+        return new File(dir, cycleFile.getName());
+    }
+
+    synchronized long size() {
+        return size;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueExcerpts.StoreAppender;
+import net.openhft.chronicle.threads.TimingPauser;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.UnrecoverableTimeoutException;
+import net.openhft.chronicle.wire.Wire;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The appender used when the write buffer mode is {@link net.openhft.chronicle.queue.BufferMode#Asynchronous}.
+ * Excerpts are copied into the queue's {@link AsyncRingBuffer} and this returns as soon as the
+ * copy is complete; the {@link AsyncBufferDrainer} writes them to the queue later. If the buffer
+ * is full, the caller waits for space, up to the queue's timeout.
+ * <p>
+ * Meta data is not buffered. The buffer is drained before it is written directly, so it is not
+ * reordered with excerpts this thread has already written.
+ */
+class AsyncAppender implements ExcerptAppender {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncAppender.class);
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    @NotNull
+    private final AsyncRingBuffer ringBuffer;
+    @NotNull
+    private final AsyncBufferDrainer drainer;
+    private final AsyncAppenderContext context = new AsyncAppenderContext();
+    private final TimingPauser pauser;
+    // the id this appender's excerpts are offered with, and the index of the last of them written
+    private final int producer;
+    private final AtomicLong lastIndexAppended = new AtomicLong(Long.MIN_VALUE);
+    @Nullable
+    private Wire bufferWire;
+    @Nullable
+    private StoreAppender metaDataAppender;
+    private Padding padToCacheLines = Padding.SMART;
+
+    AsyncAppender(@NotNull SingleChronicleQueue queue, @NotNull AsyncRingBuffer ringBuffer, @NotNull AsyncBufferDrainer drainer) {
+        this.queue = queue;
+        this.ringBuffer = ringBuffer;
+        this.drainer = drainer;
+        this.pauser = queue.pauserSupplier.get();
+        this.producer = drainer.register(lastIndexAppended);
+    }
+
+    @Override
+    public void writeBytes(@NotNull BytesStore bytes) throws UnrecoverableTimeoutException {
+        checkOpen();
+        offer(bytes);
+    }
+
+    private void offer(@NotNull BytesStore bytes) throws UnrecoverableTimeoutException {
+        try {
+            while (!ringBuffer.offer(bytes, producer)) {
+                drainer.checkRunning();
+                pauser.pause(queue.timeoutMS, TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            throw new UnrecoverableTimeoutException(e);
+        } finally {
+            pauser.reset();
+        }
+    }
+
+    private void checkOpen() {
+        if (queue.isClosed.get())
+            throw new IllegalStateException("Queue is closed");
+        drainer.checkRunning();
+    }
+
+    @NotNull
+    @Override
+    public DocumentContext writingDocument(boolean metaData) throws UnrecoverableTimeoutException {
+        checkOpen();
+        if (Thread.currentThread().isInterrupted())
+            throw new IllegalStateException("Queue won't write from an interrupted thread");
+        if (metaData) {
+            if (!drainer.awaitEmpty(queue.timeoutMS))
+                throw new UnrecoverableTimeoutException(new TimeoutException("Timed out waiting for the async buffer to drain"));
+            if (metaDataAppender == null)
+                metaDataAppender = queue.newStoreAppender();
+            return metaDataAppender.writingDocument(true);
+        }
+        if (bufferWire == null)
+            bufferWire = queue.wireType().apply(Bytes.elasticByteBuffer());
+        else
+            bufferWire.clear();
+        context.isClosed = false;
+        context.rollbackOnClose = false;
+        return context;
+    }
+
+    /**
+     * @return the index of the last excerpt from this appender which the drainer has written to the
+     * queue, which may not yet be the one most recently written.
+     */
+    @Override
+    public long lastIndexAppended() {
+        final long index = lastIndexAppended.get();
+        if (index == Long.MIN_VALUE)
+            throw new IllegalStateException("nothing has been appended by this appender, so there is no last index");
+        return index;
+    }
+
+    @Override
+    public int cycle() {
+        return queue.cycle();
+    }
+
+    @Override
+    public void padToCacheAlign(Padding padToCacheAlign) {
+        this.padToCacheLines = padToCacheAlign;
+    }
+
+    @NotNull
+    @Override
+    public Padding padToCacheAlignMode() {
+        return padToCacheLines;
+    }
+
+    @Override
+    public int sourceId() {
+        return queue.sourceId;
+    }
+
+    @Override
+    public boolean recordHistory() {
+        return sourceId() != 0;
+    }
+
+    @NotNull
+    @Override
+    public SingleChronicleQueue queue() {
+        return queue;
+    }
+
+    @Override
+    public Runnable getCloserJob() {
+        return () -> {
+            drainer.unregister(producer);
+            Wire w = bufferWire;
+            bufferWire = null;
+            if (w != null && w.bytes().refCount() > 0)
+                w.bytes().release();
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncAppender{" +
+                "queue=" + queue +
+                ", ringBuffer=" + ringBuffer +
+                '}';
+    }
+
+    class AsyncAppenderContext implements DocumentContext {
+        boolean isClosed = true;
+        private boolean rollbackOnClose = false;
+
+        @Override
+        public int sourceId() {
+            return AsyncAppender.this.sourceId();
+        }
+
+        @Override
+        public boolean isPresent() {
+            return false;
+        }
+
+        @Override
+        public Wire wire() {
+            return bufferWire;
+        }
+
+        @Override
+        public boolean isMetaData() {
+            return false;
+        }
+
+        @Override
+        public void metaData(boolean metaData) {
+            if (metaData)
+                throw new UnsupportedOperationException("Meta data must be written with writingDocument(true)");
+        }
+
+        @Override
+        public boolean isClosed() {
+            return isClosed;
+        }
+
+        @Override
+        public void rollbackOnClose() {
+            this.rollbackOnClose = true;
+        }
+
+        @Override
+        public void close() {
+            if (isClosed) {
+                LOG.warn("Already Closed, close was called twice.");
+                return;
+            }
+            isClosed = true;
+            if (rollbackOnClose)
+                return;
+            if (Thread.currentThread().isInterrupted()) {
+                LOG.warn("Thread is interrupted. Can't guarantee complete message, so not committing");
+                return;
+            }
+            offer(bufferWire.bytes());
+        }
+
+        /**
+         * The index isn't known until the drainer has written the excerpt.
+         */
+        @Override
+        public long index() throws IORuntimeException {
+            throw new UnsupportedOperationException("The index of an excerpt written asynchronously isn't known " +
+                    "until it has been written to the queue, see lastIndexAppended()");
+        }
+
+        @Override
+        public boolean isNotComplete() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
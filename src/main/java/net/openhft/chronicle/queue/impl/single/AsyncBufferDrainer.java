@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.threads.EventHandler;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.threads.Pauser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.openhft.chronicle.queue.impl.single.SingleChronicleQueueExcerpts.StoreAppender;
+
+/**
+ * Drains an {@link AsyncRingBuffer} into the queue in batches, either as a handler on the queue's
+ * {@link EventLoop} or, if there isn't one, on a dedicated daemon thread. Ring buffer stats are
+ * passed to the queue's {@code onRingBufferStats} consumer every
+ * {@code chronicle.queue.async.statsIntervalMs} milliseconds.
+ */
+final class AsyncBufferDrainer implements EventHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncBufferDrainer.class);
+    private static final int MAX_BATCH = Integer.getInteger("chronicle.queue.async.maxBatch", 256);
+    private static final long STATS_INTERVAL_MS = Long.getLong("chronicle.queue.async.statsIntervalMs", 1_000L);
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    @NotNull
+    private final AsyncRingBuffer ringBuffer;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean closing = false;
+    @Nullable
+    private volatile Throwable failure;
+    private final AtomicInteger nextProducer = new AtomicInteger();
+    // the last index written for each open appender, by the producer id it offers excerpts with
+    private final Map<Integer, AtomicLong> lastIndexByProducer = new ConcurrentHashMap<>();
+    // only used on the drain thread
+    @Nullable
+    private StoreAppender appender;
+    private long nextStatsMS;
+
+    AsyncBufferDrainer(@NotNull SingleChronicleQueue queue, @NotNull AsyncRingBuffer ringBuffer) {
+        this.queue = queue;
+        this.ringBuffer = ringBuffer;
+    }
+
+    void start() {
+        EventLoop eventLoop = queue.eventLoop();
+        if (eventLoop != null) {
+            eventLoop.addHandler(this);
+            return;
+        }
+        ExecutorService service = Executors.newSingleThreadExecutor(
+                new NamedThreadFactory(queue.file().getName() + "-async-drain", true));
+        service.execute(this::runLoop);
+        service.shutdown(); // stop when the task exits.
+    }
+
+    private void runLoop() {
+        Pauser pauser = Pauser.balanced();
+        try {
+            while (true) {
+                if (action())
+                    pauser.reset();
+                else
+                    pauser.pause();
+            }
+        } catch (InvalidEventHandlerException e) {
+            // stopped
+        }
+    }
+
+    @Override
+    public boolean action() throws InvalidEventHandlerException {
+        if (stopped.getCount() == 0)
+            throw new InvalidEventHandlerException();
+        try {
+            if (closing) {
+                while (drain() > 0) {
+                    // write out everything offered before the close
+                }
+                queue.onRingBufferStats().accept(ringBuffer);
+                stopped.countDown();
+                throw new InvalidEventHandlerException();
+            }
+
+            boolean busy = drain() > 0;
+            long now = queue.time().currentTimeMillis();
+            if (now >= nextStatsMS) {
+                nextStatsMS = now + STATS_INTERVAL_MS;
+                queue.onRingBufferStats().accept(ringBuffer);
+            }
+            return busy;
+
+        } catch (InvalidEventHandlerException e) {
+            throw e;
+        } catch (Throwable t) {
+            LOG.warn("Stopped draining the async buffer of " + queue.file(), t);
+            failure = t;
+            stopped.countDown();
+            throw new InvalidEventHandlerException();
+        }
+    }
+
+    private int drain() {
+        StoreAppender appender = appender();
+        int count = ringBuffer.drainTo(appender, MAX_BATCH);
+        if (count > 0) {
+            // a batch is written in one go, so its indexes run up to the last one
+            final long firstIndex = appender.lastIndexAppended() - count + 1;
+            for (int i = 0; i < count; i++) {
+                final int producer = ringBuffer.producer(i);
+                if (i + 1 < count && ringBuffer.producer(i + 1) == producer)
+                    continue;
+                final AtomicLong lastIndex = lastIndexByProducer.get(producer);
+                if (lastIndex != null)
+                    lastIndex.set(firstIndex + i);
+            }
+        }
+        return count;
+    }
+
+    @NotNull
+    private StoreAppender appender() {
+        if (appender == null)
+            appender = queue.newStoreAppender();
+        return appender;
+    }
+
+    /**
+     * @return the producer id for an appender to offer its excerpts with, so {@code lastIndex} is
+     * set to the index of the last of them written to the queue.
+     */
+    int register(@NotNull AtomicLong lastIndex) {
+        final int producer = nextProducer.incrementAndGet();
+        lastIndexByProducer.put(producer, lastIndex);
+        return producer;
+    }
+
+    void unregister(int producer) {
+        lastIndexByProducer.remove(producer);
+    }
+
+    /**
+     * @throws IllegalStateException if the drainer has stopped, so nothing offered will be written.
+     */
+    void checkRunning() {
+        if (stopped.getCount() == 0)
+            throw new IllegalStateException("The async buffer of " + queue.file() + " is no longer being drained", failure);
+    }
+
+    /**
+     * Wait until the buffer is empty, or the timeout passes.
+     *
+     * @return true if the buffer was emptied.
+     */
+    boolean awaitEmpty(long timeoutMS) {
+        long end = System.currentTimeMillis() + timeoutMS;
+        Pauser pauser = Pauser.balanced();
+        while (!ringBuffer.isEmpty()) {
+            checkRunning();
+            if (System.currentTimeMillis() > end)
+                return false;
+            pauser.pause();
+        }
+        return true;
+    }
+
+    /**
+     * Drain whatever is left in the buffer and stop.
+     *
+     * @return true if the drainer stopped before the timeout, after which the buffer can be released.
+     */
+    boolean close(long timeoutMS) {
+        closing = true;
+        try {
+            if (stopped.await(timeoutMS, TimeUnit.MILLISECONDS))
+                return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.warn("Timed out waiting for the async buffer of " + queue.file() + " to drain, " +
+                ringBuffer.occupancy() + " bytes were not written");
+        return false;
+    }
+}
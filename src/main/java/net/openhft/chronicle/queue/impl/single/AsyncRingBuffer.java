@@ -0,0 +1,281 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesRingBufferStats;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.NativeBytesStore;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A multi-producer, single-consumer ring buffer of excerpts held off heap.
+ * <p>
+ * Each record is a 16 byte header followed by the payload, padded to a multiple of 16 bytes. The
+ * header holds the payload length, with the top bit set once the payload has been copied in, the
+ * id of the producer which offered it, and the {@link System#nanoTime()} at which it was offered. Producers reserve space with a
+ * CAS on the write position, so many threads can copy in at once; the single consumer reads
+ * records in reservation order, stopping at the first one not yet complete, and zeroes the space
+ * it has consumed before handing it back.
+ */
+public final class AsyncRingBuffer implements BytesRingBufferStats {
+    static final int HEADER_SIZE = 16;
+    private static final int READY = 0x8000_0000;
+
+    @NotNull
+    private final BytesStore buffer;
+    private final long capacity;
+    private final long mask;
+    private final AtomicLong writeReserve = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+
+    // stats, cleared each time they are reported
+    private final AtomicLong minWriteBytesRemaining;
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong missedWriteCount = new AtomicLong();
+    private final AtomicLong contentionCount = new AtomicLong();
+    private final AtomicLong readCount = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    // only used by the consumer
+    private Bytes[] scratch = new Bytes[0];
+    private int[] producers = new int[0];
+
+    AsyncRingBuffer(long capacity) {
+        this.capacity = Maths.nextPower2(capacity, 4 << 10);
+        this.mask = this.capacity - 1;
+        this.buffer = NativeBytesStore.nativeStoreWithFixedCapacity(this.capacity);
+        this.buffer.zeroOut(0, this.capacity);
+        this.minWriteBytesRemaining = new AtomicLong(this.capacity);
+    }
+
+    private static long recordSize(long length) {
+        return (HEADER_SIZE + length + 15) & ~15L;
+    }
+
+    /**
+     * @return the largest payload which can be offered.
+     */
+    long maxPayload() {
+        return capacity - HEADER_SIZE;
+    }
+
+    /**
+     * Copy {@code bytes} into the buffer.
+     *
+     * @return false if there is not enough free space, in which case nothing is written.
+     */
+    boolean offer(@NotNull BytesStore bytes) {
+        return offer(bytes, 0);
+    }
+
+    /**
+     * Copy {@code bytes} into the buffer, offered by {@code producer}.
+     *
+     * @return false if there is not enough free space, in which case nothing is written.
+     */
+    boolean offer(@NotNull BytesStore bytes, int producer) {
+        final long length = bytes.readRemaining();
+        if (length > maxPayload())
+            throw new IllegalArgumentException("Excerpt of " + length + " bytes is larger than the ring buffer capacity " + capacity);
+        final long size = recordSize(length);
+        long start;
+        do {
+            start = writeReserve.get();
+            long remaining = capacity - (start - readPosition.get());
+            if (remaining < size) {
+                missedWriteCount.incrementAndGet();
+                return false;
+            }
+            if (writeReserve.compareAndSet(start, start + size)) {
+                updateMinRemaining(remaining - size);
+                break;
+            }
+            contentionCount.incrementAndGet();
+        } while (true);
+
+        final long offset = start & mask;
+        buffer.writeInt(offset + 4, producer);
+        buffer.writeLong(offset + 8, System.nanoTime());
+        final long payload = (start + HEADER_SIZE) & mask;
+        final long first = Math.min(length, capacity - payload);
+        buffer.write(payload, bytes, bytes.readPosition(), first);
+        if (first < length)
+            buffer.write(0, bytes, bytes.readPosition() + first, length - first);
+        buffer.writeOrderedInt(offset, (int) length | READY);
+        writeCount.incrementAndGet();
+        return true;
+    }
+
+    private void updateMinRemaining(long remaining) {
+        long min;
+        while (remaining < (min = minWriteBytesRemaining.get()))
+            if (minWriteBytesRemaining.compareAndSet(min, remaining))
+                break;
+    }
+
+    /**
+     * Copy up to {@code maxCount} complete records out of the buffer and append them with one
+     * batched write, so they have consecutive indexes. Must only be called by one thread at a time.
+     *
+     * @return the number of excerpts written, whose producers are given by {@link #producer(int)}.
+     */
+    int drainTo(@NotNull ExcerptAppender appender, int maxCount) {
+        final long start = readPosition.get();
+        long read = start;
+        long oldest = Long.MAX_VALUE;
+        int count = 0;
+        while (count < maxCount && read < writeReserve.get()) {
+            final long offset = read & mask;
+            final int header = buffer.readVolatileInt(offset);
+            if ((header & READY) == 0)
+                break;
+            final int length = header & ~READY;
+            oldest = Math.min(oldest, buffer.readLong(offset + 8));
+
+            final Bytes bytes = scratch(count);
+            producers[count] = buffer.readInt(offset + 4);
+            final long payload = (read + HEADER_SIZE) & mask;
+            final long first = Math.min(length, capacity - payload);
+            bytes.write(buffer, payload, first);
+            if (first < length)
+                bytes.write(buffer, 0, length - first);
+            read += recordSize(length);
+            count++;
+        }
+        if (count == 0)
+            return 0;
+
+        appender.writeBytes(scratch, count);
+
+        final long latency = System.nanoTime() - oldest;
+        if (latency > maxLatencyNanos.get())
+            maxLatencyNanos.set(latency);
+        readCount.addAndGet(count);
+
+        // hand the space back zeroed so an incomplete record is never mistaken for a complete one.
+        final long from = start & mask;
+        final long to = read & mask;
+        if (from < to) {
+            buffer.zeroOut(from, to);
+        } else {
+            buffer.zeroOut(from, capacity);
+            buffer.zeroOut(0, to);
+        }
+        readPosition.set(read);
+        return count;
+    }
+
+    /**
+     * @return the producer of the {@code index}th excerpt written by the last {@link #drainTo}.
+     * Must only be called by the consumer.
+     */
+    int producer(int index) {
+        return producers[index];
+    }
+
+    private Bytes scratch(int index) {
+        if (index >= scratch.length) {
+            Bytes[] scratch2 = new Bytes[Math.max(16, scratch.length * 2)];
+            System.arraycopy(scratch, 0, scratch2, 0, scratch.length);
+            for (int i = scratch.length; i < scratch2.length; i++)
+                scratch2[i] = Bytes.elasticByteBuffer();
+            scratch = scratch2;
+            producers = Arrays.copyOf(producers, scratch2.length);
+        }
+        Bytes bytes = scratch[index];
+        bytes.clear();
+        return bytes;
+    }
+
+    boolean isEmpty() {
+        return readPosition.get() == writeReserve.get();
+    }
+
+    /**
+     * @return the number of bytes currently reserved by records not yet drained.
+     */
+    public long occupancy() {
+        return writeReserve.get() - readPosition.get();
+    }
+
+    @Override
+    public long minNumberOfWriteBytesRemaining() {
+        return minWriteBytesRemaining.getAndSet(capacity - occupancy());
+    }
+
+    @Override
+    public long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getAndClearWriteCount() {
+        return writeCount.getAndSet(0);
+    }
+
+    /**
+     * @return the number of offers which found the buffer full since this was last called.
+     */
+    @Override
+    public long getAndClearMissedWriteCount() {
+        return missedWriteCount.getAndSet(0);
+    }
+
+    /**
+     * @return the number of times a producer lost the race to reserve space since this was last
+     * called.
+     */
+    @Override
+    public long getAndClearContentionCount() {
+        return contentionCount.getAndSet(0);
+    }
+
+    /**
+     * @return the number of excerpts drained into the queue since this was last called.
+     */
+    public long getAndClearReadCount() {
+        return readCount.getAndSet(0);
+    }
+
+    /**
+     * @return the longest time in nanoseconds between an excerpt being offered and being written to
+     * the queue since this was last called.
+     */
+    public long getAndClearMaxLatencyNanos() {
+        return maxLatencyNanos.getAndSet(0);
+    }
+
+    void release() {
+        for (Bytes bytes : scratch)
+            bytes.release();
+        scratch = new Bytes[0];
+        buffer.release();
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncRingBuffer{" +
+                "capacity=" + capacity +
+                ", occupancy=" + occupancy() +
+                '}';
+    }
+}
@@ -1,5 +1,6 @@
 package net.openhft.chronicle.queue.impl.single;
 
+import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.queue.ExcerptTailer;
 import net.openhft.chronicle.queue.RollCycle;
 import net.openhft.chronicle.wire.DocumentContext;
@@ -8,7 +9,6 @@ import org.jetbrains.annotations.NotNull;
 
 import java.text.ParseException;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.NavigableSet;
 
 /**
@@ -18,8 +18,8 @@ public enum BinarySearch {
     INSTANCE;
 
     /**
-     * returns the index or -1 if not found or the index if an exact match is found, an approximation in the form of -approximateIndex
-     * or -1 if there was no searching to be done.
+     * returns the index if an exact match is found, otherwise the insertion point in the form of -insertionIndex, the index
+     * of the first excerpt after the key, or -1 if there was no searching to be done.
      * <p>
      * Warning : This implementation is unreliable as index are an encoded 64bits, where we could use all the bits including the
      * high bit which is used for the sign. At the moment  it will work as its unlikely to reach a point where we store
@@ -44,7 +44,7 @@ public enum BinarySearch {
                 return findWithinCycle(key, c, startCycle, tailer, q, rollCycle);
 
             final NavigableSet<Long> cycles = q.listCyclesBetween(startCycle, endCycle);
-            final int cycle = (int) findCycleLinearSearch(cycles, key, c, tailer, q);
+            final int cycle = (int) findCycleBinarySearch(cycles, key, c, tailer, q);
 
             if (cycle == -1)
                 return -1;
@@ -55,41 +55,54 @@ public enum BinarySearch {
 
     }
 
-    private static long findCycleLinearSearch(@NotNull NavigableSet<Long> cycles, Wire key,
+    /**
+     * Bisects the cycles on their first excerpts, which the queue caches, for the last cycle whose
+     * first excerpt is not after the key, or the first cycle if they all are.
+     */
+    private static long findCycleBinarySearch(@NotNull NavigableSet<Long> cycles, @NotNull Wire key,
                                               @NotNull Comparator<Wire> c,
                                               @NotNull ExcerptTailer tailer,
                                               @NotNull final SingleChronicleQueue queue) {
-
-        final Iterator<Long> iterator = cycles.iterator();
-        if (!iterator.hasNext())
+        if (cycles.isEmpty())
             return -1;
-        final RollCycle rollCycle = queue.rollCycle();
-        long prevIndex = iterator.next();
-
-        while (iterator.hasNext()) {
-
-            final Long current = iterator.next();
-
-            final boolean b = tailer.moveToIndex(rollCycle.toIndex((int) (long) current, 0));
-            if (!b)
-                return prevIndex;
-
-            try (final DocumentContext dc = tailer.readingDocument()) {
-                final int compare = c.compare(dc.wire(), key);
+        final long[] array = cycles.stream().mapToLong(Long::longValue).toArray();
+        final long readPosition = key.bytes().readPosition();
+        // one wire for the search, which each cycle's first excerpt is copied into in turn
+        final Wire first = queue.wireType().apply(Bytes.elasticByteBuffer());
+        try {
+            int low = 0;
+            int high = array.length - 1;
+            int found = 0;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final byte[] payload = queue.firstExcerpt((int) array[mid], tailer);
+                if (payload == null) {
+                    // an empty cycle, treated as the end, as it would be by a scan
+                    high = mid - 1;
+                    continue;
+                }
+                first.clear();
+                first.bytes().write(payload);
+                key.bytes().readPosition(readPosition);
+                final int compare = c.compare(first, key);
                 if (compare == 0)
-                    return current;
-                else if (compare > 0)
-                    return prevIndex;
-                prevIndex = current;
+                    return array[mid];
+                if (compare < 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
             }
+            return array[found];
+        } finally {
+            first.bytes().release();
         }
-
-        return prevIndex;
     }
 
     /**
-     * @return The index if an exact match is found, an approximation in the form of -approximateIndex
-     * or -1 if there was no searching to be done.
+     * @return The index if an exact match is found, the insertion point in the form of -insertionIndex, the index of
+     * the first excerpt after the key, or -1 if there was no searching to be done.
      * <p>
      * Warning : This implementation is unreliable as index are an encoded 64bits, where we could use all the bits including the
      * high bit which is used for the sign. At the moment  it will work as its unlikely to reach a point where we store
@@ -117,6 +130,38 @@ public enum BinarySearch {
 
             long midIndex = 0;
 
+            // bisect over the indexed excerpts first, which are found without scanning, then
+            // within the index block which may hold the key
+            final int spacing = q.indexSpacing();
+            if (spacing > 1 && highSeqNum >= spacing) {
+                long lowEntry = 0;
+                long highEntry = highSeqNum / spacing;
+                long floorEntry = 0;
+                while (lowEntry <= highEntry) {
+                    final long midEntry = (lowEntry + highEntry) >>> 1L;
+                    midIndex = rollCycle.toIndex(cycle, midEntry * spacing);
+                    if (!tailer.moveToIndex(midIndex))
+                        return -1;
+                    try (DocumentContext dc = tailer.readingDocument()) {
+                        if (!dc.isPresent())
+                            return -1;
+                        key.bytes().readPosition(readPosition);
+                        int cmp = c.compare(dc.wire(), key);
+
+                        if (cmp < 0) {
+                            floorEntry = midEntry;
+                            lowEntry = midEntry + 1;
+                        } else if (cmp > 0) {
+                            highEntry = midEntry - 1;
+                        } else {
+                            return midIndex; // key found
+                        }
+                    }
+                }
+                lowSeqNum = floorEntry * spacing;
+                highSeqNum = Math.min(highSeqNum, lowSeqNum + spacing - 1);
+            }
+
             while (lowSeqNum <= highSeqNum) {
                 long midSeqNumber = (lowSeqNum + highSeqNum) >>> 1L;
 
@@ -139,7 +184,8 @@ public enum BinarySearch {
                 }
             }
 
-            return -midIndex;  // -approximateIndex
+            // not found, lowSeqNum is now the first excerpt after the key
+            return -rollCycle.toIndex(cycle, lowSeqNum);  // -insertionIndex
         } finally {
             key.bytes().readPosition(readPosition);
         }
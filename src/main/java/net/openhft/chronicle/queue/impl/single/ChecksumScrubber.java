@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.impl.StoreFileListener;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueExcerpts.StoreTailer;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.wire.Wires;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static net.openhft.chronicle.wire.Wires.SPB_HEADER_SIZE;
+
+/**
+ * Checks the checksums of cycles this process has released, from a background thread, when the
+ * queue has {@link SingleChronicleQueueBuilder#scrubReleasedCycles(int)} set. Each cycle before
+ * the current one is read once, no faster than the given rate, so scrubbing doesn't compete with
+ * tailers for the disk. The index of each excerpt whose checksum doesn't match is logged, and
+ * kept for {@link SingleChronicleQueue#checksumFailures()}.
+ */
+final class ChecksumScrubber implements StoreFileListener {
+    private static final Logger LOG = LoggerFactory.getLogger(ChecksumScrubber.class);
+    // how often the rate is checked
+    private static final long THROTTLE_BYTES = 1 << 20;
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    @NotNull
+    private final StoreFileListener listener;
+    private final long bytesPerSecond;
+    @NotNull
+    private final ExecutorService service;
+    // only used on the background thread
+    private final Set<Integer> scrubbed = new HashSet<>();
+    private final List<Long> failures = new ArrayList<>();
+    private final AtomicLong bytesScrubbed = new AtomicLong();
+
+    ChecksumScrubber(@NotNull SingleChronicleQueue queue, @NotNull StoreFileListener listener, int mbPerSecond) {
+        this.queue = queue;
+        this.listener = listener;
+        this.bytesPerSecond = mbPerSecond * (1L << 20);
+        this.service = Executors.newSingleThreadExecutor(
+                new NamedThreadFactory(queue.file().getName() + "-scrubber", true));
+    }
+
+    @Override
+    public void onAcquired(int cycle, File file) {
+        listener.onAcquired(cycle, file);
+    }
+
+    @Override
+    public void onReleased(int cycle, File file) {
+        listener.onReleased(cycle, file);
+        // whether the queue has checksums is only known once it's built
+        if (!queue.checksums || cycle >= queue.cycle())
+            return;
+        try {
+            service.execute(() -> {
+                if (!scrubbed.add(cycle))
+                    return;
+                try {
+                    final List<Long> bad = scrub(queue, cycle, bytesPerSecond, bytesScrubbed);
+                    synchronized (failures) {
+                        failures.addAll(bad);
+                    }
+                } catch (Throwable t) {
+                    LOG.warn("Unable to scrub cycle " + cycle + " of " + queue.file(), t);
+                }
+            });
+        } catch (RejectedExecutionException closing) {
+            // the queue is being closed
+        }
+    }
+
+    /**
+     * Reads every data excerpt of a cycle and checks its checksum.
+     *
+     * @param bytesPerSecond the most to read a second, or 0 for no limit
+     * @param bytesScrubbed  counts the bytes read
+     * @return the indexes of the excerpts whose checksums don't match
+     */
+    @NotNull
+    static List<Long> scrub(@NotNull SingleChronicleQueue queue, int cycle, long bytesPerSecond, @NotNull AtomicLong bytesScrubbed) {
+        final List<Long> bad = new ArrayList<>();
+        final RollCycle rollCycle = queue.rollCycle();
+        final ExcerptChecksum checksum = new ExcerptChecksum();
+        final StoreTailer tailer = (StoreTailer) queue.createTailer();
+        try {
+            if (!tailer.moveToIndex(rollCycle.toIndex(cycle, 0)))
+                return bad;
+            final Bytes<?> bytes = tailer.wire().bytes();
+            final long start = bytes.readPosition();
+            final long startNS = System.nanoTime();
+            long position = start;
+            long throttledAt = start;
+            long seq = 0;
+            while (true) {
+                final int header = bytes.readVolatileInt(position);
+                if (header == 0 || Wires.isNotComplete(header))
+                    break;
+                final int length = Wires.lengthOf(header);
+                if (Wires.isData(header)) {
+                    final long from = position + SPB_HEADER_SIZE;
+                    if (!checksum.matches(bytes, from, from + length)) {
+                        final long index = rollCycle.toIndex(cycle, seq);
+                        LOG.warn("The checksum of index " + Long.toHexString(index) + " doesn't match, in " + queue.file());
+                        bad.add(index);
+                    }
+                    seq++;
+                }
+                position += SPB_HEADER_SIZE + length;
+                if (position - throttledAt >= THROTTLE_BYTES) {
+                    bytesScrubbed.addAndGet(position - throttledAt);
+                    throttledAt = position;
+                    if (bytesPerSecond > 0)
+                        throttle(startNS, position - start, bytesPerSecond);
+                    // the queue is being closed
+                    if (Thread.currentThread().isInterrupted())
+                        break;
+                }
+            }
+            bytesScrubbed.addAndGet(position - throttledAt);
+        } finally {
+            tailer.release();
+        }
+        return bad;
+    }
+
+    private static void throttle(long startNS, long bytesRead, long bytesPerSecond) {
+        final long dueNS = startNS + (long) (bytesRead * 1e9 / bytesPerSecond);
+        long waitNS;
+        while ((waitNS = dueNS - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted())
+            LockSupport.parkNanos(waitNS);
+    }
+
+    @NotNull
+    List<Long> failures() {
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+
+    long bytesScrubbed() {
+        return bytesScrubbed.get();
+    }
+
+    void close(long timeoutMS) {
+        service.shutdownNow();
+        try {
+            if (service.awaitTermination(timeoutMS, TimeUnit.MILLISECONDS))
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.warn("Timed out waiting for the scrubber of " + queue.file());
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The archive of a cycle's file, kept in place of it with {@link #SUFFIX} added to its name. The
+ * file is compressed in blocks with {@link LZ4BlockCodec}, and laid out as
+ * <pre>
+ * magic:      int
+ * block size: int
+ * length:     long, of the cycle's file
+ * blocks:     int
+ * offsets:    long * (blocks + 1), of each block in the archive, and of its end
+ * block:      compressed bytes * blocks, empty for a block of zeros
+ * </pre>
+ * so a block can be found from the offsets and decompressed on its own, and the unwritten end of
+ * a cycle's file takes no space.
+ */
+final class CycleArchive {
+    static final String SUFFIX = SingleChronicleQueue.SUFFIX + "z";
+    static final int BLOCK_SIZE = Integer.getInteger("chronicle.queue.archive.blockSize", 1 << 20);
+    private static final int MAGIC = 0x4351345A; // CQ4Z
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    private CycleArchive() {
+    }
+
+    static boolean isCycleFile(@NotNull String name) {
+        return name.endsWith(SingleChronicleQueue.SUFFIX) || name.endsWith(SUFFIX);
+    }
+
+    /**
+     * @return the name of a cycle's file or archive without its suffix
+     */
+    @NotNull
+    static String cycleName(@NotNull String name) {
+        final int suffix = name.endsWith(SUFFIX) ? SUFFIX.length() : SingleChronicleQueue.SUFFIX.length();
+        return name.substring(0, name.length() - suffix);
+    }
+
+    @NotNull
+    static File archiveFor(@NotNull File cycleFile) {
+        return new File(cycleFile.getPath() + "z");
+    }
+
+    /**
+     * @return whether a cycle's file or its archive exists
+     */
+    static boolean exists(@NotNull File cycleFile) {
+        return cycleFile.exists() || archiveFor(cycleFile).exists();
+    }
+
+    private static int maxCompressedSize(int length) {
+        return 4 + length + length / 255 + 16;
+    }
+
+    /**
+     * Compress a cycle's file into an archive. It's written to a temporary file and renamed into
+     * place, so an archive which exists is complete. The cycle's file is left as it is.
+     */
+    static void archive(@NotNull File cycleFile, @NotNull File archive) throws IOException {
+        final File tmp = new File(archive.getPath() + ".tmp");
+        final Bytes<ByteBuffer> in = Bytes.elasticByteBuffer(BLOCK_SIZE);
+        final Bytes<ByteBuffer> out = Bytes.elasticByteBuffer(maxCompressedSize(BLOCK_SIZE));
+        final LZ4BlockCodec codec = new LZ4BlockCodec();
+        try (RandomAccessFile src = new RandomAccessFile(cycleFile, "r");
+             RandomAccessFile dst = new RandomAccessFile(tmp, "rw")) {
+            dst.setLength(0);
+            final FileChannel srcChannel = src.getChannel();
+            final FileChannel dstChannel = dst.getChannel();
+            final long length = srcChannel.size();
+            final int blocks = Math.toIntExact((length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 8 * (blocks + 1));
+            header.putInt(MAGIC).putInt(BLOCK_SIZE).putLong(length).putInt(blocks);
+
+            long offset = header.capacity();
+            for (int i = 0; i < blocks; i++) {
+                header.putLong(offset);
+                final long position = (long) i * BLOCK_SIZE;
+                final int blockLength = (int) Math.min(BLOCK_SIZE, length - position);
+                final ByteBuffer inBuffer = in.underlyingObject();
+                inBuffer.clear().limit(blockLength);
+                readFully(srcChannel, inBuffer, position);
+                in.readPositionRemaining(0, blockLength);
+                if (isZeros(in))
+                    continue;
+
+                out.clear();
+                codec.compress(in, out);
+                final ByteBuffer outBuffer = out.underlyingObject();
+                outBuffer.clear().limit((int) out.writePosition());
+                offset += writeFully(dstChannel, outBuffer, offset);
+            }
+            header.putLong(offset).flip();
+            writeFully(dstChannel, header, 0);
+            dstChannel.force(true);
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            throw e;
+        } finally {
+            in.release();
+            out.release();
+        }
+        if (!tmp.renameTo(archive)) {
+            tmp.delete();
+            throw new IOException("Unable to rename " + tmp + " to " + archive);
+        }
+    }
+
+    /**
+     * Decompress an archive back into a cycle's file, which is overwritten. Blocks of zeros are
+     * left unwritten.
+     */
+    static void restore(@NotNull File archive, @NotNull File cycleFile) throws IOException {
+        try (RandomAccessFile src = new RandomAccessFile(archive, "r");
+             RandomAccessFile dst = new RandomAccessFile(cycleFile, "rw")) {
+            final FileChannel srcChannel = src.getChannel();
+            final FileChannel dstChannel = dst.getChannel();
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(srcChannel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException("Not a cycle archive " + archive);
+            final int blockSize = header.getInt();
+            final long length = header.getLong();
+            final int blocks = header.getInt();
+            final ByteBuffer offsets = ByteBuffer.allocate(8 * (blocks + 1));
+            readFully(srcChannel, offsets, HEADER_SIZE);
+            offsets.flip();
+
+            dst.setLength(0);
+            final Bytes<ByteBuffer> in = Bytes.elasticByteBuffer(maxCompressedSize(blockSize));
+            final Bytes<ByteBuffer> out = Bytes.elasticByteBuffer(blockSize);
+            final LZ4BlockCodec codec = new LZ4BlockCodec();
+            try {
+                long offset = offsets.getLong();
+                for (int i = 0; i < blocks; i++) {
+                    final long next = offsets.getLong();
+                    final int compressedLength = Math.toIntExact(next - offset);
+                    if (compressedLength > 0) {
+                        final ByteBuffer inBuffer = in.underlyingObject();
+                        inBuffer.clear().limit(compressedLength);
+                        readFully(srcChannel, inBuffer, offset);
+                        in.readPositionRemaining(0, compressedLength);
+
+                        out.clear();
+                        codec.decompress(in, out);
+                        final ByteBuffer outBuffer = out.underlyingObject();
+                        outBuffer.clear().limit((int) out.writePosition());
+                        writeFully(dstChannel, outBuffer, (long) i * blockSize);
+                    }
+                    offset = next;
+                }
+            } finally {
+                in.release();
+                out.release();
+            }
+            dst.setLength(length);
+        }
+    }
+
+    private static boolean isZeros(@NotNull Bytes<?> bytes) {
+        final long end = bytes.readLimit();
+        long i = bytes.readPosition();
+        for (; i + 8 <= end; i += 8)
+            if (bytes.readLong(i) != 0)
+                return false;
+        for (; i < end; i++)
+            if (bytes.readByte(i) != 0)
+                return false;
+        return true;
+    }
+
+    private static void readFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new EOFException("Unexpected end of file at " + position);
+            position += read;
+        }
+    }
+
+    private static int writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position) throws IOException {
+        final int length = buffer.remaining();
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+        return length;
+    }
+}
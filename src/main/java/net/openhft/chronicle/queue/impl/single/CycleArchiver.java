@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.queue.impl.StoreFileListener;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Archives cycles from a background thread when the queue has
+ * {@link SingleChronicleQueueBuilder#archiveReleasedCycles(int)} set.
+ * <p>
+ * Each time this process releases a cycle, every cycle which is more than the given number of
+ * cycles before the current one has its file compressed into a {@link CycleArchive} beside it, and
+ * then deleted. That's not only the cycle released, as a cycle is usually released when the queue
+ * rolls, before it is old enough.
+ * Tailers read it from then on by restoring it into the {@link ArchivedCycleCache}. The file is
+ * deleted while this process's tailers can't acquire a store, so it can't be recreated empty;
+ * another process still reading the cycle keeps reading the file it has mapped.
+ */
+final class CycleArchiver implements StoreFileListener {
+    private static final Logger LOG = LoggerFactory.getLogger(CycleArchiver.class);
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    @NotNull
+    private final StoreFileListener listener;
+    private final int rawCycles;
+    @NotNull
+    private final ExecutorService service;
+    // so releases while archiving are covered by one more pass, rather than one each
+    private final AtomicBoolean archiveScheduled = new AtomicBoolean();
+
+    CycleArchiver(@NotNull SingleChronicleQueue queue, @NotNull StoreFileListener listener, int rawCycles) {
+        this.queue = queue;
+        this.listener = listener;
+        this.rawCycles = rawCycles;
+        this.service = Executors.newSingleThreadExecutor(
+                new NamedThreadFactory(queue.file().getName() + "-archiver", true));
+    }
+
+    @Override
+    public void onAcquired(int cycle, File file) {
+        listener.onAcquired(cycle, file);
+    }
+
+    @Override
+    public void onReleased(int cycle, File file) {
+        listener.onReleased(cycle, file);
+        // restored copies of archived cycles are somewhere else
+        if (file.getName().endsWith(SingleChronicleQueue.SUFFIX)
+                && queue.file().getAbsoluteFile().equals(file.getAbsoluteFile().getParentFile())
+                && archiveScheduled.compareAndSet(false, true)) {
+            try {
+                service.execute(this::archiveOldCycles);
+            } catch (RejectedExecutionException closing) {
+                // the queue is being closed
+            }
+        }
+    }
+
+    private void archiveOldCycles() {
+        archiveScheduled.set(false);
+        final int before = queue.cycle() - rawCycles;
+        final int first = queue.firstCycle();
+        if (first >= before)
+            return;
+        try {
+            for (long cycle : queue.listCyclesBetween(first, before - 1))
+                archive((int) cycle, queue.cycleFile((int) cycle));
+        } catch (ParseException e) {
+            LOG.warn("Unable to list the cycles of " + queue.file() + " to archive", e);
+        }
+    }
+
+    private void archive(int cycle, @NotNull File file) {
+        final File archive = CycleArchive.archiveFor(file);
+        if (!file.exists() || archive.exists())
+            return;
+        try {
+            CycleArchive.archive(file, archive);
+            if (!queue.deleteArchivedCycleFile(cycle, file))
+                LOG.warn("Archived " + file + " but was unable to delete it");
+            else if (LOG.isDebugEnabled())
+                LOG.debug("Archived " + file + " to " + archive);
+        } catch (IOException e) {
+            LOG.warn("Unable to archive " + file, e);
+        }
+    }
+
+    void close(long timeoutMS) {
+        service.shutdown();
+        try {
+            if (service.awaitTermination(timeoutMS, TimeUnit.MILLISECONDS))
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.warn("Timed out waiting for the archiver of " + queue.file());
+    }
+}
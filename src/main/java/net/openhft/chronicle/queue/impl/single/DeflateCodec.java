@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An excerpt codec using raw Deflate, preceded by a 4 byte uncompressed length, with an optional
+ * preset dictionary shared by every excerpt. Small excerpts such as FIX messages repeat little
+ * within themselves, so most of their gain comes from a dictionary of typical content.
+ * <p>
+ * Each instance reuses its {@link Deflater}/{@link Inflater} and working arrays, and is not thread
+ * safe; the suppliers create one per appender or tailer.
+ */
+public final class DeflateCodec {
+    @Nullable
+    private final byte[] dictionary;
+    private final int level;
+    @Nullable
+    private Deflater deflater;
+    @Nullable
+    private Inflater inflater;
+    private byte[] input = new byte[256];
+    @NotNull
+    private Bytes<byte[]> inputBytes = Bytes.wrapForWrite(input);
+    private final byte[] output = new byte[4 << 10];
+
+    DeflateCodec(@Nullable byte[] dictionary, int level) {
+        this.dictionary = dictionary;
+        this.level = level;
+    }
+
+    @NotNull
+    public static Supplier<BiConsumer<BytesStore, Bytes>> encodingSupplier(@Nullable byte[] dictionary, int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        return () -> new DeflateCodec(dictionary, level)::compress;
+    }
+
+    @NotNull
+    public static Supplier<BiConsumer<BytesStore, Bytes>> decodingSupplier(@Nullable byte[] dictionary) {
+        return () -> new DeflateCodec(dictionary, Deflater.DEFAULT_COMPRESSION)::decompress;
+    }
+
+    private int copyIn(@NotNull BytesStore in, long position, int length) {
+        if (input.length < length) {
+            input = new byte[Math.max(length, input.length * 2)];
+            inputBytes = Bytes.wrapForWrite(input);
+        }
+        // one bulk copy, as Deflater and Inflater only take arrays before Java 11
+        inputBytes.clear();
+        inputBytes.write(in, position, length);
+        return length;
+    }
+
+    /**
+     * Compress the readable bytes of {@code in}, without moving its read position, appending the
+     * result to {@code out}.
+     */
+    public void compress(@NotNull BytesStore in, @NotNull Bytes out) {
+        final int length = Math.toIntExact(in.readRemaining());
+        out.writeInt(length);
+        if (deflater == null)
+            deflater = new Deflater(level, true);
+        else
+            deflater.reset();
+        if (dictionary != null)
+            deflater.setDictionary(dictionary);
+        deflater.setInput(input, 0, copyIn(in, in.readPosition(), length));
+        deflater.finish();
+        while (!deflater.finished()) {
+            int n = deflater.deflate(output);
+            out.write(output, 0, n);
+        }
+    }
+
+    /**
+     * Decompress the readable bytes of {@code in}, without moving its read position, appending the
+     * result to {@code out}.
+     *
+     * @throws IllegalStateException if {@code in} is not a valid compressed excerpt.
+     */
+    public void decompress(@NotNull BytesStore in, @NotNull Bytes out) {
+        final long position = in.readPosition();
+        final int length = in.readInt(position);
+        final long outStart = out.writePosition();
+        if (inflater == null)
+            inflater = new Inflater(true);
+        else
+            inflater.reset();
+        // raw deflate has no header to ask for the dictionary, so it is always set up front
+        if (dictionary != null)
+            inflater.setDictionary(dictionary);
+        inflater.setInput(input, 0, copyIn(in, position + 4, Math.toIntExact(in.readRemaining() - 4)));
+        try {
+            while (out.writePosition() - outStart < length) {
+                int n = inflater.inflate(output);
+                if (n == 0 && (inflater.needsInput() || inflater.finished()))
+                    break;
+                out.write(output, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed excerpt", e);
+        }
+        if (out.writePosition() - outStart != length)
+            throw new IllegalStateException("Corrupt compressed excerpt, expected " + length + " bytes but got " + (out.writePosition() - outStart));
+    }
+}
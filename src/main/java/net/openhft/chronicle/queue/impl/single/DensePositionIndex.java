@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.NativeBytesStore;
+import net.openhft.chronicle.core.io.Closeable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The positions of every {@link #SPACING}th excerpt of each cycle, recorded off heap as tailers
+ * scan between the entries of a sparse index, so later lookups in this process can start their
+ * scan from the nearest one rather than from the sparse entry. Nothing is written to the queue
+ * files.
+ * <p>
+ * The positions are kept in blocks of {@link #BLOCK_ENTRIES}, allocated as they are first needed.
+ * When allocating another would go over the memory budget, the blocks of the cycle used least
+ * recently are freed.
+ * <p>
+ * Each cycle is locked on its own, so tailers of different cycles don't contend. Only allocating
+ * and freeing blocks also takes the lock of the index, which is always taken before a cycle's.
+ */
+final class DensePositionIndex implements Closeable {
+    static final int SPACING = Integer.highestOneBit(Integer.getInteger("chronicle.queue.denseIndex.spacing", 64));
+    static final int BLOCK_ENTRIES = 4096;
+    private static final int SPACING_BITS = Integer.numberOfTrailingZeros(SPACING);
+    private static final int BLOCK_BITS = Integer.numberOfTrailingZeros(BLOCK_ENTRIES);
+    private static final long BLOCK_BYTES = BLOCK_ENTRIES * 8L;
+    private static final NativeBytesStore[] NO_BLOCKS = {};
+
+    private final long memoryBudget;
+    private final Map<Integer, Cycle> cycles = new HashMap<>();
+    // orders uses for picking the cycle used least recently, without a lock
+    private final AtomicLong clock = new AtomicLong();
+    // guarded by this
+    private long allocated = 0;
+    private boolean closed = false;
+
+    DensePositionIndex(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    @NotNull
+    synchronized Cycle forCycle(int cycle) {
+        return cycles.computeIfAbsent(cycle, Cycle::new);
+    }
+
+    synchronized long allocatedBytes() {
+        return allocated;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Cycle cycle : cycles.values())
+            free(cycle);
+        cycles.clear();
+    }
+
+    private void free(@NotNull Cycle cycle) {
+        synchronized (cycle) {
+            for (NativeBytesStore block : cycle.blocks) {
+                if (block != null) {
+                    block.release();
+                    allocated -= BLOCK_BYTES;
+                }
+            }
+            cycle.blocks = NO_BLOCKS;
+        }
+    }
+
+    /**
+     * @return whether there is room for another block, once cycles other than {@code using} have
+     * been freed if need be.
+     */
+    private boolean makeRoom(@NotNull Cycle using) {
+        while (allocated + BLOCK_BYTES > memoryBudget) {
+            Cycle eldest = null;
+            for (Cycle cycle : cycles.values()) {
+                if (cycle != using && cycle.blocks.length > 0 && (eldest == null || cycle.lastUsed < eldest.lastUsed))
+                    eldest = cycle;
+            }
+            if (eldest == null)
+                return false;
+            free(eldest);
+        }
+        return true;
+    }
+
+    final class Cycle {
+        final int cycle;
+        // replaced while holding this, read without it only to pick a cycle to free
+        @NotNull
+        volatile NativeBytesStore[] blocks = NO_BLOCKS;
+        volatile long lastUsed;
+
+        Cycle(int cycle) {
+            this.cycle = cycle;
+        }
+
+        /**
+         * Record the position of the header of excerpt {@code sequence}, a multiple of
+         * {@link #SPACING}.
+         */
+        void record(long sequence, long position) {
+            assert (sequence & (SPACING - 1)) == 0;
+            final long entry = sequence >>> SPACING_BITS;
+            final int blockIndex = Math.toIntExact(entry >>> BLOCK_BITS);
+            final long offset = (entry & (BLOCK_ENTRIES - 1)) << 3;
+            lastUsed = clock.incrementAndGet();
+            if (writeIfAllocated(blockIndex, offset, position))
+                return;
+            synchronized (DensePositionIndex.this) {
+                if (closed)
+                    return;
+                // another tailer may have allocated it meanwhile
+                if (writeIfAllocated(blockIndex, offset, position) || !makeRoom(this))
+                    return;
+                synchronized (this) {
+                    NativeBytesStore[] blocks = this.blocks;
+                    if (blockIndex >= blocks.length) {
+                        final NativeBytesStore[] grown = new NativeBytesStore[Math.max(blockIndex + 1, blocks.length * 2)];
+                        System.arraycopy(blocks, 0, grown, 0, blocks.length);
+                        this.blocks = blocks = grown;
+                    }
+                    final NativeBytesStore block = NativeBytesStore.nativeStoreWithFixedCapacity(BLOCK_BYTES);
+                    block.zeroOut(0, BLOCK_BYTES);
+                    blocks[blockIndex] = block;
+                    allocated += BLOCK_BYTES;
+                    block.writeLong(offset, position);
+                }
+            }
+        }
+
+        private synchronized boolean writeIfAllocated(int blockIndex, long offset, long position) {
+            final NativeBytesStore[] blocks = this.blocks;
+            if (blockIndex >= blocks.length || blocks[blockIndex] == null)
+                return false;
+            blocks[blockIndex].writeLong(offset, position);
+            return true;
+        }
+
+        /**
+         * Find the nearest recorded excerpt at or before {@code sequence} and after
+         * {@code afterSequence}.
+         *
+         * @return its sequence and position, as {@code [sequence, position]} in {@code result}, or
+         * false if there is none.
+         */
+        boolean floor(long sequence, long afterSequence, @NotNull long[] result) {
+            synchronized (this) {
+                final NativeBytesStore[] blocks = this.blocks;
+                if (blocks.length == 0)
+                    return false;
+                lastUsed = clock.incrementAndGet();
+                for (long entry = sequence >>> SPACING_BITS; entry << SPACING_BITS > afterSequence; entry--) {
+                    final long blockIndex = entry >>> BLOCK_BITS;
+                    if (blockIndex >= blocks.length) {
+                        // skip to the end of the last block
+                        entry = (long) blocks.length << BLOCK_BITS;
+                        continue;
+                    }
+                    final NativeBytesStore block = blocks[(int) blockIndex];
+                    if (block == null) {
+                        // skip to the end of the previous block
+                        entry &= ~(BLOCK_ENTRIES - 1L);
+                        continue;
+                    }
+                    final long position = block.readLong((entry & (BLOCK_ENTRIES - 1)) << 3);
+                    if (position != 0) {
+                        result[0] = entry << SPACING_BITS;
+                        result[1] = position;
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+    }
+}
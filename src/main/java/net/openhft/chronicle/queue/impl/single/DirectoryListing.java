@@ -14,6 +14,12 @@ public interface DirectoryListing extends Closeable {
 
     void onFileCreated(File file, int cycle);
 
+    /**
+     * Called before the files of the cycles before {@code cycle} are deleted, so the listing
+     * starts from it.
+     */
+    void onCyclesRemovedBefore(int cycle);
+
     int getMaxCreatedCycle();
 
     int getMinCreatedCycle();
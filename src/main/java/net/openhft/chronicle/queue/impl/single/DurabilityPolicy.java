@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * When a queue forces what has been written to it out to disk, rather than leaving it to the OS.
+ * <p>
+ * Syncing is done by a background thread, one sync covering everything written since the last,
+ * so appenders never wait on the disk. {@link SingleChronicleQueue#durableIndex()} gives the index
+ * up to which excerpts are known to be on disk.
+ */
+public final class DurabilityPolicy {
+    public static final DurabilityPolicy NONE = new DurabilityPolicy(Mode.NONE, 0);
+
+    @NotNull
+    private final Mode mode;
+    private final long interval;
+
+    private DurabilityPolicy(@NotNull Mode mode, long interval) {
+        this.mode = mode;
+        this.interval = interval;
+    }
+
+    /**
+     * @return a policy to sync whatever has been written every {@code millis} milliseconds.
+     */
+    @NotNull
+    public static DurabilityPolicy everyMillis(long millis) {
+        if (millis <= 0)
+            throw new IllegalArgumentException("millis must be positive, was " + millis);
+        return new DurabilityPolicy(Mode.PERIODIC, millis);
+    }
+
+    /**
+     * @return a policy to sync once at least {@code bytes} bytes have been written since the last
+     * sync, or the queue has rolled.
+     */
+    @NotNull
+    public static DurabilityPolicy everyBytes(long bytes) {
+        if (bytes <= 0)
+            throw new IllegalArgumentException("bytes must be positive, was " + bytes);
+        return new DurabilityPolicy(Mode.BYTES, bytes);
+    }
+
+    /**
+     * @return a policy to sync only when {@link SingleChronicleQueue#sync()} is called.
+     */
+    @NotNull
+    public static DurabilityPolicy onDemand() {
+        return new DurabilityPolicy(Mode.ON_DEMAND, 0);
+    }
+
+    @NotNull
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * @return the milliseconds between syncs for {@link Mode#PERIODIC}, the bytes between syncs for
+     * {@link Mode#BYTES}, otherwise 0.
+     */
+    public long interval() {
+        return interval;
+    }
+
+    @Override
+    public String toString() {
+        return "DurabilityPolicy{" +
+                "mode=" + mode +
+                ", interval=" + interval +
+                '}';
+    }
+
+    public enum Mode {
+        NONE, PERIODIC, BYTES, ON_DEMAND
+    }
+}
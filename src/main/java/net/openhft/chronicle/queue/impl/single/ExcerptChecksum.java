@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.UnsafeMemory;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Constructor;
+import java.util.function.Supplier;
+import java.util.zip.Checksum;
+
+/**
+ * The CRC32C of an excerpt, when the queue has {@link SingleChronicleQueueBuilder#checksums(boolean)}
+ * set. It's kept in the first four bytes of each data excerpt, ahead of the payload, and covers
+ * the rest of the excerpt, including any padding. Metadata excerpts don't have one.
+ * <p>
+ * {@code java.util.zip.CRC32C}, which the JVM accelerates with the CPU's CRC32 instructions, is
+ * used from Java 9 on. On Java 8 the same checksum is calculated a byte at a time, so a queue can
+ * be written and read on either.
+ */
+final class ExcerptChecksum {
+    static final int SIZE = 4;
+    private static final Supplier<Checksum> CRC32C = crc32c();
+    private static final long BYTE_ARRAY_OFFSET = UnsafeMemory.UNSAFE.arrayBaseOffset(byte[].class);
+
+    private final Checksum crc = CRC32C.get();
+    // the payload is copied out a piece at a time, as Java 8's Checksum only takes a byte[]
+    private final byte[] buffer = new byte[4 << 10];
+
+    @NotNull
+    private static Supplier<Checksum> crc32c() {
+        try {
+            final Constructor<?> constructor = Class.forName("java.util.zip.CRC32C").getConstructor();
+            constructor.newInstance();
+            return () -> {
+                try {
+                    return (Checksum) constructor.newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new AssertionError(e);
+                }
+            };
+        } catch (ReflectiveOperationException java8) {
+            return Crc32C::new;
+        }
+    }
+
+    /**
+     * @return the checksum of the bytes from {@code from} to {@code to}
+     */
+    int checksum(@NotNull Bytes<?> bytes, long from, long to) {
+        crc.reset();
+        for (long position = from; position < to; ) {
+            final int length = (int) Math.min(buffer.length, to - position);
+            UnsafeMemory.UNSAFE.copyMemory(null, bytes.addressForRead(position, length), buffer, BYTE_ARRAY_OFFSET, length);
+            crc.update(buffer, 0, length);
+            position += length;
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @param from the start of the excerpt, where its checksum is
+     * @param to   the end of the excerpt
+     * @return whether the checksum matches the rest of the excerpt
+     */
+    boolean matches(@NotNull Bytes<?> bytes, long from, long to) {
+        return to - from >= SIZE && bytes.readInt(from) == checksum(bytes, from + SIZE, to);
+    }
+
+    /**
+     * CRC32C, as {@code java.util.zip.CRC32C} calculates it, for Java 8.
+     */
+    static final class Crc32C implements Checksum {
+        private static final int[] TABLE = new int[256];
+
+        static {
+            for (int i = 0; i < TABLE.length; i++) {
+                int crc = i;
+                for (int bit = 0; bit < 8; bit++)
+                    crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x82F63B78 : crc >>> 1;
+                TABLE[i] = crc;
+            }
+        }
+
+        private int crc = 0xFFFFFFFF;
+
+        @Override
+        public void update(int b) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            int crc = this.crc;
+            for (int i = off, end = off + len; i < end; i++)
+                crc = (crc >>> 8) ^ TABLE[(crc ^ b[i]) & 0xFF];
+            this.crc = crc;
+        }
+
+        @Override
+        public long getValue() {
+            return ~crc & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public void reset() {
+            crc = 0xFFFFFFFF;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.values.LongValue;
+import net.openhft.chronicle.queue.impl.TableStore;
+import net.openhft.chronicle.queue.impl.table.SingleTableBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+
+import static net.openhft.chronicle.core.io.Closeable.closeQuietly;
+
+/**
+ * How the excerpts of a queue are encoded. This is kept in the queue's metadata when it is created,
+ * so a queue opened with a different codec is refused, and one opened without a codec is read with
+ * the codec it was written with where that needs nothing only the writer knows.
+ */
+public enum ExcerptCodec {
+    NONE(0),
+    LZ4(1),
+    DEFLATE(2),
+    // the dictionary isn't kept, so these are only read by a queue given the same codec
+    DEFLATE_WITH_DICTIONARY(3),
+    CUSTOM(4);
+
+    static final String CODEC_KEY = "chronicle.queue.codec";
+
+    private final long id;
+
+    ExcerptCodec(long id) {
+        this.id = id;
+    }
+
+    long id() {
+        return id;
+    }
+
+    @NotNull
+    static ExcerptCodec forId(long id) {
+        // a key added but never set, e.g. by a writer which then found the queue wasn't new
+        if (id == Long.MIN_VALUE)
+            return NONE;
+        for (ExcerptCodec codec : values())
+            if (codec.id == id)
+                return codec;
+        throw new IllegalStateException("Unknown excerpt codec " + id + ", the queue was written by a later version");
+    }
+
+    /**
+     * @return whether a queue opened without a codec can read and write excerpts with this one.
+     */
+    boolean isImplied() {
+        return this == LZ4 || this == DEFLATE;
+    }
+
+    @Nullable
+    Supplier<BiConsumer<BytesStore, Bytes>> encodingSupplier() {
+        switch (this) {
+            case LZ4:
+                return LZ4BlockCodec.encodingSupplier();
+            case DEFLATE:
+                return DeflateCodec.encodingSupplier(null, Deflater.DEFAULT_COMPRESSION);
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    Supplier<BiConsumer<BytesStore, Bytes>> decodingSupplier() {
+        switch (this) {
+            case LZ4:
+                return LZ4BlockCodec.decodingSupplier();
+            case DEFLATE:
+                return DeflateCodec.decodingSupplier(null);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the codec recorded in a queue's metadata, without writing to it.
+     */
+    @NotNull
+    static ExcerptCodec recordedIn(@NotNull TableStore tableStore) {
+        final LongValue value = tableStore.acquireExistingValueFor(CODEC_KEY);
+        if (value == null)
+            return NONE;
+        try {
+            return forId(value.getVolatileValue());
+        } finally {
+            closeQuietly(value);
+        }
+    }
+
+    /**
+     * @return the codec recorded in the metadata of the queue in {@code queueDir}, or {@link #NONE}
+     * if it has no metadata.
+     */
+    @NotNull
+    public static ExcerptCodec recordedIn(@NotNull File queueDir) {
+        final File listingFile = SingleChronicleQueue.existingDirectoryListingPath(queueDir);
+        if (!listingFile.exists())
+            return NONE;
+        final TableStore tableStore = SingleTableBuilder.binary(listingFile).readOnly(true).build();
+        try {
+            return recordedIn(tableStore);
+        } finally {
+            closeQuietly(tableStore);
+        }
+    }
+}
@@ -28,10 +28,14 @@ final class FileSystemDirectoryListing implements DirectoryListing {
     public void onFileCreated(final File file, final int cycle) {
     }
 
+    @Override
+    public void onCyclesRemovedBefore(final int cycle) {
+    }
+
     @Override
     public int getMaxCreatedCycle() {
         int maxCycle = Integer.MIN_VALUE;
-        final File[] files = queueDir.listFiles((d, n) -> n.endsWith(SingleChronicleQueue.SUFFIX));
+        final File[] files = queueDir.listFiles((d, n) -> CycleArchive.isCycleFile(n));
         if (files != null) {
             for (File file : files) {
                 maxCycle = Math.max(maxCycle, fileToCycleFunction.applyAsInt(file));
@@ -43,7 +47,7 @@ final class FileSystemDirectoryListing implements DirectoryListing {
     @Override
     public int getMinCreatedCycle() {
         int minCycle = Integer.MAX_VALUE;
-        final File[] files = queueDir.listFiles((d, n) -> n.endsWith(SingleChronicleQueue.SUFFIX));
+        final File[] files = queueDir.listFiles((d, n) -> CycleArchive.isCycleFile(n));
         if (files != null) {
             for (File file : files) {
                 minCycle = Math.min(minCycle, fileToCycleFunction.applyAsInt(file));
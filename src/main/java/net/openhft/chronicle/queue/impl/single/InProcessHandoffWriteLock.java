@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014-2018 Chronicle Software
+ *
+ * http://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link WriteLock} for many appender threads in one process. Threads in this process queue on a
+ * local lock, and only the holder of the local lock touches the cross-process lock. When the
+ * holder unlocks and another local thread is waiting, the cross-process lock is handed over
+ * without being released, up to {@code maxHandoffs} times in a row so other processes still get a
+ * turn.
+ * <p>
+ * It isn't reentrant, as the cross-process lock is held once however many times a thread locks
+ * this, so locking it again from the thread which holds it fails.
+ */
+public class InProcessHandoffWriteLock implements WriteLock {
+    @NotNull
+    private final WriteLock crossProcessLock;
+    private final int maxHandoffs;
+    private final ReentrantLock localLock = new ReentrantLock();
+    private final AtomicInteger waiting = new AtomicInteger();
+    // guarded by localLock
+    private boolean crossProcessLockHeld = false;
+    private int handoffs = 0;
+
+    public InProcessHandoffWriteLock(@NotNull WriteLock crossProcessLock, int maxHandoffs) {
+        if (maxHandoffs < 1)
+            throw new IllegalArgumentException("maxHandoffs must be positive, was " + maxHandoffs);
+        this.crossProcessLock = crossProcessLock;
+        this.maxHandoffs = maxHandoffs;
+    }
+
+    @Override
+    public void lock() {
+        if (localLock.isHeldByCurrentThread())
+            throw new IllegalStateException("The write lock is already held by this thread, and isn't reentrant");
+        waiting.incrementAndGet();
+        localLock.lock();
+        waiting.decrementAndGet();
+        if (crossProcessLockHeld)
+            return;
+        try {
+            crossProcessLock.lock();
+        } catch (RuntimeException e) {
+            localLock.unlock();
+            throw e;
+        }
+        crossProcessLockHeld = true;
+        handoffs = 0;
+    }
+
+    @Override
+    public void unlock() {
+        if (!localLock.isHeldByCurrentThread())
+            throw new IllegalStateException("Can't unlock when lock is not held by this thread");
+        try {
+            if (waiting.get() > 0 && handoffs++ < maxHandoffs)
+                return;
+            crossProcessLockHeld = false;
+            crossProcessLock.unlock();
+        } finally {
+            localLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean locked() {
+        return crossProcessLock.locked();
+    }
+
+    @Override
+    public boolean takenOver() {
+        return crossProcessLock.takenOver();
+    }
+
+    @Override
+    public void recovered() {
+        crossProcessLock.recovered();
+    }
+
+    @Override
+    public void close() {
+        crossProcessLock.close();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A fast excerpt codec using the LZ4 block format, preceded by a 4 byte uncompressed length.
+ * <p>
+ * Each instance holds its own hash table and is not thread safe; the suppliers create one per
+ * appender or tailer. Neither direction allocates once the destination has grown to size, and the
+ * source is read in place, so excerpts are compressed straight out of a buffer and decompressed
+ * straight out of the mapped file.
+ */
+public final class LZ4BlockCodec {
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 0xFFFF;
+    private static final int HASH_LOG = 12;
+    private static final int SKIP_TRIGGER = 6;
+
+    // positions are stored relative to a base which moves on for each excerpt, so the table
+    // doesn't need to be cleared between excerpts.
+    private final int[] hashTable = new int[1 << HASH_LOG];
+    private int tableBase = 0;
+    private long readPosition;
+
+    @NotNull
+    public static Supplier<BiConsumer<BytesStore, Bytes>> encodingSupplier() {
+        return () -> new LZ4BlockCodec()::compress;
+    }
+
+    @NotNull
+    public static Supplier<BiConsumer<BytesStore, Bytes>> decodingSupplier() {
+        return () -> new LZ4BlockCodec()::decompress;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static void writeLength(@NotNull Bytes out, int length) {
+        while (length >= 255) {
+            out.writeUnsignedByte(255);
+            length -= 255;
+        }
+        out.writeUnsignedByte(length);
+    }
+
+    private static void writeSequence(@NotNull Bytes out, @NotNull BytesStore in, long literalStart, int literals,
+                                      int offset, int matchLength) {
+        final long tokenPosition = out.writePosition();
+        out.writeUnsignedByte(0);
+        int token;
+        if (literals >= 15) {
+            token = 0xF0;
+            writeLength(out, literals - 15);
+        } else {
+            token = literals << 4;
+        }
+        out.write(in, literalStart, literals);
+        if (matchLength > 0) {
+            out.writeUnsignedByte(offset & 0xFF);
+            out.writeUnsignedByte(offset >>> 8);
+            int length = matchLength - MIN_MATCH;
+            if (length >= 15) {
+                token |= 0xF;
+                writeLength(out, length - 15);
+            } else {
+                token |= length;
+            }
+        }
+        out.writeUnsignedByte(tokenPosition, token);
+    }
+
+    /**
+     * Compress the readable bytes of {@code in}, without moving its read position, appending the
+     * result to {@code out}.
+     */
+    public void compress(@NotNull BytesStore in, @NotNull Bytes out) {
+        final long base = in.readPosition();
+        final int length = Math.toIntExact(in.readRemaining());
+        out.writeInt(length);
+        if (length < MF_LIMIT + 1) {
+            writeSequence(out, in, base, length, 0, 0);
+            return;
+        }
+        if (tableBase > Integer.MAX_VALUE - length - 1) {
+            Arrays.fill(hashTable, 0);
+            tableBase = 0;
+        }
+        final int tableOffset = tableBase + 1;
+        tableBase += length + 1;
+
+        final int matchLimit = length - LAST_LITERALS;
+        final int mfLimit = length - MF_LIMIT;
+        int anchor = 0;
+        int ip = 0;
+        int searchCount = 1 << SKIP_TRIGGER;
+        while (ip < mfLimit) {
+            final int sequence = in.readInt(base + ip);
+            final int h = hash(sequence);
+            final int ref = hashTable[h] - tableOffset;
+            hashTable[h] = ip + tableOffset;
+            if (ref < 0 || ip - ref > MAX_DISTANCE || in.readInt(base + ref) != sequence) {
+                ip += searchCount++ >>> SKIP_TRIGGER;
+                continue;
+            }
+            searchCount = 1 << SKIP_TRIGGER;
+
+            int matchEnd = ip + MIN_MATCH;
+            int refEnd = ref + MIN_MATCH;
+            while (matchEnd < matchLimit && in.readByte(base + matchEnd) == in.readByte(base + refEnd)) {
+                matchEnd++;
+                refEnd++;
+            }
+            // extend backwards over literals not yet written
+            int start = ip, match = ref;
+            while (start > anchor && match > 0 && in.readByte(base + start - 1) == in.readByte(base + match - 1)) {
+                start--;
+                match--;
+            }
+
+            writeSequence(out, in, base + anchor, start - anchor, ip - ref, matchEnd - start);
+            ip = matchEnd;
+            anchor = ip;
+        }
+        writeSequence(out, in, base + anchor, length - anchor, 0, 0);
+    }
+
+    /**
+     * Decompress the readable bytes of {@code in}, without moving its read position, appending the
+     * result to {@code out}.
+     *
+     * @throws IllegalStateException if {@code in} is not a valid compressed excerpt.
+     */
+    public void decompress(@NotNull BytesStore in, @NotNull Bytes out) {
+        readPosition = in.readPosition();
+        final long end = readPosition + in.readRemaining();
+        final int length = in.readInt(readPosition);
+        readPosition += 4;
+        final long outStart = out.writePosition();
+        out.ensureCapacity(outStart + length);
+        while (readPosition < end) {
+            final int token = in.readUnsignedByte(readPosition++);
+            final int literals = readLength(in, token >>> 4);
+            out.write(in, readPosition, literals);
+            readPosition += literals;
+            if (readPosition >= end)
+                break;
+
+            final int offset = in.readUnsignedByte(readPosition) | (in.readUnsignedByte(readPosition + 1) << 8);
+            readPosition += 2;
+            final int matchLength = readLength(in, token & 0xF) + MIN_MATCH;
+            final long match = out.writePosition() - offset;
+            if (offset == 0 || match < outStart)
+                throw new IllegalStateException("Corrupt compressed excerpt, offset " + offset + " at " + readPosition);
+            if (offset >= matchLength) {
+                out.write(out, match, matchLength);
+            } else {
+                // an overlapping match repeats the last offset bytes
+                for (int i = 0; i < matchLength; i++)
+                    out.writeByte(out.readByte(match + i));
+            }
+        }
+        if (out.writePosition() - outStart != length)
+            throw new IllegalStateException("Corrupt compressed excerpt, expected " + length + " bytes but got " + (out.writePosition() - outStart));
+    }
+
+    private int readLength(@NotNull BytesStore in, int length) {
+        if (length != 15)
+            return length;
+        int b;
+        do {
+            b = in.readUnsignedByte(readPosition++);
+            length += b;
+        } while (b == 255);
+        return length;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueExcerpts.StoreTailer;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps what a queue's tailers have mapped within the budget given by
+ * {@link SingleChronicleQueueBuilder#mappedBytesBudget(long)}, with counters to tune it by.
+ * <p>
+ * Each tailer holding a cycle counts as one chunk and its overlap, as that's what its wires map
+ * at a time. When a tailer maps a cycle and the queue is over its budget, tailers which aren't in
+ * use are unmapped, least recently mapped first, passing over a tailer read since the last check
+ * once, as in a CLOCK cache. An unmapped tailer remaps its cycle and carries on from the same
+ * index the next time it reads.
+ * <p>
+ * A tailer is only unmapped by the thread which last used it, as tailers aren't thread safe. A
+ * tailer of the thread mapping is unmapped there and then; one of another thread is flagged, and
+ * unmapped by its thread the next time that uses it, and until then counts as unmapped so isn't
+ * looked at again. A tailer handed to another thread is claimed by that thread on its next use,
+ * waiting for an unmapping in progress, so the two can't overlap.
+ */
+public final class MappingBudget {
+    private static final Object UNMAPPING = new Object();
+
+    private final long budgetBytes;
+    private final long bytesPerTailer;
+    private final AtomicLong mappedBytes = new AtomicLong();
+    // mapped by tailers flagged to be unmapped by their threads
+    private final AtomicLong flaggedBytes = new AtomicLong();
+    private final AtomicLong maps = new AtomicLong();
+    private final AtomicLong unmaps = new AtomicLong();
+    private final AtomicLong remaps = new AtomicLong();
+    // the tailers which have mapped, least recently mapped first
+    private final LinkedHashSet<Lease> leases = new LinkedHashSet<>();
+
+    MappingBudget(long budgetBytes, long bytesPerTailer) {
+        this.budgetBytes = budgetBytes;
+        this.bytesPerTailer = bytesPerTailer;
+    }
+
+    @NotNull
+    Lease lease(@NotNull StoreTailer tailer) {
+        return new Lease(tailer);
+    }
+
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * @return an estimate of the bytes the queue's tailers have mapped
+     */
+    public long mappedBytes() {
+        return mappedBytes.get();
+    }
+
+    /**
+     * @return how many times a tailer has mapped a cycle, including remaps
+     */
+    public long maps() {
+        return maps.get();
+    }
+
+    /**
+     * @return how many times a tailer was unmapped to keep within the budget
+     */
+    public long unmaps() {
+        return unmaps.get();
+    }
+
+    /**
+     * @return how many times an unmapped tailer has mapped its cycle again
+     */
+    public long remaps() {
+        return remaps.get();
+    }
+
+    private boolean overBudget() {
+        return mappedBytes.get() - flaggedBytes.get() > budgetBytes;
+    }
+
+    private void mapped(@NotNull Lease current) {
+        maps.incrementAndGet();
+        mappedBytes.addAndGet(bytesPerTailer);
+        synchronized (leases) {
+            // most recently mapped last
+            leases.remove(current);
+            leases.add(current);
+            if (overBudget())
+                unmapColdest(current);
+        }
+    }
+
+    private void unmapColdest(@NotNull Lease current) {
+        assert Thread.holdsLock(leases);
+        final Thread thread = Thread.currentThread();
+        // a second pass unmaps those passed over for having been read
+        for (int pass = 0; pass < 2 && overBudget(); pass++) {
+            for (Iterator<Lease> it = leases.iterator(); it.hasNext() && overBudget(); ) {
+                final Lease lease = it.next();
+                if (lease == current || lease.flagged)
+                    continue;
+                final StoreTailer tailer = lease.tailer.get();
+                if (tailer == null || !lease.holding) {
+                    // dropped, or not mapped
+                    it.remove();
+                    if (tailer == null)
+                        lease.held(false);
+                    continue;
+                }
+                if (lease.used) {
+                    lease.used = false;
+                    continue;
+                }
+                final Object owner = lease.owner.get();
+                if (owner != thread) {
+                    // left for its thread to unmap
+                    if (owner != UNMAPPING) {
+                        lease.flagged = true;
+                        flaggedBytes.addAndGet(bytesPerTailer);
+                    }
+                    continue;
+                }
+                if (!lease.owner.compareAndSet(thread, UNMAPPING))
+                    continue;
+                try {
+                    if (tailer.unmap()) {
+                        unmaps.incrementAndGet();
+                        it.remove();
+                    }
+                } finally {
+                    lease.owner.set(thread);
+                }
+            }
+        }
+    }
+
+    /**
+     * What one tailer has mapped, and which thread may unmap it.
+     */
+    final class Lease {
+        private final WeakReference<StoreTailer> tailer;
+        private final AtomicReference<Object> owner = new AtomicReference<>();
+        // only changed by the owner
+        private boolean holding = false;
+        // set on each use, cleared when passed over
+        private volatile boolean used = true;
+        // set by another thread for the owner to unmap this on its next use
+        private volatile boolean flagged = false;
+
+        private Lease(@NotNull StoreTailer tailer) {
+            this.tailer = new WeakReference<>(tailer);
+        }
+
+        /**
+         * Called by the tailer before it reads or moves.
+         */
+        void use() {
+            used = true;
+            if (owner.get() != Thread.currentThread())
+                claim();
+            if (flagged)
+                unmapFlagged();
+        }
+
+        private void claim() {
+            final Thread thread = Thread.currentThread();
+            while (true) {
+                final Object previous = owner.get();
+                if (previous == UNMAPPING)
+                    Thread.yield();
+                else if (owner.compareAndSet(previous, thread))
+                    return;
+            }
+        }
+
+        private void unmapFlagged() {
+            synchronized (leases) {
+                if (!flagged)
+                    return;
+                flagged = false;
+                flaggedBytes.addAndGet(-bytesPerTailer);
+                final StoreTailer tailer = this.tailer.get();
+                if (tailer != null && holding && tailer.unmap()) {
+                    unmaps.incrementAndGet();
+                    leases.remove(this);
+                }
+            }
+        }
+
+        /**
+         * Called by the tailer when it acquires or releases a cycle.
+         */
+        void held(boolean holding) {
+            if (this.holding == holding)
+                return;
+            this.holding = holding;
+            if (holding) {
+                mapped(this);
+            } else {
+                mappedBytes.addAndGet(-bytesPerTailer);
+                if (flagged)
+                    unflag();
+            }
+        }
+
+        private void unflag() {
+            synchronized (leases) {
+                if (flagged) {
+                    flagged = false;
+                    flaggedBytes.addAndGet(-bytesPerTailer);
+                }
+            }
+        }
+
+        void remapped() {
+            remaps.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.queue.impl.StoreFileListener;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops the pages of consumed cycles from the page cache, from a background thread, when the
+ * queue has {@link SingleChronicleQueueBuilder#evictConsumedCycles(boolean)} set.
+ * <p>
+ * A cycle this process releases is evicted once it is before the current cycle and every
+ * registered consumer has read past it; until then it is checked again on each release, and
+ * every {@code chronicle.queue.evict.checkMs}. The kernel keeps the pages of a mapped file, so
+ * the queue's mapping of it is closed first, and a cycle still held in this process is left.
+ * <p>
+ * The JDK has no way to call {@code posix_fadvise}, so the advice is given with
+ * {@code dd iflag=nocache count=0}, which is how coreutils exposes
+ * {@code POSIX_FADV_DONTNEED} for a whole file. This forks once per cycle, and is only done on
+ * Linux; elsewhere nothing is evicted.
+ */
+final class PageCacheEvictor implements StoreFileListener {
+    private static final Logger LOG = LoggerFactory.getLogger(PageCacheEvictor.class);
+    private static final long CHECK_INTERVAL_MS = Long.getLong("chronicle.queue.evict.checkMs", 1000);
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    @NotNull
+    private final StoreFileListener listener;
+    @NotNull
+    private final ScheduledExecutorService service;
+    // cycles released but not evicted yet, only used on the background thread
+    private final Map<Integer, File> pending = new TreeMap<>();
+    private volatile long cyclesEvicted = 0;
+    private volatile long bytesEvicted = 0;
+
+    PageCacheEvictor(@NotNull SingleChronicleQueue queue, @NotNull StoreFileListener listener) {
+        this.queue = queue;
+        this.listener = listener;
+        this.service = Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory(queue.file().getName() + "-evictor", true));
+    }
+
+    void start() {
+        service.scheduleWithFixedDelay(this::evictConsumed, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onAcquired(int cycle, File file) {
+        listener.onAcquired(cycle, file);
+    }
+
+    @Override
+    public void onReleased(int cycle, File file) {
+        listener.onReleased(cycle, file);
+        try {
+            service.execute(() -> {
+                pending.put(cycle, file);
+                evictConsumed();
+            });
+        } catch (RejectedExecutionException closing) {
+            // the queue is being closed
+        }
+    }
+
+    private void evictConsumed() {
+        if (pending.isEmpty())
+            return;
+        try {
+            final int before = Math.min(queue.cycle(), queue.slowestConsumerCycle());
+            for (Iterator<Map.Entry<Integer, File>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+                final Map.Entry<Integer, File> entry = it.next();
+                if (entry.getKey() >= before)
+                    break;
+                final File file = entry.getValue();
+                // a cycle which has been archived or deleted since has no pages to evict
+                final long length = file.length();
+                if (!file.exists()) {
+                    it.remove();
+                } else if (queue.closeCycleMapping(file)) {
+                    it.remove();
+                    if (dropFromPageCache(file)) {
+                        cyclesEvicted++;
+                        bytesEvicted += length;
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            LOG.warn("Unable to evict cycles of " + queue.file() + " from the page cache", t);
+        }
+    }
+
+    /**
+     * @return whether the advice was given
+     */
+    static boolean dropFromPageCache(@NotNull File file) {
+        if (!OS.isLinux())
+            return false;
+        try {
+            final Process process = new ProcessBuilder("dd", "if=" + file.getAbsolutePath(),
+                    "iflag=nocache", "count=0", "status=none")
+                    .redirectErrorStream(true)
+                    .start();
+            // read what dd says until it exits, so it can't block on a full pipe
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (InputStream in = process.getInputStream()) {
+                final byte[] buffer = new byte[256];
+                for (int n; (n = in.read(buffer)) >= 0; )
+                    output.write(buffer, 0, n);
+            }
+            if (process.waitFor() == 0)
+                return true;
+            LOG.warn("Unable to evict " + file + " from the page cache, dd exited with " + process.exitValue() +
+                    ": " + new String(output.toByteArray(), StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            LOG.warn("Unable to evict " + file + " from the page cache", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    long cyclesEvicted() {
+        return cyclesEvicted;
+    }
+
+    long bytesEvicted() {
+        return bytesEvicted;
+    }
+
+    void close(long timeoutMS) {
+        service.shutdown();
+        try {
+            if (service.awaitTermination(timeoutMS, TimeUnit.MILLISECONDS))
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.warn("Timed out waiting for the page cache evictor of " + queue.file());
+    }
+}
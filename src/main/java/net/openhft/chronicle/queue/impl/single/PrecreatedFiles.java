@@ -9,13 +9,17 @@ public enum PrecreatedFiles {
 
     private static final String PRE_CREATED_FILE_SUFFIX = ".precreated";
 
-    public static void renamePreCreatedFileToRequiredFile(final File requiredQueueFile) {
+    /**
+     * @return whether a pre-created file was renamed to {@code requiredQueueFile}
+     */
+    public static boolean renamePreCreatedFileToRequiredFile(final File requiredQueueFile) {
         final File preCreatedFile = preCreatedFile(requiredQueueFile);
         if (preCreatedFile.exists()) {
-            if (!preCreatedFile.renameTo(requiredQueueFile)) {
-                Jvm.warn().on(PrecreatedFiles.class, "Failed to rename pre-created queue file");
-            }
+            if (preCreatedFile.renameTo(requiredQueueFile))
+                return true;
+            Jvm.warn().on(PrecreatedFiles.class, "Failed to rename pre-created queue file");
         }
+        return false;
     }
 
     public static File preCreatedFileForStoreFile(final File requiredStoreFile) {
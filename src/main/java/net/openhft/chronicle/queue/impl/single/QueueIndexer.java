@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.TailerDirection;
+import net.openhft.chronicle.queue.impl.WireStore;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.threads.Pauser;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.Wires;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.StreamCorruptedException;
+import java.text.ParseException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static net.openhft.chronicle.queue.impl.single.SingleChronicleQueueExcerpts.StoreTailer;
+
+/**
+ * Adds excerpts to the index from a background thread when the queue has
+ * {@link SingleChronicleQueueBuilder#deferredIndexing(boolean)} set.
+ * <p>
+ * It scans the excerpts from the last one indexed, recording every {@code indexSpacing}th. Filling
+ * in an existing secondary index doesn't need the write lock, as only the indexer writes to it and
+ * the value written for a sequence number never changes, but writing a new secondary index appends
+ * to the queue, so that is done holding the write lock.
+ */
+final class QueueIndexer {
+    private static final Logger LOG = LoggerFactory.getLogger(QueueIndexer.class);
+    private static final int MAX_SCAN = Integer.getInteger("chronicle.queue.indexer.maxScan", 4096);
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean closing = false;
+
+    // only used on the indexer thread
+    @Nullable
+    private StoreTailer tailer;
+    private int cycle = Integer.MIN_VALUE;
+    private long sequenceNumber;
+
+    QueueIndexer(@NotNull SingleChronicleQueue queue) {
+        this.queue = queue;
+    }
+
+    void start() {
+        ExecutorService service = Executors.newSingleThreadExecutor(
+                new NamedThreadFactory(queue.file().getName() + "-indexer", true));
+        service.execute(this::runLoop);
+        service.shutdown(); // stop when the task exits.
+    }
+
+    private void runLoop() {
+        Pauser pauser = Pauser.millis(1, 10);
+        try {
+            while (!closing) {
+                if (indexSome())
+                    pauser.reset();
+                else
+                    pauser.pause();
+            }
+            // catch up with everything written before the close
+            while (indexSome()) {
+            }
+        } catch (Throwable t) {
+            LOG.warn("Stopped indexing " + queue.file(), t);
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * @return whether any progress was made.
+     */
+    boolean indexSome() throws StreamCorruptedException, ParseException {
+        if (tailer == null)
+            tailer = new StoreTailer(queue);
+        if (cycle == Integer.MIN_VALUE) {
+            int firstCycle = queue.firstCycle();
+            if (firstCycle == Integer.MAX_VALUE || !startCycle(firstCycle))
+                return false;
+        }
+
+        final WireStore store = tailer.store;
+        final SCQIndexing indexing = ((SingleChronicleQueueStore) store).indexing;
+        final Wire wire = tailer.wire();
+        final Wire wireForIndex = tailer.wireForIndex();
+        final Bytes<?> bytes = wire.bytes();
+        bytes.readLimit(bytes.capacity());
+        for (int i = 0; i < MAX_SCAN; i++) {
+            try {
+                if (!wire.readDataHeader())
+                    return i > 0;
+            } catch (EOFException e) {
+                // this cycle is complete, move on to the next one if there is one.
+                int nextCycle = queue.nextCycle(cycle, TailerDirection.FORWARD);
+                return nextCycle != -1 && startCycle(nextCycle);
+            }
+            final long position = bytes.readPosition();
+            final int header = bytes.readVolatileInt();
+            if (Wires.isNotComplete(header)) {
+                bytes.readPosition(position);
+                return i > 0;
+            }
+            sequenceNumber++;
+            if (indexing.indexable(sequenceNumber) && sequenceNumber >= indexing.nextEntryToBeIndexed())
+                index(indexing, wireForIndex, position);
+            bytes.readSkip(Wires.lengthOf(header));
+        }
+        return true;
+    }
+
+    private void index(@NotNull SCQIndexing indexing, @NotNull Wire wireForIndex, long position)
+            throws StreamCorruptedException {
+        if (!indexing.needsNewIndex(wireForIndex, sequenceNumber)) {
+            indexing.setPositionForSequenceNumber(tailer, sequenceNumber, position);
+            return;
+        }
+        final WriteLock writeLock = queue.writeLock();
+        writeLock.lock();
+        try {
+            indexing.setPositionForSequenceNumber(tailer, sequenceNumber, position);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Position the tailer at the last excerpt of {@code cycle} already in the index, or the start
+     * if there are none.
+     */
+    private boolean startCycle(int cycle) {
+        final RollCycle rollCycle = queue.rollCycle();
+        tailer.moveToIndexResult(rollCycle.toIndex(cycle, 0));
+        if (tailer.cycle() != cycle || tailer.store == null)
+            return false;
+        this.cycle = cycle;
+
+        final SCQIndexing indexing = ((SingleChronicleQueueStore) tailer.store).indexing;
+        final long lastIndexed = indexing.nextEntryToBeIndexed() - indexing.indexSpacing();
+        if (lastIndexed >= 0 && tailer.store.moveToIndexForRead(tailer, lastIndexed) == ScanResult.FOUND) {
+            sequenceNumber = lastIndexed - 1;
+        } else {
+            tailer.wire().bytes().readPositionUnlimited(0);
+            sequenceNumber = -1;
+        }
+        return true;
+    }
+
+    /**
+     * Index what has been written so far and stop.
+     */
+    void close(long timeoutMS) {
+        closing = true;
+        try {
+            if (stopped.await(timeoutMS, TimeUnit.MILLISECONDS))
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.warn("Timed out waiting for the indexer of " + queue.file());
+    }
+}
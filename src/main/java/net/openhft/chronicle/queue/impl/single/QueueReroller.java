@@ -0,0 +1,337 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.impl.WireStore;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueExcerpts.StoreTailer;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rewrites a queue which isn't being written to into a new queue with a longer roll cycle, such as
+ * a {@code MINUTELY} queue into a {@code DAILY} one, so there are fewer, larger files to list and
+ * count. The excerpts keep their order, but as their indexes encode the cycle, they get new
+ * indexes.
+ * <p>
+ * Each target cycle is written by one thread, into a queue of its own beside the target, sized
+ * from the source cycles it's made of so it's written without rolling its mapping, and in batches
+ * so the index is built a batch at a time. Its file is then moved into the target, whose metadata
+ * is rebuilt from the files it ends up with. Whether excerpts have checksums is kept, and the
+ * source checksums are checked as the excerpts are copied. The codec excerpts are encoded with is
+ * kept too, each excerpt being decoded as it's read and encoded again as it's written; a queue
+ * encoded with a dictionary or custom codec, which isn't recorded in full, can't be opened to be
+ * rerolled. The source is only read.
+ */
+public final class QueueReroller {
+    private static final Logger LOG = LoggerFactory.getLogger(QueueReroller.class);
+    private static final String STAGING_DIR = ".reroll";
+    private static final int MIN_BLOCK_SIZE = 1 << 20;
+    private static final int MAX_BLOCK_SIZE = 1 << 30;
+
+    @NotNull
+    private final File source;
+    @NotNull
+    private final File target;
+    @NotNull
+    private final RollCycle rollCycle;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 256;
+
+    public QueueReroller(@NotNull File source, @NotNull File target, @NotNull RollCycle rollCycle) {
+        this.source = source;
+        this.target = target;
+        this.rollCycle = rollCycle;
+    }
+
+    /**
+     * @param threads how many target cycles are written at once
+     * @return this
+     */
+    @NotNull
+    public QueueReroller threads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive, was " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param batchSize how many excerpts are written, and indexed, at a time
+     * @return this
+     */
+    @NotNull
+    public QueueReroller batchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be positive, was " + batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    @NotNull
+    public Result reroll() {
+        final String[] existing = target.list();
+        if (existing != null && existing.length > 0)
+            throw new IllegalStateException("The target " + target + " isn't empty");
+
+        try (SingleChronicleQueue sourceQueue = SingleChronicleQueueBuilder.binary(source)
+                .readOnly(true)
+                .verifyChecksums(true)
+                .build()) {
+            final RollCycle sourceRollCycle = sourceQueue.rollCycle();
+            if (rollCycle.length() % sourceRollCycle.length() != 0)
+                throw new IllegalArgumentException("The roll cycle " + rollCycle + " isn't a whole number of " + sourceRollCycle + " cycles");
+            final int cyclesPerTarget = rollCycle.length() / sourceRollCycle.length();
+
+            final TreeMap<Integer, List<Integer>> targetCycles = new TreeMap<>();
+            final int firstCycle = sourceQueue.firstCycle();
+            if (firstCycle != Integer.MAX_VALUE) {
+                for (long cycle : sourceQueue.listCyclesBetween(firstCycle, sourceQueue.lastCycle()))
+                    targetCycles.computeIfAbsent(Math.floorDiv((int) cycle, cyclesPerTarget), c -> new ArrayList<>()).add((int) cycle);
+            }
+            checkTargetCyclesFit(sourceQueue, targetCycles);
+
+            // the metadata is created first, as checksums can only be turned on for a new queue
+            targetBuilder(target, sourceQueue).build().close();
+
+            final long start = System.nanoTime();
+            final AtomicLong excerpts = new AtomicLong();
+            final AtomicLong bytes = new AtomicLong();
+            final File staging = new File(target, STAGING_DIR);
+            final ExecutorService service = Executors.newFixedThreadPool(threads,
+                    new NamedThreadFactory(target.getName() + "-reroll", true));
+            try {
+                final List<Future<?>> futures = new ArrayList<>();
+                final int lastTargetCycle = targetCycles.isEmpty() ? Integer.MIN_VALUE : targetCycles.lastKey();
+                for (Map.Entry<Integer, List<Integer>> entry : targetCycles.entrySet()) {
+                    final boolean last = entry.getKey() == lastTargetCycle;
+                    futures.add(service.submit(() ->
+                            copyCycle(sourceQueue, entry.getKey(), entry.getValue(), last, staging, excerpts, bytes)));
+                }
+                for (Future<?> future : futures)
+                    future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to reroll " + source, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted rerolling " + source, e);
+            } finally {
+                service.shutdownNow();
+                IOTools.deleteDirWithFiles(staging, 20);
+            }
+
+            // rebuilds the listing of cycles from the files moved in
+            try (SingleChronicleQueue targetQueue = targetBuilder(target, sourceQueue).build()) {
+                if (!targetCycles.isEmpty() && targetQueue.lastCycle() != targetCycles.lastKey())
+                    throw new IllegalStateException("The target " + target + " doesn't list the cycles written");
+            }
+
+            final Result result = new Result(targetCycles.values().stream().mapToInt(List::size).sum(),
+                    targetCycles.size(), excerpts.get(), bytes.get(), System.nanoTime() - start);
+            LOG.info("Rerolled " + source + " to " + target + ": " + result);
+            return result;
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Before anything is written, check each target cycle can index all the excerpts merged into
+     * it, rather than failing partway through copying them.
+     */
+    private void checkTargetCyclesFit(@NotNull SingleChronicleQueue sourceQueue, @NotNull Map<Integer, List<Integer>> targetCycles) {
+        final long maxExcerpts = Math.min(rollCycle.toSequenceNumber(-1L) + 1,
+                (long) rollCycle.defaultIndexCount() * rollCycle.defaultIndexCount() * rollCycle.defaultIndexSpacing());
+        for (Map.Entry<Integer, List<Integer>> entry : targetCycles.entrySet()) {
+            long count = 0;
+            for (int cycle : entry.getValue())
+                count += Math.max(0, sourceQueue.exceptsPerCycle(cycle));
+            if (count > maxExcerpts)
+                throw new IllegalArgumentException("The " + count + " excerpts of source cycles " + entry.getValue()
+                        + " don't fit in one " + rollCycle + " cycle, which holds up to " + maxExcerpts);
+        }
+    }
+
+    @NotNull
+    private SingleChronicleQueueBuilder targetBuilder(@NotNull File path, @NotNull SingleChronicleQueue sourceQueue) {
+        return SingleChronicleQueueBuilder.binary(path)
+                .rollCycle(rollCycle)
+                .epoch(sourceQueue.epoch())
+                .checksums(sourceQueue.checksums)
+                .impliedCodec(sourceQueue.codec);
+    }
+
+    private void copyCycle(@NotNull SingleChronicleQueue sourceQueue, int targetCycle, @NotNull List<Integer> sourceCycles,
+                           boolean last, @NotNull File staging, @NotNull AtomicLong excerpts, @NotNull AtomicLong bytes) {
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        final long cycleStartMS = sourceQueue.epoch() + (long) targetCycle * rollCycle.length();
+        timeProvider.currentTimeMillis(cycleStartMS);
+        final File stagingPath = new File(staging, Integer.toString(targetCycle));
+        final File cycleFile;
+        try (SingleChronicleQueue stagingQueue = targetBuilder(stagingPath, sourceQueue)
+                .blockSize(blockSizeFor(sourceQueue, sourceCycles))
+                .timeProvider(timeProvider)
+                .build()) {
+            final Bytes<?>[] batch = new Bytes<?>[batchSize];
+            for (int i = 0; i < batch.length; i++)
+                batch[i] = Bytes.allocateElasticDirect();
+            final StoreTailer tailer = sourceQueue.acquireTailer();
+            try {
+                final ExcerptAppender appender = stagingQueue.acquireAppender();
+                final RollCycle sourceRollCycle = sourceQueue.rollCycle();
+                long copied = 0;
+                long copiedBytes = 0;
+                int count = 0;
+                for (int cycle : sourceCycles) {
+                    if (!tailer.moveToIndex(sourceRollCycle.toIndex(cycle, 0)))
+                        continue;
+                    while (true) {
+                        try (DocumentContext dc = tailer.readingDocument()) {
+                            if (!dc.isPresent())
+                                break;
+                            if (sourceRollCycle.toCycle(dc.index()) != cycle) {
+                                dc.rollbackOnClose();
+                                break;
+                            }
+                            final Bytes<?> payload = dc.wire().bytes();
+                            copiedBytes += payload.readRemaining();
+                            batch[count++].clear().write(payload);
+                        }
+                        if (count == batch.length) {
+                            appender.writeBytes(batch, count);
+                            copied += count;
+                            count = 0;
+                        }
+                    }
+                }
+                appender.writeBytes(batch, count);
+                copied += count;
+                // as the cycle would have been ended, had the queue been written with this roll cycle
+                if (!last && copied > 0) {
+                    timeProvider.currentTimeMillis(cycleStartMS + rollCycle.length());
+                    ((SingleChronicleQueueExcerpts.StoreAppender) appender).writeEndOfCycleIfRequired();
+                }
+                excerpts.addAndGet(copied);
+                bytes.addAndGet(copiedBytes);
+            } finally {
+                tailer.release();
+                for (Bytes<?> b : batch)
+                    b.release();
+            }
+            cycleFile = stagingQueue.cycleFile(targetCycle);
+        }
+        if (!cycleFile.exists())
+            return;
+        try {
+            Files.move(cycleFile.toPath(), new File(target, cycleFile.getName()).toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Big enough to hold the source cycles, so the target cycle is written within one mapping.
+     */
+    private static int blockSizeFor(@NotNull SingleChronicleQueue sourceQueue, @NotNull List<Integer> sourceCycles) {
+        long size = 0;
+        for (int cycle : sourceCycles) {
+            final WireStore store = sourceQueue.storeForCycle(cycle, sourceQueue.epoch(), false);
+            if (store == null)
+                continue;
+            try {
+                size += store.writePosition();
+            } finally {
+                sourceQueue.release(store);
+            }
+        }
+        // room for the last excerpts and the index
+        size += size / 4;
+        return (int) Math.min(MAX_BLOCK_SIZE, OS.pageAlign(Math.max(MIN_BLOCK_SIZE, size)));
+    }
+
+    public static final class Result {
+        private final int sourceCycles;
+        private final int targetCycles;
+        private final long excerpts;
+        private final long bytes;
+        private final long nanos;
+
+        Result(int sourceCycles, int targetCycles, long excerpts, long bytes, long nanos) {
+            this.sourceCycles = sourceCycles;
+            this.targetCycles = targetCycles;
+            this.excerpts = excerpts;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public int sourceCycles() {
+            return sourceCycles;
+        }
+
+        public int targetCycles() {
+            return targetCycles;
+        }
+
+        public long excerpts() {
+            return excerpts;
+        }
+
+        /**
+         * @return the bytes of payload copied
+         */
+        public long bytes() {
+            return bytes;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+
+        public double gbPerSecond() {
+            return nanos == 0 ? 0 : (double) bytes / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return sourceCycles + " cycles into " + targetCycles + ", " + excerpts + " excerpts, "
+                    + bytes + " bytes in " + nanos / 1_000_000 + " ms, "
+                    + String.format("%.3f", gbPerSecond()) + " GB/s";
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueExcerpts.StoreTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Reads the excerpts of a range of indexes, splitting first between cycles and then, within a
+ * cycle, at multiples of the index spacing, where a new tailer can move to without a scan. Each
+ * split reads with its own tailer, which is released once the split has been read, or when
+ * {@link #closeTailers()} is called on the root, for splits which weren't.
+ * <p>
+ * The cycles in the range and the number of excerpts in each are taken when the root is created,
+ * so excerpts appended after that aren't read.
+ */
+final class QueueSpliterator<T> implements Spliterator<T> {
+    static final int MIN_SPLIT = 1024;
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    @NotNull
+    private final Function<DocumentContext, ? extends T> reader;
+    // the cycles with excerpts in the range, and the sequence after the last one in the range of each.
+    @NotNull
+    private final int[] cycles;
+    @NotNull
+    private final long[] ends;
+    // this split reads cycles[lo] from fromSeq to cycles[hi - 1] up to toSeq.
+    private int lo;
+    private final int hi;
+    private long fromSeq;
+    private final long toSeq;
+    @Nullable
+    private StoreTailer tailer;
+    // the tailers of every split of the same root which are still open
+    @NotNull
+    private final Set<StoreTailer> openTailers;
+
+    QueueSpliterator(@NotNull SingleChronicleQueue queue,
+                     @NotNull Function<DocumentContext, ? extends T> reader,
+                     @NotNull int[] cycles,
+                     @NotNull long[] ends,
+                     int lo,
+                     int hi,
+                     long fromSeq,
+                     long toSeq,
+                     @NotNull Set<StoreTailer> openTailers) {
+        this.queue = queue;
+        this.reader = reader;
+        this.cycles = cycles;
+        this.ends = ends;
+        this.lo = lo;
+        this.hi = hi;
+        this.fromSeq = fromSeq;
+        this.toSeq = toSeq;
+        this.openTailers = openTailers;
+    }
+
+    @Override
+    public boolean tryAdvance(@NotNull Consumer<? super T> action) {
+        if (lo >= hi)
+            return false;
+        final RollCycle rollCycle = queue.rollCycle();
+        if (tailer == null) {
+            tailer = (StoreTailer) queue.createTailer();
+            openTailers.add(tailer);
+            if (!tailer.moveToIndex(rollCycle.toIndex(cycles[lo], fromSeq)))
+                throw new IllegalStateException("Unable to move to the start of the range in cycle " + cycles[lo]);
+        }
+        try (DocumentContext dc = tailer.readingDocument()) {
+            if (!dc.isPresent())
+                throw new IllegalStateException("Excerpt " + fromSeq + " of cycle " + cycles[lo] + " was not found");
+            action.accept(reader.apply(dc));
+        }
+        // the tailer moves on to the next cycle by itself, only the count needs to follow it.
+        if (++fromSeq >= (lo == hi - 1 ? toSeq : ends[lo])) {
+            lo++;
+            fromSeq = 0;
+        }
+        if (lo >= hi)
+            closeTailer(tailer);
+        return true;
+    }
+
+    /**
+     * Release the tailers of the splits which haven't been read to the end.
+     */
+    void closeTailers() {
+        for (StoreTailer openTailer : openTailers)
+            closeTailer(openTailer);
+    }
+
+    private void closeTailer(@NotNull StoreTailer openTailer) {
+        // whoever removes it releases it, as the stream may be closed while a split is being read
+        if (openTailers.remove(openTailer)) {
+            openTailer.release();
+            openTailer.releaseResources();
+        }
+    }
+
+    @Nullable
+    @Override
+    public Spliterator<T> trySplit() {
+        if (tailer != null || lo >= hi)
+            return null;
+        if (hi - lo > 1) {
+            final int mid = (lo + hi) >>> 1;
+            final QueueSpliterator<T> prefix =
+                    new QueueSpliterator<>(queue, reader, cycles, ends, lo, mid, fromSeq, ends[mid - 1], openTailers);
+            lo = mid;
+            fromSeq = 0;
+            return prefix;
+        }
+        if (toSeq - fromSeq < 2 * MIN_SPLIT)
+            return null;
+        // split where the index has an entry, indexSpacing being a power of two.
+        final long midSeq = (fromSeq + (toSeq - fromSeq) / 2) & -queue.indexSpacing();
+        if (midSeq <= fromSeq)
+            return null;
+        final QueueSpliterator<T> prefix =
+                new QueueSpliterator<>(queue, reader, cycles, ends, lo, hi, fromSeq, midSeq, openTailers);
+        fromSeq = midSeq;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        if (lo >= hi)
+            return 0;
+        if (hi - lo == 1)
+            return toSeq - fromSeq;
+        long size = ends[lo] - fromSeq + toSeq;
+        for (int i = lo + 1; i < hi - 1; i++)
+            size += ends[i];
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.impl.WireStore;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.threads.Pauser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.NavigableSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.openhft.chronicle.queue.impl.single.SingleChronicleQueueExcerpts.StoreTailer;
+
+/**
+ * Applies a {@link DurabilityPolicy} from a background thread.
+ * <p>
+ * Each sync takes the index of the last excerpt written, then calls {@link FileChannel#force} on
+ * the cycle file, and on any cycles the queue rolled through since the previous sync. Once it
+ * returns, the index taken before it is published as the durable index.
+ * <p>
+ * This forces the whole file rather than msync-ing just the range written since the last sync, as
+ * there is no portable way to msync part of a mapping from Java. The kernel only writes back the
+ * pages which are dirty, so the I/O is the same, but the call walks every page of the file's
+ * mapping, which costs more the larger the cycle file.
+ */
+final class QueueSyncer {
+    private static final Logger LOG = LoggerFactory.getLogger(QueueSyncer.class);
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    @NotNull
+    private final DurabilityPolicy policy;
+    private final AtomicLong syncRequests = new AtomicLong();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile long syncsCompleted = 0;
+    private volatile long durableIndex = Long.MIN_VALUE;
+    private volatile boolean closing = false;
+    private final AtomicLong syncCount = new AtomicLong();
+    private volatile long lastSyncNanos = 0;
+
+    // only used on the sync thread
+    @Nullable
+    private StoreTailer tailer;
+    private int syncedCycle = Integer.MIN_VALUE;
+    private long syncedPosition = 0;
+    private long lastSyncMS = 0;
+    @Nullable
+    private File syncedFile;
+    @Nullable
+    private FileChannel channel;
+
+    QueueSyncer(@NotNull SingleChronicleQueue queue, @NotNull DurabilityPolicy policy) {
+        this.queue = queue;
+        this.policy = policy;
+    }
+
+    void start() {
+        ExecutorService service = Executors.newSingleThreadExecutor(
+                new NamedThreadFactory(queue.file().getName() + "-syncer", true));
+        service.execute(this::runLoop);
+        service.shutdown(); // stop when the task exits.
+    }
+
+    private void runLoop() {
+        Pauser pauser = Pauser.millis(1, 10);
+        try {
+            while (!closing) {
+                if (syncIfDue(false))
+                    pauser.reset();
+                else
+                    pauser.pause();
+            }
+            syncIfDue(true);
+        } catch (Throwable t) {
+            LOG.warn("Stopped syncing " + queue.file(), t);
+        } finally {
+            closeChannel();
+            stopped.countDown();
+        }
+    }
+
+    private boolean syncIfDue(boolean force) throws IOException {
+        final long requests = syncRequests.get();
+        final boolean requested = force || requests > syncsCompleted;
+        final long now = queue.time().currentTimeMillis();
+
+        // only the modes which sync by themselves need to look at the end of the queue
+        if (!requested) {
+            switch (policy.mode()) {
+                case PERIODIC:
+                    if (now < lastSyncMS + policy.interval())
+                        return false;
+                    break;
+                case BYTES:
+                    break;
+                default:
+                    return false;
+            }
+        }
+
+        if (tailer == null)
+            tailer = new StoreTailer(queue);
+        tailer.toEnd();
+        final WireStore store = tailer.store;
+        if (store == null) {
+            syncsCompleted = requests;
+            return false;
+        }
+        final int cycle = tailer.cycle();
+        final long writePosition = store.writePosition();
+
+        if (!requested) {
+            if (cycle == syncedCycle && writePosition == syncedPosition)
+                return false;
+            if (policy.mode() == DurabilityPolicy.Mode.BYTES
+                    && cycle == syncedCycle && writePosition - syncedPosition < policy.interval())
+                return false;
+        }
+
+        final RollCycle rollCycle = queue.rollCycle();
+        final long nextIndex = tailer.index();
+        final long start = System.nanoTime();
+        if (cycle != syncedCycle) {
+            // finish off the previous cycle before moving on.
+            if (channel != null)
+                channel.force(false);
+            closeChannel();
+            if (syncedCycle != Integer.MIN_VALUE && cycle > syncedCycle + 1)
+                forceCyclesBetween(syncedCycle + 1, cycle - 1);
+            syncedFile = store.file();
+            channel = FileChannel.open(syncedFile.toPath(), StandardOpenOption.WRITE);
+            syncedCycle = cycle;
+        }
+        channel.force(false);
+        lastSyncNanos = System.nanoTime() - start;
+        syncCount.incrementAndGet();
+
+        syncedPosition = writePosition;
+        lastSyncMS = now;
+        if (rollCycle.toSequenceNumber(nextIndex) > 0)
+            durableIndex = nextIndex - 1;
+        syncsCompleted = requests;
+        return true;
+    }
+
+    /**
+     * Force the cycles the queue rolled through since the last sync, as the durable index moves
+     * past them.
+     */
+    private void forceCyclesBetween(int lowerCycle, int upperCycle) throws IOException {
+        final NavigableSet<Long> cycles;
+        try {
+            cycles = queue.listCyclesBetween(lowerCycle, upperCycle);
+        } catch (ParseException e) {
+            throw new IOException(e);
+        }
+        for (Long cycle : cycles) {
+            final File file = queue.cycleFile(Math.toIntExact(cycle));
+            try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                fc.force(false);
+            } catch (NoSuchFileException ignored) {
+                // archived or deleted since, so there's nothing left to force.
+            }
+        }
+    }
+
+    private void closeChannel() {
+        FileChannel channel = this.channel;
+        this.channel = null;
+        if (channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.warn("Unable to close " + syncedFile, e);
+        }
+    }
+
+    /**
+     * @return the index of the last excerpt known to be on disk, or {@code Long.MIN_VALUE} if none.
+     */
+    long durableIndex() {
+        return durableIndex;
+    }
+
+    /**
+     * Sync everything written so far and wait for it to complete.
+     *
+     * @return the durable index after the sync
+     */
+    long sync(long timeoutMS) {
+        final long ticket = syncRequests.incrementAndGet();
+        final long end = System.currentTimeMillis() + timeoutMS;
+        final Pauser pauser = Pauser.balanced();
+        while (syncsCompleted < ticket) {
+            if (stopped.getCount() == 0)
+                throw new IllegalStateException("The syncer of " + queue.file() + " has stopped");
+            if (System.currentTimeMillis() > end)
+                throw new IORuntimeException("Timed out after " + timeoutMS + " ms waiting to sync " + queue.file());
+            pauser.pause();
+        }
+        return durableIndex;
+    }
+
+    long syncCount() {
+        return syncCount.get();
+    }
+
+    long lastSyncNanos() {
+        return lastSyncNanos;
+    }
+
+    /**
+     * Do a final sync and stop.
+     */
+    void close(long timeoutMS) {
+        closing = true;
+        try {
+            if (stopped.await(timeoutMS, TimeUnit.MILLISECONDS))
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.warn("Timed out waiting for the final sync of " + queue.file());
+    }
+}
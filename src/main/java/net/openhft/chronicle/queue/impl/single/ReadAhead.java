@@ -0,0 +1,271 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.queue.TailerDirection;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.threads.Pauser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads ahead of tailers which are reading sequentially, from a background thread, when the queue
+ * has {@link SingleChronicleQueueBuilder#tailerReadAhead(long)} set, so a tailer catching up on
+ * old cycles finds the pages it reads next already in the page cache rather than taking a major
+ * fault on each.
+ * <p>
+ * Each tailer reports where it is through its {@link Cursor} every quarter of the read-ahead. Once
+ * two reports in a row are no more than a step apart, the tailer is taken to be reading
+ * sequentially, and the file is read in 1 MiB pieces up to the read-ahead past the tailer, running
+ * on into the next cycle's file at the end of this one. The reads go through the file rather than
+ * a mapping, and aren't kept, so the background thread maps nothing.
+ */
+final class ReadAhead {
+    private static final Logger LOG = LoggerFactory.getLogger(ReadAhead.class);
+    private static final int READ_SIZE = 1 << 20;
+    // how often to look for the next cycle, once the last one has been read to its end
+    private static final long NEXT_CYCLE_CHECK_MS = 100;
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    private final long aheadBytes;
+    private final long step;
+    // weak, so a tailer which is dropped is no longer read ahead of
+    private final Set<Cursor> cursors = Collections.newSetFromMap(new WeakHashMap<>());
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean closing = false;
+
+    // only used on the background thread
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_SIZE);
+    private volatile long bytesRead = 0;
+
+    ReadAhead(@NotNull SingleChronicleQueue queue, long aheadBytes) {
+        this.queue = queue;
+        this.aheadBytes = aheadBytes;
+        this.step = Math.max(aheadBytes / 4, 1);
+    }
+
+    void start() {
+        ExecutorService service = Executors.newSingleThreadExecutor(
+                new NamedThreadFactory(queue.file().getName() + "-read-ahead", true));
+        service.execute(this::runLoop);
+        service.shutdown(); // stop when the task exits.
+    }
+
+    @NotNull
+    Cursor cursor() {
+        final Cursor cursor = new Cursor();
+        synchronized (cursors) {
+            cursors.add(cursor);
+        }
+        return cursor;
+    }
+
+    private void runLoop() {
+        final Pauser pauser = Pauser.millis(1, 20);
+        final List<Cursor> toRead = new ArrayList<>();
+        try {
+            while (!closing) {
+                toRead.clear();
+                synchronized (cursors) {
+                    toRead.addAll(cursors);
+                }
+                boolean busy = false;
+                for (Cursor cursor : toRead)
+                    busy |= cursor.readAhead();
+                toRead.clear();
+                if (busy)
+                    pauser.reset();
+                else
+                    pauser.pause();
+            }
+        } catch (Throwable t) {
+            LOG.warn("Stopped reading ahead for " + queue.file(), t);
+        } finally {
+            synchronized (cursors) {
+                cursors.forEach(Cursor::closeFiles);
+            }
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * @return the bytes read ahead so far.
+     */
+    long bytesRead() {
+        return bytesRead;
+    }
+
+    void close(long timeoutMS) {
+        closing = true;
+        try {
+            if (stopped.await(timeoutMS, TimeUnit.MILLISECONDS))
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.warn("Timed out waiting for the read-ahead of " + queue.file());
+    }
+
+    /**
+     * Where one tailer is reading, reported by the tailer and read ahead of by the background
+     * thread.
+     */
+    final class Cursor {
+        // written by the tailer
+        private volatile int cycle = Integer.MIN_VALUE;
+        private volatile long position;
+        private volatile boolean sequential;
+        // only used by the tailer
+        private int reportedCycle = Integer.MIN_VALUE;
+        private long reportedPosition;
+        // only used on the background thread
+        private int fileCycle = Integer.MIN_VALUE;
+        @Nullable
+        private RandomAccessFile file;
+        private long readTo;
+        private int nextCycle = Integer.MIN_VALUE;
+        @Nullable
+        private RandomAccessFile nextFile;
+        private long nextReadTo;
+        private long nextCycleCheckMS;
+
+        /**
+         * Called by the tailer as it reads, which is cheap unless it has moved on by a step.
+         */
+        void onRead(int cycle, long position, @NotNull TailerDirection direction) {
+            if (cycle == reportedCycle && position < reportedPosition + step && position >= reportedPosition)
+                return;
+            final boolean forward = direction == TailerDirection.FORWARD
+                    && (cycle == reportedCycle
+                    ? position >= reportedPosition && position - reportedPosition <= 2 * step
+                    : cycle > reportedCycle && position <= 2 * step);
+            reportedCycle = cycle;
+            reportedPosition = position;
+            this.sequential = forward;
+            this.position = position;
+            this.cycle = cycle;
+        }
+
+        /**
+         * @return whether anything was read
+         */
+        boolean readAhead() throws IOException {
+            final int cycle = this.cycle;
+            final long position = this.position;
+            if (!sequential || cycle == Integer.MIN_VALUE)
+                return false;
+            if (cycle != fileCycle)
+                moveTo(cycle);
+            if (file == null)
+                return false;
+
+            readTo = Math.max(readTo, position);
+            final long target = position + aheadBytes;
+            // wait until the tailer has used up a step of what was read
+            if (readTo >= target - step)
+                return false;
+            final FileChannel channel = file.getChannel();
+            final long size = channel.size();
+            final long readFrom = readTo;
+            readTo = read(channel, readTo, Math.min(target, size));
+            final boolean read = readTo > readFrom;
+            if (readTo < size || readTo >= target)
+                return read;
+
+            // the rest comes from the start of the next cycle, which is usually the last one
+            if (nextFile == null) {
+                final long now = System.currentTimeMillis();
+                if (now < nextCycleCheckMS)
+                    return read;
+                nextCycleCheckMS = now + NEXT_CYCLE_CHECK_MS;
+                nextCycle = queue.nextCycleOrMinValue(cycle);
+                nextFile = open(nextCycle);
+                nextReadTo = 0;
+                if (nextFile == null)
+                    return read;
+            }
+            final FileChannel nextChannel = nextFile.getChannel();
+            final long nextReadFrom = nextReadTo;
+            nextReadTo = read(nextChannel, nextReadTo, Math.min(target - size, nextChannel.size()));
+            return read || nextReadTo > nextReadFrom;
+        }
+
+        private void moveTo(int cycle) throws IOException {
+            if (cycle == nextCycle && nextFile != null) {
+                Closeable.closeQuietly(file);
+                file = nextFile;
+                readTo = nextReadTo;
+                nextFile = null;
+            } else {
+                closeFiles();
+                file = open(cycle);
+                readTo = 0;
+            }
+            fileCycle = cycle;
+            nextCycle = Integer.MIN_VALUE;
+            nextCycleCheckMS = 0;
+        }
+
+        @Nullable
+        private RandomAccessFile open(int cycle) throws IOException {
+            if (cycle == Integer.MIN_VALUE)
+                return null;
+            final File cycleFile = queue.cycleFile(cycle);
+            // an archived cycle is restored all at once
+            return cycleFile.exists() ? new RandomAccessFile(cycleFile, "r") : null;
+        }
+
+        private long read(@NotNull FileChannel channel, long from, long to) throws IOException {
+            while (from < to) {
+                buffer.clear().limit((int) Math.min(READ_SIZE, to - from));
+                final int read = channel.read(buffer, from);
+                if (read <= 0)
+                    break;
+                from += read;
+                bytesRead += read;
+            }
+            return from;
+        }
+
+        private void closeFiles() {
+            Closeable.closeQuietly(file);
+            Closeable.closeQuietly(nextFile);
+            file = null;
+            nextFile = null;
+            fileCycle = Integer.MIN_VALUE;
+            nextCycle = Integer.MIN_VALUE;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import net.openhft.chronicle.core.util.ThrowingFunction;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
@@ -25,7 +26,7 @@ public class ReferenceCountedCache<K, T extends ReferenceCounted, V, E extends T
     }
 
     @NotNull
-    V get(@NotNull final K key) throws E {
+    synchronized V get(@NotNull final K key) throws E {
         boolean created = false;
 
         // remove all which have been dereferenced. Garbagy but rare
@@ -48,4 +49,22 @@ public class ReferenceCountedCache<K, T extends ReferenceCounted, V, E extends T
                 value.release();
         }
     }
+
+    /**
+     * Run the action if nothing holds the values for any of the keys, without a {@link #get} in
+     * the meantime.
+     *
+     * @return whether the action was run
+     */
+    synchronized boolean ifUnreferenced(@NotNull final Collection<K> keys, @NotNull final Runnable action) {
+        for (K key : keys) {
+            @Nullable T value = cache.get(key);
+            if (value != null && value.refCount() > 0)
+                return false;
+        }
+        for (K key : keys)
+            cache.remove(key);
+        action.run();
+        return true;
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes cycles from the start of the queue when the queue has
+ * {@link SingleChronicleQueueBuilder#retention(long, long)} set, from a background thread or
+ * when {@link SingleChronicleQueue#applyRetention()} is called.
+ * <p>
+ * A cycle is deleted once it ended longer than the maximum age ago, or while the queue's cycles,
+ * whether raw or archived, take more than the maximum bytes. The last cycle is always kept, as is
+ * any cycle a registered consumer hasn't read past, or which is still held in this process. As
+ * cycles are only deleted from the start, the directory listing moves its first cycle on before
+ * the files go, and {@code firstIndex()} and {@code toStart()} stay a lookup.
+ */
+final class RetentionService {
+    private static final Logger LOG = LoggerFactory.getLogger(RetentionService.class);
+    private static final long CHECK_INTERVAL_MS = Long.getLong("chronicle.queue.retention.checkMs", 1000);
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    private final long maxAgeMS;
+    private final long maxBytes;
+    @NotNull
+    private final ScheduledExecutorService service;
+
+    RetentionService(@NotNull SingleChronicleQueue queue, long maxAgeMS, long maxBytes) {
+        this.queue = queue;
+        this.maxAgeMS = maxAgeMS;
+        this.maxBytes = maxBytes;
+        this.service = Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory(queue.file().getName() + "-retention", true));
+    }
+
+    void start() {
+        service.scheduleWithFixedDelay(() -> {
+            try {
+                apply();
+            } catch (Throwable t) {
+                LOG.warn("Unable to apply retention to " + queue.file(), t);
+            }
+        }, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the number of cycles deleted
+     */
+    synchronized int apply() throws ParseException {
+        final int firstCycle = queue.firstCycle();
+        final int lastCycle = queue.lastCycle();
+        if (firstCycle >= lastCycle)
+            return 0;
+        final NavigableSet<Long> cycles = queue.listCyclesBetween(firstCycle, lastCycle);
+        long bytes = 0;
+        for (long cycle : cycles)
+            bytes += queue.cycleFileLength((int) cycle);
+
+        final RollCycle rollCycle = queue.rollCycle();
+        final long expiredBefore = queue.time().currentTimeMillis() - maxAgeMS;
+        final int slowestConsumer = queue.slowestConsumerCycle();
+        int removed = 0;
+        for (Iterator<Long> it = cycles.iterator(); it.hasNext(); ) {
+            final int cycle = (int) (long) it.next();
+            if (cycle >= lastCycle || cycle >= slowestConsumer || !it.hasNext())
+                break;
+            final long end = queue.epoch() + (cycle + 1L) * rollCycle.length();
+            final boolean expired = maxAgeMS > 0 && end <= expiredBefore;
+            if (!expired && !(maxBytes > 0 && bytes > maxBytes))
+                break;
+
+            final long length = queue.cycleFileLength(cycle);
+            final int nextCycle = (int) (long) cycles.higher((long) cycle);
+            if (!queue.removeCycle(cycle, nextCycle)) {
+                LOG.debug("Cycle " + cycle + " of " + queue.file() + " is still in use");
+                break;
+            }
+            bytes -= length;
+            removed++;
+        }
+        return removed;
+    }
+
+    void close(long timeoutMS) {
+        service.shutdown();
+        try {
+            if (service.awaitTermination(timeoutMS, TimeUnit.MILLISECONDS))
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.warn("Timed out waiting for the retention of " + queue.file());
+    }
+}
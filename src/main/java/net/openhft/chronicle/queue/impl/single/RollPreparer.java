@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.threads.Pauser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares the file for the next cycle from a background thread when the queue has
+ * {@link SingleChronicleQueueBuilder#prepareNextCycle(boolean)} set.
+ * <p>
+ * As soon as a cycle starts, the file for the one after it is built as a pre-created file, which
+ * the appender renames into place on the roll instead of creating, initialising and indexing a new
+ * file while holding the write lock. A prepared file which was never used, because nothing was
+ * written in its cycle, is deleted once the cycle has passed, or the queue is closed.
+ */
+final class RollPreparer {
+    private static final Logger LOG = LoggerFactory.getLogger(RollPreparer.class);
+    private static final long PRETOUCH_BYTES = Long.getLong("chronicle.queue.prepareNextCycle.pretouchBytes", 1 << 20);
+
+    @NotNull
+    private final SingleChronicleQueue queue;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean closing = false;
+
+    // only used on the preparer thread
+    private int preparedCycle = Integer.MIN_VALUE;
+    @Nullable
+    private File preparedFile;
+    // prepared for the current cycle, which may not have been written to yet
+    @Nullable
+    private File currentFile;
+
+    RollPreparer(@NotNull SingleChronicleQueue queue) {
+        this.queue = queue;
+    }
+
+    void start() {
+        ExecutorService service = Executors.newSingleThreadExecutor(
+                new NamedThreadFactory(queue.file().getName() + "-roll-preparer", true));
+        service.execute(this::runLoop);
+        service.shutdown(); // stop when the task exits.
+    }
+
+    private void runLoop() {
+        Pauser pauser = Pauser.millis(1, 100);
+        try {
+            while (!closing) {
+                if (prepareNext())
+                    pauser.reset();
+                else
+                    pauser.pause();
+            }
+        } catch (Throwable t) {
+            LOG.warn("Stopped preparing cycles of " + queue.file(), t);
+        } finally {
+            deleteIfUnused(currentFile);
+            deleteIfUnused(preparedFile);
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * @return whether a file was prepared
+     */
+    private boolean prepareNext() throws IOException {
+        final int currentCycle = queue.cycle();
+        final int nextCycle = currentCycle + 1;
+        if (nextCycle == preparedCycle)
+            return false;
+        // any cycle before the current one is over, so its file won't be used now
+        deleteIfUnused(currentFile);
+        if (preparedCycle == currentCycle) {
+            currentFile = preparedFile;
+        } else {
+            currentFile = null;
+            deleteIfUnused(preparedFile);
+        }
+        preparedFile = null;
+
+        final File file = queue.prepareCycleFile(nextCycle, PRETOUCH_BYTES);
+        preparedCycle = nextCycle;
+        preparedFile = file;
+        return file != null;
+    }
+
+    private static void deleteIfUnused(@Nullable File file) {
+        // if the roll has already happened it has been renamed and this does nothing
+        if (file != null && file.delete() && LOG.isDebugEnabled())
+            LOG.debug("Deleted unused " + file);
+    }
+
+    void close(long timeoutMS) {
+        closing = true;
+        try {
+            if (stopped.await(timeoutMS, TimeUnit.MILLISECONDS))
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.warn("Timed out waiting for the roll preparer of " + queue.file());
+    }
+}
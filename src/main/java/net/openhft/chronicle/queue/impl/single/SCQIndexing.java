@@ -58,6 +58,12 @@ class SCQIndexing implements Demarshallable, WriteMarshallable, Closeable {
     private final WriteMarshallable indexTemplate;
     LongValue writePosition;
     Sequence sequence;
+    // the positions recorded by scans in this process, if kept
+    @Nullable
+    private DensePositionIndex.Cycle densePositions;
+    // where densePositions puts the [sequence, position] it finds, per thread as the store is shared
+    @NotNull
+    private final ThreadLocal<long[]> nearer = ThreadLocal.withInitial(() -> new long[2]);
     // visible for testing
     int linearScanCount;
 
@@ -93,6 +99,15 @@ class SCQIndexing implements Demarshallable, WriteMarshallable, Closeable {
         this.indexTemplate = w -> w.writeEventName(() -> "index").int64array(indexCount);
     }
 
+    /**
+     * Record the positions passed by scans in, and start scans from, {@code densePositions}, if this
+     * index is sparser than it.
+     */
+    void densePositions(@Nullable DensePositionIndex.Cycle densePositions) {
+        if (indexSpacing > DensePositionIndex.SPACING)
+            this.densePositions = densePositions;
+    }
+
     @NotNull
     private LongArrayValuesHolder getIndex2IndexArray() {
         return ThreadLocalHelper.getTL(index2indexArray, longArraySupplier, las -> new LongArrayValuesHolder(las.get()));
@@ -230,8 +245,20 @@ class SCQIndexing implements Demarshallable, WriteMarshallable, Closeable {
         try {
             Wire wire = ec.wire();
             wire.bytes().readPositionUnlimited(0);
-            if (wire.readDataHeader())
+            if (wire.readDataHeader()) {
+                final DensePositionIndex.Cycle densePositions = this.densePositions;
+                if (densePositions != null && index != 0) {
+                    final long[] nearer = this.nearer.get();
+                    if (densePositions.floor(index, 0, nearer)) {
+                        if (index == nearer[0]) {
+                            wire.bytes().readPositionUnlimited(nearer[1]);
+                            return ScanResult.FOUND;
+                        }
+                        return linearScan(wire, index, nearer[0], nearer[1]);
+                    }
+                }
                 return linearScan(wire, index, 0, wire.bytes().readPosition());
+            }
         } catch (EOFException fallback) {
             return ScanResult.END_OF_FILE;
         }
@@ -249,11 +276,14 @@ class SCQIndexing implements Demarshallable, WriteMarshallable, Closeable {
 
             long secondaryAddress = 0;
             long startIndex = index & ~(indexSpacing - 1);
+            long secondaryOffset = toAddress1(index);
             while (primaryOffset >= 0) {
                 secondaryAddress = index2index.getValueAt(primaryOffset);
                 if (secondaryAddress != 0)
                     break;
-                startIndex -= indexCount * indexSpacing;
+                // the index hasn't reached this far yet, so scan from the end of the previous one
+                startIndex = (startIndex & ~((long) indexCount * indexSpacing - 1)) - indexSpacing;
+                secondaryOffset = indexCount - 1;
                 primaryOffset--;
             }
 
@@ -261,7 +291,6 @@ class SCQIndexing implements Demarshallable, WriteMarshallable, Closeable {
                 return null;
             }
             @NotNull final LongArrayValues array1 = arrayForAddress(wire, secondaryAddress);
-            long secondaryOffset = toAddress1(index);
 
             do {
                 long fromAddress = array1.getValueAt(secondaryOffset);
@@ -271,6 +300,15 @@ class SCQIndexing implements Demarshallable, WriteMarshallable, Closeable {
                     continue;
                 }
 
+                final DensePositionIndex.Cycle densePositions = this.densePositions;
+                if (densePositions != null && index != startIndex) {
+                    final long[] nearer = this.nearer.get();
+                    if (densePositions.floor(index, startIndex, nearer)) {
+                        startIndex = nearer[0];
+                        fromAddress = nearer[1];
+                    }
+                }
+
                 if (index == startIndex) {
                     ec.wire().bytes().readPositionUnlimited(fromAddress);
                     return ScanResult.FOUND;
@@ -366,9 +404,12 @@ class SCQIndexing implements Demarshallable, WriteMarshallable, Closeable {
 
         bytes.readPositionUnlimited(knownAddress);
 
+        final DensePositionIndex.Cycle densePositions = fromKnownIndex >= 0 ? this.densePositions : null;
         for (long i = fromKnownIndex; ; i++) {
             try {
                 if (wire.readDataHeader()) {
+                    if (densePositions != null && (i & (DensePositionIndex.SPACING - 1)) == 0 && i > fromKnownIndex)
+                        densePositions.record(i, bytes.readPosition());
                     if (i == toIndex) {
                         return ScanResult.FOUND;
                     }
@@ -629,6 +670,16 @@ class SCQIndexing implements Demarshallable, WriteMarshallable, Closeable {
         nextEntryToBeIndexed.setMaxValue(sequenceNumber + indexSpacing);
     }
 
+    /**
+     * @return whether adding {@code sequenceNumber} to the index would first write a new secondary
+     * index to the queue, which needs the write lock.
+     */
+    boolean needsNewIndex(@NotNull Wire wire, long sequenceNumber) {
+        final LongArrayValues index2indexArr = getIndex2index(wire);
+        int index2 = (int) ((sequenceNumber) >>> (indexCountBits + indexSpacingBits));
+        return index2 < indexCount && index2indexArr.getVolatileValueAt(index2) == 0;
+    }
+
     public boolean indexable(long index) {
         return (index & (indexSpacing - 1)) == 0;
     }
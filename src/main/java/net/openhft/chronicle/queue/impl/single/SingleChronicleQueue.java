@@ -17,6 +17,7 @@ package net.openhft.chronicle.queue.impl.single;
 
 import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.bytes.BytesRingBufferStats;
+import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.bytes.MappedBytes;
 import net.openhft.chronicle.bytes.MappedFile;
 import net.openhft.chronicle.core.Jvm;
@@ -26,7 +27,9 @@ import net.openhft.chronicle.core.io.IOTools;
 import net.openhft.chronicle.core.threads.EventLoop;
 import net.openhft.chronicle.core.threads.ThreadLocalHelper;
 import net.openhft.chronicle.core.time.TimeProvider;
+import net.openhft.chronicle.core.util.Histogram;
 import net.openhft.chronicle.core.util.StringUtils;
+import net.openhft.chronicle.core.values.LongValue;
 import net.openhft.chronicle.queue.*;
 import net.openhft.chronicle.queue.impl.*;
 import net.openhft.chronicle.queue.impl.table.SingleTableBuilder;
@@ -45,12 +48,16 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static net.openhft.chronicle.core.io.Closeable.closeQuietly;
 import static net.openhft.chronicle.queue.TailerDirection.NONE;
@@ -61,12 +68,14 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
 
     public static final String SUFFIX = ".cq4";
     public static final String DISK_SPACE_CHECKER_NAME = DiskSpaceMonitor.DISK_SPACE_CHECKER_NAME;
+    private static final String CHECKSUMS_KEY = "chronicle.queue.checksums";
 
     private static final boolean SHOULD_RELEASE_RESOURCES =
             Boolean.valueOf(System.getProperty("chronicle.queue.release.weakRef.resources",
                     Boolean.TRUE.toString()));
 
     private static final boolean SHOULD_CHECK_CYCLE = Boolean.getBoolean("chronicle.queue.checkrollcycle");
+    private static final int FIRST_EXCERPTS_CACHED = Integer.getInteger("chronicle.queue.firstExcerptsCached", 4096);
     private static final Logger LOG = LoggerFactory.getLogger(SingleChronicleQueue.class);
     protected final ThreadLocal<WeakReference<ExcerptAppender>> weakExcerptAppenderThreadLocal = new ThreadLocal<>();
     protected final ThreadLocal<ExcerptAppender> strongExcerptAppenderThreadLocal = new ThreadLocal<>();
@@ -111,6 +120,61 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
     @NotNull
     private final WriteLock writeLock;
     private final boolean strongAppenders;
+    @Nullable
+    private final AsyncRingBuffer asyncRingBuffer;
+    @Nullable
+    private final AsyncBufferDrainer asyncBufferDrainer;
+    @Nullable
+    private final QueueSyncer syncer;
+    private final boolean deferredIndexing;
+    @Nullable
+    private final QueueIndexer indexer;
+    @Nullable
+    private final RollPreparer rollPreparer;
+    @Nullable
+    private final AppendNotifier appendNotifier;
+    @Nullable
+    private final DensePositionIndex densePositions;
+    @Nullable
+    private final CycleArchiver archiver;
+    @NotNull
+    private final ArchivedCycleCache archivedCycles;
+    @Nullable
+    private final RetentionService retention;
+    @Nullable
+    private final ReadAhead readAhead;
+    @Nullable
+    private final PageCacheEvictor evictor;
+    @Nullable
+    private final MappingBudget mappingBudget;
+    @Nullable
+    private final ChecksumScrubber scrubber;
+    final boolean checksums;
+    // what excerpts are encoded with, as recorded in the metadata
+    @NotNull
+    final ExcerptCodec codec;
+    final boolean fastRecovery;
+    final boolean verifyChecksums;
+    // weak, so a tailer which is dropped stops holding cycles
+    private final Set<ExcerptTailer> consumers = Collections.newSetFromMap(new WeakHashMap<>());
+    final int timeIndexSampleEvery;
+    final long timeIndexSampleIntervalMS;
+    // the first excerpt of each cycle searched, which doesn't change once written
+    private final Map<Integer, byte[]> firstExcerpts = new LinkedHashMap<Integer, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+            return size() > FIRST_EXCERPTS_CACHED;
+        }
+    };
+    // the latencies of each appender, and those of appenders which have been closed.
+    @Nullable
+    private final List<AppendLatencies> appendLatencies;
+    @Nullable
+    private final AppendLatencies closedAppendLatencies;
+    @Nullable
+    private final Supplier<BiConsumer<BytesStore, Bytes>> encodingSupplier;
+    @Nullable
+    private final Supplier<BiConsumer<BytesStore, Bytes>> decodingSupplier;
     protected int sourceId;
     long firstAndLastCycleTime = 0;
     int firstCycle = Integer.MAX_VALUE, lastCycle = Integer.MIN_VALUE;
@@ -129,11 +193,21 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
         nameToFile = textToFile(builder);
         assignRollCycleDependentFields();
 
-        storeFileListener = builder.storeFileListener();
+        path = builder.path();
+        archiver = builder.archiveReleasedCycles() >= 0 && !readOnly
+                ? new CycleArchiver(this, builder.storeFileListener(), builder.archiveReleasedCycles())
+                : null;
+        archivedCycles = new ArchivedCycleCache(new File(path, "archive-cache"), builder.archiveCacheBytes());
+        final StoreFileListener listener = archiver == null ? builder.storeFileListener() : archiver;
+        evictor = builder.evictConsumedCycles() ? new PageCacheEvictor(this, listener) : null;
+        final StoreFileListener evictingListener = evictor == null ? listener : evictor;
+        scrubber = builder.scrubReleasedCycles() > 0
+                ? new ChecksumScrubber(this, evictingListener, builder.scrubReleasedCycles())
+                : null;
+        storeFileListener = scrubber == null ? evictingListener : scrubber;
         storeSupplier = new StoreSupplier();
         pool = WireStorePool.withSupplier(storeSupplier, storeFileListener);
         isBuffered = builder.buffered();
-        path = builder.path();
         fileAbsolutePath = path.getAbsolutePath();
         wireType = builder.wireType();
         blockSize = builder.blockSize();
@@ -151,15 +225,36 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
         strongAppenders = builder.strongAppenders();
         if (readOnly) {
             this.directoryListing = new FileSystemDirectoryListing(path, fileToCycleFunction());
+            this.appendNotifier = null;
+            // what the queue was created with, if it has metadata, only read
+            final File listingPath = existingDirectoryListingPath(path);
+            if (listingPath.exists()) {
+                final TableStore listingStore = SingleTableBuilder.binary(listingPath).readOnly(true).build();
+                try {
+                    this.checksums = recordChecksums(listingStore, false);
+                    codec = ExcerptCodec.recordedIn(listingStore);
+                } finally {
+                    closeQuietly(listingStore);
+                }
+            } else {
+                this.checksums = builder.checksums();
+                codec = ExcerptCodec.NONE;
+            }
         } else {
             final File listingPath = createDirectoryListingFile();
-            this.directoryListing = new TableDirectoryListing(SingleTableBuilder.
-                    binary(listingPath).readOnly(builder.readOnly()).build(),
+            final TableStore listingStore = SingleTableBuilder.
+                    binary(listingPath).readOnly(builder.readOnly()).build();
+            this.directoryListing = new TableDirectoryListing(listingStore,
                     path.toPath(), fileToCycleFunction(), builder.readOnly());
             directoryListing.init();
+            this.appendNotifier = builder.appendNotification() ? new AppendNotifier(listingPath) : null;
+            this.checksums = recordChecksums(listingStore, builder.checksums());
+            codec = recordCodec(listingStore, builder.codec());
         }
 
         this.directoryListing.refresh();
+        this.verifyChecksums = checksums && builder.verifyChecksums();
+        this.fastRecovery = builder.fastRecovery();
         this.queueLock = builder.queueLock();
         this.writeLock = builder.writeLock();
 
@@ -176,6 +271,84 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
 
         sourceId = builder.sourceId();
         recoverySupplier = builder.recoverySupplier();
+        if (codec == builder.codec()) {
+            encodingSupplier = builder.encodingSupplier();
+            decodingSupplier = builder.decodingSupplier();
+        } else if (builder.codec() == ExcerptCodec.NONE && codec.isImplied()) {
+            encodingSupplier = codec.encodingSupplier();
+            decodingSupplier = codec.decodingSupplier();
+        } else {
+            throw new IllegalStateException(path + " is encoded with " + codec + " but was opened with " + builder.codec());
+        }
+        timeIndexSampleEvery = builder.timeIndexSampleEvery();
+        timeIndexSampleIntervalMS = builder.timeIndexSampleIntervalMS();
+        densePositions = builder.densePositionIndexMemory() > 0
+                ? new DensePositionIndex(builder.densePositionIndexMemory())
+                : null;
+        appendLatencies = builder.recordAppendLatencies() ? new ArrayList<>() : null;
+        closedAppendLatencies = builder.recordAppendLatencies() ? new AppendLatencies() : null;
+
+        if (builder.writeBufferMode() == BufferMode.Asynchronous && !readOnly) {
+            asyncRingBuffer = new AsyncRingBuffer(bufferCapacity);
+            asyncBufferDrainer = new AsyncBufferDrainer(this, asyncRingBuffer);
+            asyncBufferDrainer.start();
+        } else {
+            asyncRingBuffer = null;
+            asyncBufferDrainer = null;
+        }
+
+        if (builder.durabilityPolicy().mode() != DurabilityPolicy.Mode.NONE && !readOnly) {
+            syncer = new QueueSyncer(this, builder.durabilityPolicy());
+            syncer.start();
+        } else {
+            syncer = null;
+        }
+
+        deferredIndexing = builder.deferredIndexing() && !readOnly;
+        if (deferredIndexing) {
+            indexer = new QueueIndexer(this);
+            indexer.start();
+        } else {
+            indexer = null;
+        }
+
+        if (builder.prepareNextCycle() && !readOnly) {
+            rollPreparer = new RollPreparer(this);
+            rollPreparer.start();
+        } else {
+            rollPreparer = null;
+        }
+
+        if ((builder.retentionMaxAgeMS() > 0 || builder.retentionMaxBytes() > 0) && !readOnly) {
+            retention = new RetentionService(this, builder.retentionMaxAgeMS(), builder.retentionMaxBytes());
+            retention.start();
+        } else {
+            retention = null;
+        }
+
+        if (builder.tailerReadAhead() > 0) {
+            readAhead = new ReadAhead(this, builder.tailerReadAhead());
+            readAhead.start();
+        } else {
+            readAhead = null;
+        }
+
+        if (evictor != null)
+            evictor.start();
+
+        mappingBudget = builder.mappedBytesBudget() > 0
+                ? new MappingBudget(builder.mappedBytesBudget(), OS.pageAlign(blockSize) + OS.pageAlign(blockSize / 4))
+                : null;
+    }
+
+    /**
+     * @return where the directory listing of a queue is, without creating the queue's directory
+     */
+    @NotNull
+    static File existingDirectoryListingPath(@NotNull File queueFolder) {
+        return "".equals(queueFolder.getPath())
+                ? new File(DirectoryListing.DIRECTORY_LISTING_FILE)
+                : new File(queueFolder, DirectoryListing.DIRECTORY_LISTING_FILE);
     }
 
     @NotNull
@@ -208,10 +381,7 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
 
     @NotNull
     private Function<File, String> fileToText() {
-        return file -> {
-            String name = file.getName();
-            return name.substring(0, name.length() - SUFFIX.length());
-        };
+        return file -> CycleArchive.cycleName(file.getName());
     }
 
     @Override
@@ -343,6 +513,101 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
         return this.isBuffered;
     }
 
+    /**
+     * @return the index of the last excerpt known to have been synced to disk under the queue's
+     * {@link DurabilityPolicy}, or {@code Long.MIN_VALUE} if none has been, or there is no policy.
+     * This is a volatile read, cheap enough to call after every append.
+     */
+    public long durableIndex() {
+        return syncer == null ? Long.MIN_VALUE : syncer.durableIndex();
+    }
+
+    /**
+     * Sync everything written to the queue so far to disk, and wait for it to complete. Concurrent
+     * callers share syncs.
+     *
+     * @return the index of the last excerpt known to have been synced to disk.
+     * @throws IllegalStateException if the queue has no {@link DurabilityPolicy}
+     */
+    public long sync() {
+        if (syncer == null)
+            throw new IllegalStateException("No durabilityPolicy is set for " + fileAbsolutePath);
+        return syncer.sync(timeoutMS);
+    }
+
+    /**
+     * @return what appenders signal and tailers wait on, or null if appenders don't signal appends.
+     */
+    @Nullable
+    AppendNotifier appendNotifier() {
+        return appendNotifier;
+    }
+
+    /**
+     * @return the bytes allocated to positions kept by {@link SingleChronicleQueueBuilder#densePositionIndexMemory(long)}
+     */
+    public long densePositionIndexAllocated() {
+        return densePositions == null ? 0 : densePositions.allocatedBytes();
+    }
+
+    /**
+     * @return the file beside the cycle's file which holds its time index.
+     */
+    @NotNull
+    File timeIndexFile(int cycle) {
+        return new File(dateCache.resourceFor(cycle).path.getPath() + TimeIndex.SUFFIX);
+    }
+
+    boolean deferredIndexing() {
+        return deferredIndexing;
+    }
+
+    @Nullable
+    AppendLatencies newAppendLatencies() {
+        if (appendLatencies == null)
+            return null;
+        final AppendLatencies latencies = new AppendLatencies();
+        synchronized (appendLatencies) {
+            appendLatencies.add(latencies);
+        }
+        return latencies;
+    }
+
+    void closeAppendLatencies(@NotNull AppendLatencies latencies) {
+        assert appendLatencies != null && closedAppendLatencies != null;
+        synchronized (appendLatencies) {
+            if (appendLatencies.remove(latencies))
+                closedAppendLatencies.add(latencies);
+        }
+    }
+
+    /**
+     * The time taken by each stage of an append, merged across every appender of this queue.
+     * Appenders record them as they go, so samples taken while this runs may be missed.
+     *
+     * @param reset whether to clear the timings once they have been copied
+     * @return a copy of the timings, in nanoseconds
+     * @throws IllegalStateException if the queue wasn't built with
+     *                               {@link SingleChronicleQueueBuilder#recordAppendLatencies(boolean)}
+     */
+    @NotNull
+    public Map<AppendLatencies.Stage, Histogram> appendLatencies(boolean reset) {
+        if (appendLatencies == null || closedAppendLatencies == null)
+            throw new IllegalStateException("Append latencies are not recorded for " + fileAbsolutePath);
+        final AppendLatencies total = new AppendLatencies();
+        synchronized (appendLatencies) {
+            total.add(closedAppendLatencies);
+            if (reset)
+                closedAppendLatencies.reset();
+            for (AppendLatencies latencies : appendLatencies) {
+                total.add(latencies);
+                if (reset)
+                    latencies.reset();
+            }
+        }
+        return total.toMap();
+    }
+
     @Nullable
     public EventLoop eventLoop() {
         return this.eventLoop;
@@ -350,12 +615,35 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
 
     @NotNull
     protected ExcerptAppender newAppender() {
+        if (asyncRingBuffer != null)
+            return new AsyncAppender(this, asyncRingBuffer, asyncBufferDrainer);
+        return newStoreAppender();
+    }
+
+    @NotNull
+    StoreAppender newStoreAppender() {
         queueLock.waitForLock();
 
         final WireStorePool newPool = WireStorePool.withSupplier(storeSupplier, storeFileListener);
         return new StoreAppender(this, newPool);
     }
 
+    /**
+     * @return a new encoder to apply to each excerpt written, or null if excerpts are stored as written
+     */
+    @Nullable
+    BiConsumer<BytesStore, Bytes> newEncoder() {
+        return encodingSupplier == null ? null : encodingSupplier.get();
+    }
+
+    /**
+     * @return a new decoder to apply to each excerpt read, or null if excerpts are read as stored
+     */
+    @Nullable
+    BiConsumer<BytesStore, Bytes> newDecoder() {
+        return decodingSupplier == null ? null : decodingSupplier.get();
+    }
+
     StoreFileListener storeFileListener() {
         return storeFileListener;
     }
@@ -449,6 +737,354 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
         }
     }
 
+    /**
+     * Keep the cycles from the one this tailer is reading until it has read past them, when the
+     * queue has a retention policy, and in the page cache, when it evicts consumed cycles. The
+     * tailer is held weakly, so a tailer which is dropped no longer keeps any.
+     */
+    public void registerConsumer(@NotNull ExcerptTailer tailer) {
+        synchronized (consumers) {
+            consumers.add(tailer);
+        }
+    }
+
+    public void unregisterConsumer(@NotNull ExcerptTailer tailer) {
+        synchronized (consumers) {
+            consumers.remove(tailer);
+        }
+    }
+
+    /**
+     * @return the cycle the slowest registered consumer is reading, or Integer.MAX_VALUE if there
+     * are none. A consumer with no position yet, such as one created before anything was written,
+     * will read from the first cycle, so it holds that.
+     */
+    int slowestConsumerCycle() {
+        int slowest = Integer.MAX_VALUE;
+        synchronized (consumers) {
+            for (ExcerptTailer consumer : consumers) {
+                final long index = consumer.index();
+                slowest = Math.min(slowest, index == 0 ? firstCycle() : rollCycle.toCycle(index));
+            }
+        }
+        return slowest;
+    }
+
+    /**
+     * Apply the retention policy now, rather than waiting for it to be applied in the background.
+     *
+     * @return the number of cycles deleted
+     */
+    public int applyRetention() {
+        try {
+            return retentionService().apply();
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NotNull
+    private RetentionService retentionService() {
+        if (retention == null)
+            throw new IllegalStateException("The queue has no retention policy");
+        return retention;
+    }
+
+    /**
+     * @return a cursor for a tailer to report where it's reading, or null if the queue doesn't
+     * read ahead of tailers
+     */
+    @Nullable
+    ReadAhead.Cursor readAheadCursor() {
+        return readAhead == null ? null : readAhead.cursor();
+    }
+
+    /**
+     * @return the bytes read ahead of tailers so far, see {@link SingleChronicleQueueBuilder#tailerReadAhead(long)}
+     */
+    public long readAheadBytes() {
+        return readAhead == null ? 0 : readAhead.bytesRead();
+    }
+
+    /**
+     * Whether excerpts have checksums is kept in the queue's metadata, so a queue created with them
+     * is always written and read with them, and they can't be turned on for excerpts written
+     * without them.
+     */
+    private boolean recordChecksums(@NotNull TableStore tableStore, boolean checksums) {
+        if (!checksums) {
+            // only looked up, so a queue which doesn't use them doesn't get the key written
+            final LongValue value = tableStore.acquireExistingValueFor(CHECKSUMS_KEY);
+            if (value == null)
+                return false;
+            try {
+                return value.getVolatileValue() == 1;
+            } finally {
+                closeQuietly(value);
+            }
+        }
+        return tableStore.doWithExclusiveLock(ts -> {
+            final LongValue value = ts.acquireValueFor(CHECKSUMS_KEY);
+            try {
+                if (value.getVolatileValue() == 1)
+                    return true;
+                final String[] cycleFiles = path.list((dir, name) -> CycleArchive.isCycleFile(name));
+                if (cycleFiles != null && cycleFiles.length > 0)
+                    throw new IllegalStateException("Checksums can only be turned on for a new queue, " + path + " has excerpts without them");
+                value.setOrderedValue(1);
+                return true;
+            } finally {
+                closeQuietly(value);
+            }
+        });
+    }
+
+    /**
+     * The codec excerpts are encoded with is kept in the queue's metadata in the same way, set by
+     * whoever creates the queue, so it can be checked, or used, by anyone who opens it.
+     *
+     * @return the codec the queue was created with
+     */
+    @NotNull
+    private ExcerptCodec recordCodec(@NotNull TableStore tableStore, @NotNull ExcerptCodec codec) {
+        if (codec == ExcerptCodec.NONE)
+            return ExcerptCodec.recordedIn(tableStore);
+        return tableStore.doWithExclusiveLock(ts -> {
+            final LongValue value = ts.acquireValueFor(ExcerptCodec.CODEC_KEY);
+            try {
+                if (value.getVolatileValue() != Long.MIN_VALUE)
+                    return ExcerptCodec.forId(value.getVolatileValue());
+                final String[] cycleFiles = path.list((dir, name) -> CycleArchive.isCycleFile(name));
+                if (cycleFiles != null && cycleFiles.length > 0)
+                    throw new IllegalStateException("A codec can only be set for a new queue, " + path + " has excerpts written without one");
+                value.setOrderedValue(codec.id());
+                return codec;
+            } finally {
+                closeQuietly(value);
+            }
+        });
+    }
+
+    /**
+     * Check the checksums of a cycle now, rather than waiting for the scrubber.
+     *
+     * @return the indexes of the excerpts whose checksums don't match
+     */
+    @NotNull
+    public List<Long> scrubCycle(int cycle) {
+        if (!checksums)
+            throw new IllegalStateException("The excerpts of " + fileAbsolutePath + " have no checksums");
+        return ChecksumScrubber.scrub(this, cycle, 0, new AtomicLong());
+    }
+
+    /**
+     * @return the indexes of the excerpts the scrubber has found whose checksums don't match, see
+     * {@link SingleChronicleQueueBuilder#scrubReleasedCycles(int)}
+     */
+    @NotNull
+    public List<Long> checksumFailures() {
+        return scrubber == null ? Collections.emptyList() : scrubber.failures();
+    }
+
+    /**
+     * @return the bytes of released cycles the scrubber has read
+     */
+    public long bytesScrubbed() {
+        return scrubber == null ? 0 : scrubber.bytesScrubbed();
+    }
+
+    @Nullable
+    MappingBudget.Lease mappingLease(@NotNull StoreTailer tailer) {
+        return mappingBudget == null ? null : mappingBudget.lease(tailer);
+    }
+
+    /**
+     * @return what the tailers have mapped, and how often they were unmapped to keep within the budget
+     * @throws IllegalStateException if the queue wasn't built with
+     *                               {@link SingleChronicleQueueBuilder#mappedBytesBudget(long)}
+     */
+    @NotNull
+    public MappingBudget mappingBudget() {
+        if (mappingBudget == null)
+            throw new IllegalStateException("The queue has no mapping budget " + fileAbsolutePath);
+        return mappingBudget;
+    }
+
+    /**
+     * @return the cycles dropped from the page cache so far, see {@link SingleChronicleQueueBuilder#evictConsumedCycles(boolean)}
+     */
+    public long pageCacheCyclesEvicted() {
+        return evictor == null ? 0 : evictor.cyclesEvicted();
+    }
+
+    /**
+     * @return the bytes of the cycle files dropped from the page cache so far
+     */
+    public long pageCacheBytesEvicted() {
+        return evictor == null ? 0 : evictor.bytesEvicted();
+    }
+
+    /**
+     * Close this process's mapping of a cycle file, unless it's held.
+     *
+     * @return whether it is no longer mapped
+     */
+    boolean closeCycleMapping(@NotNull File file) {
+        synchronized (pool) {
+            return storeSupplier.mappedFileCache.ifUnreferenced(Collections.singletonList(file), () -> {
+            });
+        }
+    }
+
+    @NotNull
+    File cycleFile(int cycle) {
+        return dateCache.resourceFor(cycle).path;
+    }
+
+    /**
+     * @return the cycle after this one which has a file, or Integer.MIN_VALUE if there isn't one
+     */
+    int nextCycleOrMinValue(int cycle) {
+        try {
+            final int next = nextCycle(cycle, TailerDirection.FORWARD);
+            return next < 0 ? Integer.MIN_VALUE : next;
+        } catch (ParseException | IllegalStateException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    long cycleFileLength(int cycle) {
+        final File file = dateCache.resourceFor(cycle).path;
+        return file.exists() ? file.length() : CycleArchive.archiveFor(file).length();
+    }
+
+    /**
+     * Delete a cycle's files unless it's held in this process, moving the directory listing on to
+     * {@code nextCycle} first. While it's checked and deleted, no store can be acquired.
+     *
+     * @return whether it was deleted
+     */
+    boolean removeCycle(int cycle, int nextCycle) {
+        final File file = dateCache.resourceFor(cycle).path;
+        synchronized (pool) {
+            return storeSupplier.mappedFileCache.ifUnreferenced(
+                    Arrays.asList(file, archivedCycles.restoredFile(file)), () -> {
+                        directoryListing.onCyclesRemovedBefore(nextCycle);
+                        if (!file.delete() && file.exists())
+                            LOG.warn("Unable to delete " + file);
+                        CycleArchive.archiveFor(file).delete();
+                        timeIndexFile(cycle).delete();
+                        archivedCycles.remove(file);
+                        forgetFirstExcerpt(cycle);
+                        firstAndLastCycleTime = 0;
+                    });
+        }
+    }
+
+    /**
+     * Delete a cycle's file once it has been archived, while tailers can't acquire a store, so a
+     * tailer can't map it as it's deleted and create an empty file in its place.
+     */
+    boolean deleteArchivedCycleFile(int cycle, @NotNull File file) {
+        synchronized (pool) {
+            forgetFirstExcerpt(cycle);
+            return file.delete();
+        }
+    }
+
+    /**
+     * The payload of the first excerpt of a cycle, read with the tailer the first time it is asked
+     * for and cached after that, so searching many cycles doesn't open each cycle's file every time.
+     *
+     * @return null if the cycle has no excerpts
+     */
+    @Nullable
+    byte[] firstExcerpt(int cycle, @NotNull ExcerptTailer tailer) {
+        synchronized (firstExcerpts) {
+            final byte[] payload = firstExcerpts.get(cycle);
+            if (payload != null)
+                return payload;
+        }
+        if (!tailer.moveToIndex(rollCycle.toIndex(cycle, 0)))
+            return null;
+        try (DocumentContext dc = tailer.readingDocument()) {
+            if (!dc.isPresent() || rollCycle.toCycle(dc.index()) != cycle)
+                return null;
+            final byte[] payload = dc.wire().bytes().toByteArray();
+            synchronized (firstExcerpts) {
+                firstExcerpts.put(cycle, payload);
+            }
+            return payload;
+        }
+    }
+
+    private void forgetFirstExcerpt(int cycle) {
+        synchronized (firstExcerpts) {
+            firstExcerpts.remove(cycle);
+        }
+    }
+
+    /**
+     * A {@link Spliterator} over the excerpts from {@code fromIndex}, inclusive, to {@code toIndex},
+     * exclusive, which splits by cycle and then by index block, each split reading with its own
+     * tailer. Only the excerpts in the queue when this is called are read.
+     *
+     * @param reader maps each excerpt to an element. The document context is only valid within the
+     *               call, and is called from the thread processing the split.
+     */
+    @NotNull
+    public <T> Spliterator<T> spliterator(long fromIndex, long toIndex, @NotNull Function<DocumentContext, ? extends T> reader) {
+        return queueSpliterator(fromIndex, toIndex, reader);
+    }
+
+    @NotNull
+    private <T> QueueSpliterator<T> queueSpliterator(long fromIndex, long toIndex, @NotNull Function<DocumentContext, ? extends T> reader) {
+        final int fromCycle = rollCycle.toCycle(fromIndex);
+        final long fromSeq = rollCycle.toSequenceNumber(fromIndex);
+        final int[] cycles;
+        final long[] ends;
+        int count = 0;
+        if (toIndex <= fromIndex) {
+            cycles = new int[0];
+            ends = new long[0];
+        } else {
+            final int toCycle = rollCycle.toCycle(toIndex - 1);
+            final NavigableSet<Long> existing;
+            try {
+                existing = listCyclesBetween(fromCycle, toCycle);
+            } catch (ParseException e) {
+                throw new IllegalStateException(e);
+            }
+            cycles = new int[existing.size()];
+            ends = new long[existing.size()];
+            for (long c : existing) {
+                final int cycle = Math.toIntExact(c);
+                long end = exceptsPerCycle(cycle);
+                if (cycle == toCycle)
+                    end = Math.min(end, rollCycle.toSequenceNumber(toIndex - 1) + 1);
+                final long start = cycle == fromCycle ? fromSeq : 0;
+                if (end <= start)
+                    continue;
+                cycles[count] = cycle;
+                ends[count++] = end;
+            }
+        }
+        final long startSeq = count > 0 && cycles[0] == fromCycle ? fromSeq : 0;
+        final long endSeq = count > 0 ? ends[count - 1] : 0;
+        return new QueueSpliterator<>(this, reader, cycles, ends, 0, count, startSeq, endSeq, ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * A stream of the excerpts from {@code fromIndex}, inclusive, to {@code toIndex}, exclusive,
+     * as read by {@link #spliterator(long, long, Function)}. Closing the stream releases the
+     * tailers of any splits which weren't read to the end.
+     */
+    @NotNull
+    public <T> Stream<T> stream(long fromIndex, long toIndex, @NotNull Function<DocumentContext, ? extends T> reader, boolean parallel) {
+        final QueueSpliterator<T> spliterator = queueSpliterator(fromIndex, toIndex, reader);
+        return StreamSupport.stream(spliterator, parallel).onClose(spliterator::closeTailers);
+    }
+
     /**
      * Will give you the number of excerpts between 2 index?s ( as exists on the current file
      * system ). If intermediate chronicle files are removed this will effect the result.
@@ -556,13 +1192,35 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
         if (isClosed.getAndSet(true))
             return;
 
-        closeQuietly(directoryListing, queueLock, writeLock);
+        // write out anything still buffered while the locks are open
+        boolean asyncBufferDrained = asyncBufferDrainer != null && asyncBufferDrainer.close(timeoutMS);
+        if (syncer != null)
+            syncer.close(timeoutMS);
+        if (indexer != null)
+            indexer.close(timeoutMS);
+        if (rollPreparer != null)
+            rollPreparer.close(timeoutMS);
+        if (archiver != null)
+            archiver.close(timeoutMS);
+        if (retention != null)
+            retention.close(timeoutMS);
+        if (readAhead != null)
+            readAhead.close(timeoutMS);
+        if (evictor != null)
+            evictor.close(timeoutMS);
+        if (scrubber != null)
+            scrubber.close(timeoutMS);
+
+        closeQuietly(appendNotifier, directoryListing, queueLock, writeLock);
 
         synchronized (closers) {
             closers.forEach((k, v) -> v.accept(k));
             closers.clear();
         }
         this.pool.close();
+        closeQuietly(densePositions);
+        if (asyncBufferDrained)
+            asyncRingBuffer.release();
     }
 
     @Override
@@ -691,6 +1349,51 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
         return this.bufferCapacity;
     }
 
+    /**
+     * Build the file for {@code cycle} ahead of time, with its header and first index written and
+     * the first {@code pretouchBytes} after them touched, so the appender which rolls to it only has
+     * to rename it into place. It is built under a temporary name, so it is never seen half written.
+     *
+     * @return the prepared file, or null if the cycle already has one.
+     */
+    @Nullable
+    File prepareCycleFile(int cycle, long pretouchBytes) throws IOException {
+        final RollingResourcesCache.Resource resource = dateCache.resourceFor(cycle);
+        final File prepared = PrecreatedFiles.preCreatedFile(resource.path);
+        if (resource.path.exists() || prepared.exists())
+            return null;
+        DiskSpaceMonitor.INSTANCE.pollDiskSpace(path);
+        resource.parentPath.mkdirs();
+
+        final File building = new File(prepared.getPath() + "." + Jvm.getProcessId() + ".tmp");
+        // left over if this process died part way through
+        building.delete();
+        final MappedBytes mappedBytes = MappedBytes.mappedBytes(mappedFile(building));
+        final AbstractWire wire = (AbstractWire) wireType.apply(mappedBytes);
+        wire.pauser(pauserSupplier.get());
+        wire.headerNumber(rollCycle.toIndex(cycle, 0) - 1);
+        if (!wire.writeFirstHeader()) {
+            mappedBytes.release();
+            throw new IllegalStateException(building + " was not empty");
+        }
+        final WireStore store = storeFactory.apply(this, wire);
+        try {
+            wire.updateFirstHeader();
+            store.initIndex(wire);
+            final long end = mappedBytes.writePosition() + pretouchBytes;
+            for (long pos = OS.pageAlign(mappedBytes.writePosition()); pos < end; pos += OS.pageSize())
+                mappedBytes.compareAndSwapLong(pos, 0L, 0L);
+        } finally {
+            store.release();
+        }
+
+        if (!building.renameTo(prepared)) {
+            building.delete();
+            return null;
+        }
+        return prepared;
+    }
+
     @NotNull
     private MappedFile mappedFile(File file) throws FileNotFoundException {
         long chunkSize = OS.pageAlign(blockSize);
@@ -750,10 +1453,7 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
 
     @NotNull
     private ToIntFunction<File> fileToCycleFunction() {
-        return f -> {
-            final String name = f.getName();
-            return dateCache.parseCount(name.substring(0, name.length() - SUFFIX.length()));
-        };
+        return f -> dateCache.parseCount(CycleArchive.cycleName(f.getName()));
     }
 
     void removeCloseListener(final StoreTailer storeTailer) {
@@ -795,20 +1495,25 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
                 if (!createIfAbsent &&
                         (cycle > directoryListing.getMaxCreatedCycle()
                                 || cycle < directoryListing.getMinCreatedCycle()
-                                || !path.exists())) {
+                                || !CycleArchive.exists(path))) {
                     return null;
                 }
 
-                final File parentFile = dateValue.parentPath;
-
-                if (createIfAbsent)
-                    checkDiskSpace(that.path);
-
-                if (!dateValue.pathExists && createIfAbsent && !path.exists()) {
-                    parentFile.mkdirs();
-                    PrecreatedFiles.renamePreCreatedFileToRequiredFile(path);
+                boolean preCreated = false;
+                if (!path.exists() && CycleArchive.archiveFor(path).exists()) {
+                    // an archived cycle is read from a restored copy
+                    path = archivedCycles.restore(path);
+                } else {
+                    final File parentFile = dateValue.parentPath;
+                    if (!dateValue.pathExists && createIfAbsent && !path.exists()) {
+                        parentFile.mkdirs();
+                        preCreated = PrecreatedFiles.renamePreCreatedFileToRequiredFile(path);
+                    }
+                    // a prepared file has been checked already
+                    if (createIfAbsent && !preCreated)
+                        checkDiskSpace(that.path);
+                    dateValue.pathExists = true;
                 }
-                dateValue.pathExists = true;
 
                 final MappedBytes mappedBytes = mappedFileCache.get(path);
 
@@ -831,6 +1536,9 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
                     directoryListing.onFileCreated(path, cycle);
                 } else {
                     wire.readFirstHeader(timeoutMS, TimeUnit.MILLISECONDS);
+                    // a file prepared ahead of the roll already has its header
+                    if (preCreated)
+                        directoryListing.onFileCreated(path, cycle);
 
                     StringBuilder name = Wires.acquireStringBuilder();
                     ValueIn valueIn = wire.readEventName(name);
@@ -853,6 +1561,8 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
                     }
                 }
 
+                if (densePositions != null && wireStore instanceof SingleChronicleQueueStore)
+                    ((SingleChronicleQueueStore) wireStore).densePositions(densePositions.forCycle(cycle));
                 return wireStore;
 
             } catch (@NotNull TimeoutException | IOException e) {
@@ -884,7 +1594,7 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
                 final RollingResourcesCache dateCache = SingleChronicleQueue.this.dateCache;
                 final NavigableMap<Long, File> tree = new TreeMap<>();
 
-                final File[] files = parentFile.listFiles((File file) -> file.getPath().endsWith(SUFFIX));
+                final File[] files = parentFile.listFiles((File file) -> CycleArchive.isCycleFile(file.getName()));
 
                 for (File file : files) {
                     tree.put(dateCache.toLong(file), file);
@@ -928,7 +1638,7 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
                         break;
                     }
                 }
-                fileFound |= currentCycleFile.exists();
+                fileFound |= CycleArchive.exists(currentCycleFile);
 
                 if (!fileFound) {
                     throw new IllegalStateException(
@@ -980,7 +1690,7 @@ public class SingleChronicleQueue implements RollingChronicleQueue {
 
         private Long toKey(int cyle, String m) {
             final File file = dateCache.resourceFor(cyle).path;
-            if (!file.exists())
+            if (!CycleArchive.exists(file))
                 throw new IllegalStateException("'file not found' for the " + m + ", file=" + file);
             return dateCache.toLong(file);
         }
@@ -47,6 +47,34 @@ import static net.openhft.chronicle.wire.WireType.DELTA_BINARY;
 public class SingleChronicleQueueBuilder<S extends SingleChronicleQueueBuilder>
         extends AbstractChronicleQueueBuilder<SingleChronicleQueueBuilder<S>> {
     private static final Logger LOGGER = LoggerFactory.getLogger(SingleChronicleQueueBuilder.class);
+    private int inProcessWriterHandoffs = 0;
+    private boolean deferredIndexing = false;
+    private boolean prepareNextCycle = false;
+    private boolean recordAppendLatencies = false;
+    private boolean fairWriteLock = false;
+    private boolean fastRecovery = false;
+    private boolean appendNotification = false;
+    private long densePositionIndexMemory = 0;
+    private int timeIndexSampleEvery = 0;
+    private long timeIndexSampleIntervalMS = 0;
+    private int archiveRawCycles = -1;
+    private long archiveCacheBytes = 1L << 30;
+    private long retentionMaxAgeMS = 0;
+    private long retentionMaxBytes = 0;
+    private long tailerReadAhead = 0;
+    private boolean evictConsumedCycles = false;
+    private long mappedBytesBudget = 0;
+    private boolean checksums = false;
+    private boolean verifyChecksums = false;
+    private int scrubReleasedCycles = 0;
+    @NotNull
+    private DurabilityPolicy durabilityPolicy = DurabilityPolicy.NONE;
+    @Nullable
+    private Supplier<BiConsumer<BytesStore, Bytes>> encodingSupplier;
+    @Nullable
+    private Supplier<BiConsumer<BytesStore, Bytes>> decodingSupplier;
+    @NotNull
+    private ExcerptCodec codec = ExcerptCodec.NONE;
 
     static {
         CLASS_ALIASES.addAlias(WireType.class);
@@ -188,8 +216,6 @@ public class SingleChronicleQueueBuilder<S extends SingleChronicleQueueBuilder>
     @Override
     @NotNull
     public SingleChronicleQueue build() {
-        if (buffered())
-            onlyAvailableInEnterprise("Buffering");
         super.preBuild();
         return new SingleChronicleQueue(this);
     }
@@ -214,12 +240,17 @@ public class SingleChronicleQueueBuilder<S extends SingleChronicleQueueBuilder>
 
     @Nullable
     public Supplier<BiConsumer<BytesStore, Bytes>> encodingSupplier() {
-        return null;
+        return encodingSupplier;
     }
 
     @Nullable
     public Supplier<BiConsumer<BytesStore, Bytes>> decodingSupplier() {
-        return null;
+        return decodingSupplier;
+    }
+
+    @NotNull
+    public ExcerptCodec codec() {
+        return codec;
     }
 
     @NotNull
@@ -232,11 +263,66 @@ public class SingleChronicleQueueBuilder<S extends SingleChronicleQueueBuilder>
         return this;
     }
 
+    /**
+     * Transform each excerpt as it is written and read. The encoder is given the excerpt as written
+     * by the caller and appends what is stored to the queue; the decoder reverses this. Each
+     * appender and tailer gets its own encoder and decoder from the suppliers. Meta data is not
+     * encoded. A queue created with custom suppliers is refused when opened without them.
+     *
+     * @param encodingSupplier supplies encoders, or null for none
+     * @param decodingSupplier supplies decoders, or null for none
+     * @return this
+     */
     @NotNull
     public SingleChronicleQueueBuilder codingSuppliers(@Nullable Supplier<BiConsumer<BytesStore, Bytes>> encodingSupplier,
                                                        @Nullable Supplier<BiConsumer<BytesStore, Bytes>> decodingSupplier) {
-        if (encodingSupplier != null || decodingSupplier != null)
-            onlyAvailableInEnterprise("Custom encoding");
+        this.encodingSupplier = encodingSupplier;
+        this.decodingSupplier = decodingSupplier;
+        this.codec = encodingSupplier == null && decodingSupplier == null ? ExcerptCodec.NONE : ExcerptCodec.CUSTOM;
+        return this;
+    }
+
+    /**
+     * Compress each excerpt with {@link LZ4BlockCodec}, which is fast enough to use on the
+     * critical path.
+     *
+     * @return this
+     */
+    @NotNull
+    public SingleChronicleQueueBuilder lz4Compression() {
+        codingSuppliers(LZ4BlockCodec.encodingSupplier(), LZ4BlockCodec.decodingSupplier());
+        codec = ExcerptCodec.LZ4;
+        return this;
+    }
+
+    /**
+     * Compress each excerpt with {@link DeflateCodec}, using a dictionary of typical content shared
+     * by every excerpt. The same dictionary must be used to read the queue.
+     *
+     * @param dictionary typical excerpt content, or null for none
+     * @param level      the Deflate compression level, 1 to 9
+     * @return this
+     */
+    @NotNull
+    public SingleChronicleQueueBuilder deflateCompression(@Nullable byte[] dictionary, int level) {
+        codingSuppliers(DeflateCodec.encodingSupplier(dictionary, level), DeflateCodec.decodingSupplier(dictionary));
+        codec = dictionary == null ? ExcerptCodec.DEFLATE : ExcerptCodec.DEFLATE_WITH_DICTIONARY;
+        return this;
+    }
+
+    /**
+     * Encode excerpts with a codec which needs nothing but its name, such as one recorded in the
+     * metadata of another queue.
+     *
+     * @param codec {@link ExcerptCodec#NONE}, or one which {@link ExcerptCodec#isImplied()}
+     * @return this
+     */
+    @NotNull
+    SingleChronicleQueueBuilder impliedCodec(@NotNull ExcerptCodec codec) {
+        if (codec != ExcerptCodec.NONE && !codec.isImplied())
+            throw new IllegalArgumentException(codec + " needs more than its name to encode and decode with");
+        codingSuppliers(codec.encodingSupplier(), codec.decodingSupplier());
+        this.codec = codec;
         return this;
     }
 
@@ -357,8 +443,363 @@ public class SingleChronicleQueueBuilder<S extends SingleChronicleQueueBuilder>
         return isQueueReplicationAvailable() && !readOnly() ? new TSQueueLock(path(), pauserSupplier(), timeoutMS() * 3 / 2) : new NoopQueueLock();
     }
 
+    /**
+     * When many threads in this process append to the same queue, let them queue on a local lock
+     * and hand the cross-process write lock from one to the next without releasing it.
+     *
+     * @param maxHandoffs the number of consecutive hand-overs before the cross-process lock is
+     *                    released so other processes can write, or 0 to disable.
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> inProcessWriterHandoffs(int maxHandoffs) {
+        if (maxHandoffs < 0)
+            throw new IllegalArgumentException("maxHandoffs must not be negative, was " + maxHandoffs);
+        this.inProcessWriterHandoffs = maxHandoffs;
+        return this;
+    }
+
+    public int inProcessWriterHandoffs() {
+        return inProcessWriterHandoffs;
+    }
+
+    /**
+     * Use a ticket lock, so writers in every process get the write lock in the order they asked
+     * for it. A lock held for too long isn't overridden; with {@link #fastRecovery(boolean)}, one
+     * held by a process known to have died is taken over once the lock's timeout has passed.
+     *
+     * @param fairWriteLock whether to use {@link TableStoreTicketWriteLock}
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> fairWriteLock(boolean fairWriteLock) {
+        this.fairWriteLock = fairWriteLock;
+        return this;
+    }
+
+    public boolean fairWriteLock() {
+        return fairWriteLock;
+    }
+
+    /**
+     * Recover from a writer which died holding the write lock. Once the lock's timeout has passed,
+     * a lock held by a process known to be no longer running is taken over, and the appender which
+     * gets it next clears what was left of the excerpt being written at the end of the queue,
+     * before writing. A process is only known not to be running on Linux in the host's PID
+     * namespace; elsewhere, such as in a container, the holder may be alive in another namespace,
+     * so what it was writing is left alone.
+     *
+     * @param fastRecovery whether to recover from a dead writer at once
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> fastRecovery(boolean fastRecovery) {
+        this.fastRecovery = fastRecovery;
+        return this;
+    }
+
+    public boolean fastRecovery() {
+        return fastRecovery;
+    }
+
+    /**
+     * @param durabilityPolicy when to force what has been written out to disk. The default,
+     *                         {@link DurabilityPolicy#NONE}, leaves it to the OS.
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> durabilityPolicy(@NotNull DurabilityPolicy durabilityPolicy) {
+        this.durabilityPolicy = durabilityPolicy;
+        return this;
+    }
+
+    @NotNull
+    public DurabilityPolicy durabilityPolicy() {
+        return durabilityPolicy;
+    }
+
+    /**
+     * Leave the index out of the append path. Appenders only write the excerpt, and a background
+     * thread adds it to the index afterwards, so appends don't pause while a new index is written.
+     * Until it catches up, moving a tailer to an index scans on from the last one indexed.
+     *
+     * @param deferredIndexing whether to index in the background
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> deferredIndexing(boolean deferredIndexing) {
+        this.deferredIndexing = deferredIndexing;
+        return this;
+    }
+
+    public boolean deferredIndexing() {
+        return deferredIndexing;
+    }
+
+    /**
+     * Build the file for the next cycle in the background, with its header and first index written
+     * and its first pages touched, so the appender which rolls to it only has to rename it into
+     * place.
+     *
+     * @param prepareNextCycle whether to prepare the next cycle's file ahead of the roll
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> prepareNextCycle(boolean prepareNextCycle) {
+        this.prepareNextCycle = prepareNextCycle;
+        return this;
+    }
+
+    public boolean prepareNextCycle() {
+        return prepareNextCycle;
+    }
+
+    /**
+     * Record how long each stage of an append takes, e.g. waiting for the lock, rolling, writing the
+     * header or indexing, to be read with {@link SingleChronicleQueue#appendLatencies(boolean)}.
+     * Queues which don't record them don't pay for it.
+     *
+     * @param recordAppendLatencies whether appenders record the time of each stage
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> recordAppendLatencies(boolean recordAppendLatencies) {
+        this.recordAppendLatencies = recordAppendLatencies;
+        return this;
+    }
+
+    public boolean recordAppendLatencies() {
+        return recordAppendLatencies;
+    }
+
+    /**
+     * Have appenders signal each append through the queue's metadata, so a tailer in
+     * {@link net.openhft.chronicle.queue.ExcerptTailer#readingDocument(long, java.util.concurrent.TimeUnit)} can park
+     * until there is something to read rather than poll. Appenders in every process writing to the
+     * queue should set it; the appends of one which doesn't are only seen when the tailer next
+     * looks at the queue, every {@code chronicle.queue.notifier.recheckMicros}.
+     *
+     * @param appendNotification whether appenders signal waiting tailers
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> appendNotification(boolean appendNotification) {
+        this.appendNotification = appendNotification;
+        return this;
+    }
+
+    public boolean appendNotification() {
+        return appendNotification;
+    }
+
+    /**
+     * Keep, in this process, the position of every 64th excerpt which tailers scan past between the
+     * entries of a sparse index, e.g. with the {@code XSPARSE} roll cycles, so later moves to an
+     * index scan from the nearest one. The positions are kept off heap, within this budget, freeing
+     * the cycles used least recently.
+     *
+     * @param densePositionIndexMemory the bytes to keep positions in, or 0 not to keep them
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> densePositionIndexMemory(long densePositionIndexMemory) {
+        this.densePositionIndexMemory = densePositionIndexMemory;
+        return this;
+    }
+
+    public long densePositionIndexMemory() {
+        return densePositionIndexMemory;
+    }
+
+    /**
+     * Have appenders keep a time index beside each cycle, to be searched by
+     * {@link net.openhft.chronicle.queue.ExcerptTailer#moveToTime(long)}. The time of the first
+     * excerpt in a cycle is sampled, then that of the next excerpt once {@code sampleEvery}
+     * excerpts or {@code sampleIntervalMS} have passed, whichever comes first.
+     *
+     * @param sampleEvery      the most excerpts between samples
+     * @param sampleIntervalMS the longest time between samples
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> timeIndex(int sampleEvery, long sampleIntervalMS) {
+        if (sampleEvery <= 0)
+            throw new IllegalArgumentException("sampleEvery must be positive, was " + sampleEvery);
+        this.timeIndexSampleEvery = sampleEvery;
+        this.timeIndexSampleIntervalMS = sampleIntervalMS;
+        return this;
+    }
+
+    public int timeIndexSampleEvery() {
+        return timeIndexSampleEvery;
+    }
+
+    public long timeIndexSampleIntervalMS() {
+        return timeIndexSampleIntervalMS;
+    }
+
+    /**
+     * Archive the cycles this process has finished with, compressing each cycle's file into one
+     * with {@code z} added to its name, and deleting the original. Tailers read archived cycles as
+     * they do any other, restoring them into {@code archive-cache} under the queue's directory the
+     * first time, which is bounded by {@link #archiveCacheBytes(long)}.
+     *
+     * @param rawCycles the cycles before the current one which are never archived, or -1 not to
+     *                  archive any
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> archiveReleasedCycles(int rawCycles) {
+        this.archiveRawCycles = rawCycles;
+        return this;
+    }
+
+    public int archiveReleasedCycles() {
+        return archiveRawCycles;
+    }
+
+    /**
+     * @param archiveCacheBytes the most bytes of archived cycles this process keeps restored
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> archiveCacheBytes(long archiveCacheBytes) {
+        this.archiveCacheBytes = archiveCacheBytes;
+        return this;
+    }
+
+    public long archiveCacheBytes() {
+        return archiveCacheBytes;
+    }
+
+    /**
+     * Delete cycles from the start of the queue, from a background thread, once they ended more
+     * than {@code maxAgeMS} ago, or while all the cycles take more than {@code maxBytes}. The last
+     * cycle, the cycles registered consumers haven't read past, see
+     * {@link SingleChronicleQueue#registerConsumer(net.openhft.chronicle.queue.ExcerptTailer)}, and
+     * those still held in this process are kept.
+     *
+     * @param maxAgeMS the age at which a cycle is deleted, or 0 for no limit
+     * @param maxBytes the most bytes of cycle files to keep, or 0 for no limit
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> retention(long maxAgeMS, long maxBytes) {
+        this.retentionMaxAgeMS = maxAgeMS;
+        this.retentionMaxBytes = maxBytes;
+        return this;
+    }
+
+    public long retentionMaxAgeMS() {
+        return retentionMaxAgeMS;
+    }
+
+    public long retentionMaxBytes() {
+        return retentionMaxBytes;
+    }
+
+    /**
+     * Have a background thread read ahead of tailers which are reading forward through the queue,
+     * so one catching up on old cycles isn't held up by a page fault on each page it reads. It
+     * reads through the files into the page cache, up to this many bytes past each tailer, and on
+     * into the next cycle.
+     *
+     * @param tailerReadAhead the bytes to read ahead of each tailer, or 0 not to read ahead
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> tailerReadAhead(long tailerReadAhead) {
+        this.tailerReadAhead = tailerReadAhead;
+        return this;
+    }
+
+    public long tailerReadAhead() {
+        return tailerReadAhead;
+    }
+
+    /**
+     * Drop the pages of cycles which every registered consumer has read past from the page cache,
+     * once this process has released them, so a cycle which has been rolled and read doesn't push
+     * out the pages live consumers need. See
+     * {@link SingleChronicleQueue#registerConsumer(net.openhft.chronicle.queue.ExcerptTailer)}
+     * and {@link SingleChronicleQueue#pageCacheBytesEvicted()}.
+     *
+     * @param evictConsumedCycles whether to evict consumed cycles
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> evictConsumedCycles(boolean evictConsumedCycles) {
+        this.evictConsumedCycles = evictConsumedCycles;
+        return this;
+    }
+
+    public boolean evictConsumedCycles() {
+        return evictConsumedCycles;
+    }
+
+    /**
+     * Unmap tailers which aren't in use, least recently mapped first, while what the queue's
+     * tailers have mapped is over this many bytes, so a process with many tailers over a long
+     * history doesn't run into {@code vm.max_map_count} or its RSS limit. An unmapped tailer maps
+     * its cycle again when it next reads. See {@link SingleChronicleQueue#mappingBudget()}.
+     *
+     * @param mappedBytesBudget the bytes tailers may map, or 0 for no limit
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> mappedBytesBudget(long mappedBytesBudget) {
+        this.mappedBytesBudget = mappedBytesBudget;
+        return this;
+    }
+
+    public long mappedBytesBudget() {
+        return mappedBytesBudget;
+    }
+
+    /**
+     * Write a CRC32C ahead of the payload of each data excerpt, which tailers skip. This can only
+     * be turned on when the queue is created, after which it's kept in the queue's metadata, so
+     * the queue is always written and read with checksums; a read-only queue has to be built with
+     * it as well.
+     *
+     * @param checksums whether excerpts have checksums
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> checksums(boolean checksums) {
+        this.checksums = checksums;
+        return this;
+    }
+
+    public boolean checksums() {
+        return checksums;
+    }
+
+    /**
+     * Have tailers check the checksum of each excerpt they read, see {@link #checksums(boolean)}.
+     * A tailer which reads an excerpt whose checksum doesn't match throws an
+     * {@link IllegalStateException} and stays at it, until it's moved past it.
+     *
+     * @param verifyChecksums whether tailers check checksums
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> verifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+        return this;
+    }
+
+    public boolean verifyChecksums() {
+        return verifyChecksums;
+    }
+
+    /**
+     * Check the checksums of each cycle this process releases, from a background thread, reading
+     * no more than this many MB a second. See {@link SingleChronicleQueue#checksumFailures()}.
+     *
+     * @param mbPerSecond the rate to scrub at, or 0 not to scrub
+     * @return this
+     */
+    public SingleChronicleQueueBuilder<S> scrubReleasedCycles(int mbPerSecond) {
+        this.scrubReleasedCycles = mbPerSecond;
+        return this;
+    }
+
+    public int scrubReleasedCycles() {
+        return scrubReleasedCycles;
+    }
+
     @NotNull
     protected WriteLock writeLock() {
-        return readOnly() ? new ReadOnlyWriteLock() : new TableStoreWriteLock(path(), pauserSupplier(), timeoutMS() * 3 / 2);
+        if (readOnly())
+            return new ReadOnlyWriteLock();
+        WriteLock writeLock = fairWriteLock
+                ? new TableStoreTicketWriteLock(path(), pauserSupplier(), timeoutMS() * 3 / 2, fastRecovery)
+                : new TableStoreWriteLock(path(), pauserSupplier(), timeoutMS() * 3 / 2, fastRecovery);
+        return inProcessWriterHandoffs > 0
+                ? new InProcessHandoffWriteLock(writeLock, inProcessWriterHandoffs)
+                : writeLock;
     }
 }
\ No newline at end of file
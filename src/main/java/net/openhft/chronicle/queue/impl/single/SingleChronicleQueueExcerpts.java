@@ -31,10 +31,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.StreamCorruptedException;
 import java.nio.BufferOverflowException;
 import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import static net.openhft.chronicle.queue.TailerDirection.*;
 import static net.openhft.chronicle.queue.TailerState.*;
@@ -92,10 +95,29 @@ public class SingleChronicleQueueExcerpts {
         @Nullable
         private Pretoucher pretoucher = null;
         private Padding padToCacheLines = Padding.SMART;
+        private long[] batchPositions = new long[16];
+        @Nullable
+        private final BiConsumer<BytesStore, Bytes> encoder;
+        private final boolean deferredIndexing;
+        @Nullable
+        private final AppendLatencies latencies;
+        @Nullable
+        private final AppendNotifier notifier;
+        // the time index of the cycle last appended to, if one is kept
+        @Nullable
+        private TimeIndex timeIndex;
+        private int timeIndexCycle = Integer.MIN_VALUE;
+        @Nullable
+        private final ExcerptChecksum checksum;
 
         StoreAppender(@NotNull SingleChronicleQueue queue, @NotNull WireStorePool storePool) {
             this.queue = queue;
             this.writeLock = queue.writeLock();
+            this.encoder = queue.newEncoder();
+            this.deferredIndexing = queue.deferredIndexing();
+            this.latencies = queue.newAppendLatencies();
+            this.notifier = queue.appendNotifier();
+            this.checksum = queue.checksums ? new ExcerptChecksum() : null;
             queue.addCloseListener(this, StoreAppender::close);
             context = new StoreAppenderContext();
             this.storePool = storePool;
@@ -166,6 +188,12 @@ public class SingleChronicleQueueExcerpts {
 
             if (pretoucher != null)
                 pretoucher.close();
+            if (latencies != null)
+                queue.closeAppendLatencies(latencies);
+            if (timeIndex != null) {
+                timeIndex.release();
+                timeIndex = null;
+            }
 
             if (store != null) {
                 storePool.release(store);
@@ -302,7 +330,9 @@ public class SingleChronicleQueueExcerpts {
                 throw new IllegalStateException("Queue is closed");
             if (Thread.currentThread().isInterrupted())
                 throw new IllegalStateException("Queue won't write from an interrupted thread");
-            writeLock.lock();
+            long time = startTiming();
+            acquireWriteLock();
+            time = sample(AppendLatencies.Stage.LOCK, time);
             assert checkWritePositionHeaderNumber();
             int cycle = queue.cycle();
 
@@ -314,12 +344,21 @@ public class SingleChronicleQueueExcerpts {
                 setCycle2(lastCycle, true);
             }
 
-            if (this.cycle != cycle)
+            if (this.cycle != cycle) {
                 rollCycleTo(cycle);
+                time = sample(AppendLatencies.Stage.ROLL, time);
+            }
 
             int safeLength = (int) queue.overlapSize();
 
             openContext(metaData, safeLength);
+            sample(AppendLatencies.Stage.HEADER, time);
+            if (encoder != null && !metaData) {
+                // written to a buffer, and encoded into the queue on close.
+                context.wire = acquireBufferWire();
+                context.wire.headerNumber(wire.headerNumber());
+                context.encode = true;
+            }
             return context;
         }
 
@@ -350,9 +389,34 @@ public class SingleChronicleQueueExcerpts {
             position(writeHeader(wire, safeLength));
             context.isClosed = false;
             context.rollbackOnClose = false;
+            context.encode = false;
             context.wire = wire; // Jvm.isDebug() ? acquireBufferWire() : wire;
             context.padToCacheAlign = padToCacheAlignMode() != Padding.NEVER;
+            context.checksumReserved = false;
             context.metaData(metaData);
+            if (!metaData && checksum != null) {
+                reserveChecksum();
+                context.checksumReserved = true;
+            }
+        }
+
+        /**
+         * Leaves room for the checksum of a data excerpt ahead of its payload.
+         */
+        private void reserveChecksum() {
+            if (checksum != null)
+                wire.bytes().writeInt(0);
+        }
+
+        /**
+         * Writes the checksum of the excerpt at {@code position}, once the rest of it is written.
+         */
+        private void writeChecksum() {
+            if (checksum == null)
+                return;
+            final Bytes<?> bytes = wire.bytes();
+            final long at = position + SPB_HEADER_SIZE;
+            bytes.writeInt(at, checksum.checksum(bytes, at + ExcerptChecksum.SIZE, bytes.writePosition()));
         }
 
         boolean checkWritePositionHeaderNumber() {
@@ -386,7 +450,7 @@ public class SingleChronicleQueueExcerpts {
         @NotNull
         @Override
         public DocumentContext writingDocument(long index) {
-            writeLock.lock();
+            acquireWriteLock();
             context.isClosed = false;
             context.wire = acquireBufferWire();
             context.wire.headerNumber(index);
@@ -401,27 +465,165 @@ public class SingleChronicleQueueExcerpts {
 
         @Override
         public void writeBytes(@NotNull BytesStore bytes) throws UnrecoverableTimeoutException {
-            writeLock.lock();
+            long time = startTiming();
+            acquireWriteLock();
+            time = sample(AppendLatencies.Stage.LOCK, time);
             try {
                 int cycle = queue.cycle();
-                if (this.cycle != cycle || wire == null)
+                if (this.cycle != cycle || wire == null) {
                     rollCycleTo(cycle);
+                    time = sample(AppendLatencies.Stage.ROLL, time);
+                }
 
                 position(writeHeader(wire, (int) queue.overlapSize()));
+                time = sample(AppendLatencies.Stage.HEADER, time);
                 assert ((AbstractWire) wire).isInsideHeader();
                 beforeAppend(wire, wire.headerNumber() + 1);
-                wire.bytes().write(bytes);
+                reserveChecksum();
+                writePayload(bytes);
+                writeChecksum();
                 wire.updateHeader(position, false, 0);
+                time = sample(AppendLatencies.Stage.WRITE, time);
                 lastIndex(wire.headerNumber());
                 lastPosition = position;
                 lastCycle = cycle;
                 store.writePosition(position);
                 writeIndexForPosition(lastIndex, position);
+                sampleTime(lastIndex);
+                sample(AppendLatencies.Stage.INDEX, time);
             } catch (StreamCorruptedException e) {
                 throw new AssertionError(e);
             } finally {
                 writeLock.unlock();
+                notifyAppended();
+            }
+        }
+
+        /**
+         * Writes {@code count} excerpts under one write lock acquisition. The headers are laid out
+         * back to back, the write position is published once and the index is updated in one pass
+         * at the end, rather than once per excerpt.
+         */
+        @Override
+        public void writeBytes(@NotNull BytesStore[] bytes, int count) throws UnrecoverableTimeoutException {
+            if (count > bytes.length)
+                throw new IllegalArgumentException("count: " + count + " > bytes.length: " + bytes.length);
+            if (count <= 0)
+                return;
+
+            long time = startTiming();
+            acquireWriteLock();
+            time = sample(AppendLatencies.Stage.LOCK, time);
+            try {
+                int cycle = queue.cycle();
+                if (this.cycle != cycle || wire == null) {
+                    rollCycleTo(cycle);
+                    time = sample(AppendLatencies.Stage.ROLL, time);
+                }
+
+                int safeLength = (int) queue.overlapSize();
+                long[] positions = batchPositions(count);
+                long maxUnpublished = queue.blockSize() / 2;
+                position(writeHeader(wire, safeLength));
+                long firstIndex = wire.headerNumber() + 1;
+                int published = 0;
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        // don't let the unpublished part of the batch run further than the mapping allows
+                        if (wire.bytes().writePosition() - store.writePosition() > maxUnpublished) {
+                            publishBatch(firstIndex, positions, published, i);
+                            published = i;
+                        }
+                        position(wire.enterHeader(safeLength));
+                    }
+                    assert ((AbstractWire) wire).isInsideHeader();
+                    beforeAppend(wire, wire.headerNumber() + 1);
+                    reserveChecksum();
+                    writePayload(bytes[i]);
+                    writeChecksum();
+                    wire.updateHeader(position, false, 0);
+                    positions[i] = position;
+                }
+                publishBatch(firstIndex, positions, published, count);
+                sample(AppendLatencies.Stage.WRITE, time);
+            } catch (StreamCorruptedException e) {
+                throw new AssertionError(e);
+            } finally {
+                writeLock.unlock();
+                notifyAppended();
+            }
+        }
+
+        /**
+         * Add the excerpt just appended to the time index of its cycle, if one is kept and it is
+         * due a sample. Called holding the write lock.
+         */
+        private void sampleTime(long index) {
+            if (queue.timeIndexSampleEvery <= 0)
+                return;
+            final int cycle = queue.rollCycle().toCycle(index);
+            if (timeIndex == null || timeIndexCycle != cycle) {
+                if (timeIndex != null)
+                    timeIndex.release();
+                timeIndex = null;
+                try {
+                    timeIndex = TimeIndex.open(queue.timeIndexFile(cycle), false);
+                } catch (IOException e) {
+                    throw new IORuntimeException(e);
+                }
+                timeIndexCycle = cycle;
             }
+            timeIndex.sample(queue.time().currentTimeMillis(), index,
+                    queue.timeIndexSampleEvery, queue.timeIndexSampleIntervalMS);
+        }
+
+        private void notifyAppended() {
+            if (notifier != null)
+                notifier.published();
+        }
+
+        private long startTiming() {
+            return latencies == null ? 0 : System.nanoTime();
+        }
+
+        /**
+         * Record the time since {@code start} against {@code stage}, if timings are recorded.
+         *
+         * @return the time now, the start of the next stage
+         */
+        private long sample(@NotNull AppendLatencies.Stage stage, long start) {
+            if (latencies == null)
+                return 0;
+            long now = System.nanoTime();
+            latencies.sample(stage, now - start);
+            return now;
+        }
+
+        private void writePayload(@NotNull BytesStore bytes) {
+            if (encoder == null)
+                wire.bytes().write(bytes);
+            else
+                encoder.accept(bytes, wire.bytes());
+        }
+
+        private long[] batchPositions(int count) {
+            if (batchPositions.length < count)
+                batchPositions = new long[Math.max(count, batchPositions.length * 2)];
+            return batchPositions;
+        }
+
+        private void publishBatch(long firstIndex, long[] positions, int from, int to) throws StreamCorruptedException {
+            long lastPosition = positions[to - 1];
+            lastIndex(firstIndex + to - 1);
+            this.lastPosition = lastPosition;
+            lastCycle = cycle;
+            store.writePosition(lastPosition);
+            sampleTime(firstIndex + from);
+            long firstSequenceNumber = queue.rollCycle().toSequenceNumber(firstIndex + from);
+            if (deferredIndexing)
+                ((SingleChronicleQueueStore) store).setLastSequence(firstSequenceNumber + to - from - 1, lastPosition);
+            else
+                store.setPositionForSequenceNumbers(this, firstSequenceNumber, positions, from, to - from);
         }
 
         @NotNull
@@ -450,7 +652,7 @@ public class SingleChronicleQueueExcerpts {
             if (queue.isClosed.get())
                 throw new IllegalStateException("Queue is closed");
 
-            writeLock.lock();
+            acquireWriteLock();
             try {
                 int cycle = queue.rollCycle().toCycle(index);
 
@@ -471,6 +673,7 @@ public class SingleChronicleQueueExcerpts {
                 writeBytesInternal(index, bytes);
             } finally {
                 writeLock.unlock();
+                notifyAppended();
             }
         }
 
@@ -485,7 +688,7 @@ public class SingleChronicleQueueExcerpts {
                 openContext(false, safeLength);
 
                 try {
-                    context.wire().bytes().write(bytes);
+                    writePayload(bytes);
                 } finally {
                     context.close(false);
                 }
@@ -555,6 +758,23 @@ public class SingleChronicleQueueExcerpts {
         void beforeAppend(Wire wire, long index) {
         }
 
+        /**
+         * Takes the write lock and, with fast recovery, clears what a writer it was taken over from
+         * left at the end of the queue before anything is written after it.
+         */
+        private void acquireWriteLock() {
+            writeLock.lock();
+            if (queue.fastRecovery && writeLock.takenOver()) {
+                try {
+                    TornTailRecovery.recover(queue);
+                } catch (RuntimeException e) {
+                    writeLock.unlock();
+                    throw e;
+                }
+                writeLock.recovered();
+            }
+        }
+
         private void rollCycleTo(int cycle) throws UnrecoverableTimeoutException {
             if (wire != null) {
                 // only a valid check if the wire was set.
@@ -568,7 +788,7 @@ public class SingleChronicleQueueExcerpts {
         /**
          * Write an EOF marker on the current cycle if it is about to roll. It would do this any way
          * if a new message was written, but this doesn't create a new cycle or add a message.
-         * Only used by tests.
+         * Used by tests, and by {@link QueueReroller} to end each cycle it writes but the last.
          */
         void writeEndOfCycleIfRequired() {
             if (wire != null && queue.cycle() != cycle) {
@@ -580,7 +800,10 @@ public class SingleChronicleQueueExcerpts {
                 throws UnrecoverableTimeoutException, StreamCorruptedException {
 
             long sequenceNumber = queue.rollCycle().toSequenceNumber(index);
-            store.setPositionForSequenceNumber(this, sequenceNumber, position);
+            if (deferredIndexing)
+                ((SingleChronicleQueueStore) store).setLastSequence(sequenceNumber, position);
+            else
+                store.setPositionForSequenceNumber(this, sequenceNumber, position);
         }
 
         boolean checkIndex(long index, long position) {
@@ -626,6 +849,9 @@ public class SingleChronicleQueueExcerpts {
 
             boolean isClosed;
             boolean padToCacheAlign = true;
+            boolean encode = false;
+            // room has been left for the checksum of a data excerpt
+            boolean checksumReserved = false;
             private boolean metaData = false;
             private boolean rollbackOnClose = false;
             @Nullable
@@ -653,6 +879,8 @@ public class SingleChronicleQueueExcerpts {
 
             @Override
             public void metaData(boolean metaData) {
+                if (metaData && checksumReserved)
+                    throw new IllegalStateException("A metadata excerpt has to be opened with writingDocument(true) when the queue has checksums");
                 this.metaData = metaData;
             }
 
@@ -684,6 +912,17 @@ public class SingleChronicleQueueExcerpts {
 
                 try {
                     final boolean interrupted = Thread.currentThread().isInterrupted();
+                    if (encode) {
+                        encode = false;
+                        Bytes<?> buffer = wire.bytes();
+                        wire = StoreAppender.this.wire;
+                        if (!rollbackOnClose && !interrupted) {
+                            if (metaData)
+                                wire.bytes().write(buffer);
+                            else
+                                encoder.accept(buffer, wire.bytes());
+                        }
+                    }
                     if (rollbackOnClose || interrupted) {
                         if (interrupted)
                             LOG.warn("Thread is interrupted. Can't guarantee complete message, so not committing");
@@ -697,8 +936,11 @@ public class SingleChronicleQueueExcerpts {
                     }
 
                     if (wire == StoreAppender.this.wire) {
+                        long time = startTiming();
                         if (padToCacheAlign)
                             wire.padToCacheAlign();
+                        if (checksumReserved)
+                            writeChecksum();
 
                         try {
                             wire.updateHeader(position, metaData, 0);
@@ -706,6 +948,7 @@ public class SingleChronicleQueueExcerpts {
                             if (queue.isClosed())
                                 return;
                         } 
+                        time = sample(AppendLatencies.Stage.COMMIT, time);
 
                         lastPosition = position;
                         lastCycle = cycle;
@@ -713,10 +956,12 @@ public class SingleChronicleQueueExcerpts {
                         if (!metaData) {
                             lastIndex(wire.headerNumber());
                             store.writePosition(position);
-                            if (lastIndex != Long.MIN_VALUE)
+                            if (lastIndex != Long.MIN_VALUE) {
                                 writeIndexForPosition(lastIndex, position);
-                            else
+                                sampleTime(lastIndex);
+                            } else
                                 assert lastIndex == Long.MIN_VALUE || checkIndex(lastIndex, position);
+                            sample(AppendLatencies.Stage.INDEX, time);
                         }
                         assert checkWritePositionHeaderNumber();
                     } else if (wire != null) {
@@ -733,6 +978,7 @@ public class SingleChronicleQueueExcerpts {
                         } catch (Exception ex) {
                             Jvm.warn().on(getClass(), "Exception while unlocking: ", ex);
                         }
+                    notifyAppended();
                 }
             }
 
@@ -770,6 +1016,7 @@ public class SingleChronicleQueueExcerpts {
         private volatile Bytes wireReference = null;
         private volatile Bytes bufferWireReference = null;
         private volatile Bytes wireForIndexReference = null;
+        private volatile Bytes decodedWireReference = null;
         private volatile CommonStore storeReference = null;
 
         ClosableResources(final SingleChronicleQueue queue) {
@@ -787,6 +1034,7 @@ public class SingleChronicleQueueExcerpts {
             releaseIfNotNull(wireForIndexReference);
             releaseIfNotNull(wireReference);
             releaseIfNotNull(bufferWireReference);
+            releaseIfNotNull(decodedWireReference);
 
             // Object is no longer reachable, check that it has not already been released
             if (storeReference != null && storeReference.refCount() > 0) {
@@ -800,6 +1048,7 @@ public class SingleChronicleQueueExcerpts {
      */
     public static class StoreTailer implements ExcerptTailer, SourceContext, ExcerptContext {
         static final int INDEXING_LINEAR_SCAN_THRESHOLD = 70;
+        static final int MAX_BACKWARD_BLOCK = Integer.getInteger("chronicle.tailer.maxBackwardBlock", 1024);
         @NotNull
         private final SingleChronicleQueue queue;
         private final StoreTailerContext context = new StoreTailerContext();
@@ -819,9 +1068,33 @@ public class SingleChronicleQueueExcerpts {
         private long indexAtCreation = Long.MIN_VALUE;
         private boolean readingDocumentFound = false;
         private long address = NoBytesStore.NO_PAGE;
+        @Nullable
+        private final BiConsumer<BytesStore, Bytes> decoder;
+        @Nullable
+        private Wire decodedWire;
+        @Nullable
+        private final ReadAhead.Cursor readAhead;
+        // the positions of the excerpts of the block being read backward
+        private long[] backwardPositions;
+        @Nullable
+        private WireStore backwardStore;
+        private long backwardFromSeq;
+        private int backwardCount;
+        @Nullable
+        private final MappingBudget.Lease mapping;
+        // where to carry on from after being unmapped to keep within the mapping budget
+        private long unmappedIndex = Long.MIN_VALUE;
+        // a document is open or a handler is being called, so it can't be unmapped
+        private boolean busy = false;
+        @Nullable
+        private final ExcerptChecksum checksum;
 
         public StoreTailer(@NotNull final SingleChronicleQueue queue) {
             this.queue = queue;
+            this.decoder = queue.newDecoder();
+            this.readAhead = queue.readAheadCursor();
+            this.mapping = queue.mappingLease(this);
+            this.checksum = queue.checksums ? new ExcerptChecksum() : null;
             this.setCycle(Integer.MIN_VALUE);
             this.index = 0;
             queue.addCloseListener(this, StoreTailer::close);
@@ -881,6 +1154,94 @@ public class SingleChronicleQueueExcerpts {
             return true;
         }
 
+        @Override
+        public int readBatch(@NotNull ReadBytesMarshallable handler, int maxMessages) {
+            int count = 0;
+            while (count < maxMessages) {
+                // readBytes takes care of moving between cycles, and of waiting for or skipping headers
+                if (!readBytes(handler))
+                    break;
+                count++;
+                if (count < maxMessages && canReadDirectly())
+                    count += readBatchInCycle(handler, maxMessages - count);
+            }
+            return count;
+        }
+
+        private boolean canReadDirectly() {
+            return state == FOUND_CYCLE && direction == FORWARD && decoder == null
+                    && !readAfterReplicaAcknowledged && wire() != null;
+        }
+
+        @Override
+        public boolean readRaw(@NotNull RawExcerptHandler handler) {
+            useMapping(false);
+            if (canReadDirectly()) {
+                final Bytes<?> bytes = wire().bytes();
+                final long start = bytes.readPosition();
+                final int header = bytes.peekVolatileInt();
+                if (isReadyData(header)) {
+                    final long end = start + SPB_HEADER_SIZE + lengthOf(header);
+                    final long index = this.index;
+                    bytes.readLimit(end).readPosition(start + SPB_HEADER_SIZE);
+                    if (checksum != null && !readChecksum(bytes))
+                        throw checksumMismatch();
+                    busy = true;
+                    try {
+                        handler.onExcerpt(index, bytes);
+                    } finally {
+                        busy = false;
+                        bytes.readLimit(bytes.capacity()).readPosition(end);
+                        incrementIndex();
+                        address = bytes.addressForRead(end, 4);
+                        if (readAhead != null)
+                            readAhead.onRead(cycle, end, direction);
+                    }
+                    return true;
+                }
+            }
+            // meta data, an incomplete header, the end of the cycle or a tailer which can't read directly
+            return ExcerptTailer.super.readRaw(handler);
+        }
+
+        /**
+         * Reads the excerpts which follow in this cycle without a document context per excerpt,
+         * stopping at the first header which isn't complete yet, and moves the index once at the end.
+         */
+        private int readBatchInCycle(@NotNull ReadBytesMarshallable handler, int maxMessages) {
+            final RollCycle rollCycle = queue.rollCycle();
+            final Wire wire = wire();
+            final Bytes<?> bytes = wire.bytes();
+            final long seq = rollCycle.toSequenceNumber(index);
+            int count = 0;
+            busy = true;
+            try {
+                while (count < maxMessages && wire.readDataHeader(false) == WireIn.HeaderType.DATA) {
+                    wire.readAndSetLength(bytes.readPosition());
+                    if (checksum != null && !readChecksum(bytes))
+                        throw checksumMismatch();
+                    final long end = bytes.readLimit();
+                    // as with readingDocument, an excerpt the handler throws on is still consumed
+                    count++;
+                    try {
+                        handler.readMarshallable(bytes);
+                    } finally {
+                        bytes.readLimit(bytes.capacity()).readPosition(end);
+                    }
+                }
+            } catch (EOFException eof) {
+                state = END_OF_CYCLE;
+            } finally {
+                busy = false;
+                if (count > 0)
+                    this.index = rollCycle.toIndex(rollCycle.toCycle(index), seq + count);
+                address = bytes.addressForRead(bytes.readPosition(), 4);
+                if (readAhead != null)
+                    readAhead.onRead(cycle, bytes.readPosition(), direction);
+            }
+            return count;
+        }
+
         @Override
         @NotNull
         public DocumentContext readingDocument() {
@@ -898,15 +1259,20 @@ public class SingleChronicleQueueExcerpts {
             if (w0 != null)
                 w0.bytes().release();
             wireForIndex = null;
+            Wire dw = decodedWire;
+            decodedWire = null;
+            if (dw != null)
+                dw.bytes().release();
             if (store != null) {
                 queue.release(store);
             }
             store = null;
+            storeChanged();
         }
 
         @Override
         public Wire wire() {
-            return context.wire();
+            return context.storeWire();
         }
 
         @Override
@@ -937,6 +1303,7 @@ public class SingleChronicleQueueExcerpts {
         @Override
         public DocumentContext readingDocument(boolean includeMetaData) {
             Jvm.optionalSafepoint();
+            useMapping(false);
 
             if (queue.isClosed.get())
                 throw new IllegalStateException("Queue is closed");
@@ -956,11 +1323,20 @@ public class SingleChronicleQueueExcerpts {
                     next = next0(includeMetaData);
 
                 Jvm.optionalSafepoint();
+                if (next && checksum != null && !context.isMetaData() && !readChecksum(context.storeWire().bytes())) {
+                    context.present(false);
+                    throw checksumMismatch();
+                }
                 if (context.present(next)) {
-                    Bytes<?> bytes = context.wire().bytes();
+                    Bytes<?> bytes = context.storeWire().bytes();
                     context.setStart(bytes.readPosition() - 4);
                     readingDocumentFound = true;
+                    busy = true;
                     address = bytes.addressForRead(bytes.readPosition(), 4);
+                    if (readAhead != null)
+                        readAhead.onRead(cycle, bytes.readPosition(), direction);
+                    if (decoder != null && !context.isMetaData())
+                        context.decodedWire(decode(bytes));
                     Jvm.optionalSafepoint();
                     return context;
                 }
@@ -976,10 +1352,10 @@ public class SingleChronicleQueueExcerpts {
                     // since we can't find an entry at current index, indicate that we're at the end of a cycle
                     state = TailerState.END_OF_CYCLE;
                 }
-                if (context.wire() == null) {
+                if (context.storeWire() == null) {
                     address = NoBytesStore.NO_PAGE;
                 } else {
-                    Bytes<?> bytes = context.wire().bytes();
+                    Bytes<?> bytes = context.storeWire().bytes();
                     address = bytes.addressForRead(bytes.readPosition(), 4);
                 }
             } catch (StreamCorruptedException e) {
@@ -999,8 +1375,52 @@ public class SingleChronicleQueueExcerpts {
             return net.openhft.chronicle.wire.NoDocumentContext.INSTANCE;
         }
 
+        @NotNull
+        @Override
+        public DocumentContext readingDocument(long timeout, @NotNull TimeUnit unit) {
+            final AppendNotifier notifier = queue.appendNotifier();
+            if (notifier == null)
+                return ExcerptTailer.super.readingDocument(timeout, unit);
+            final long end = System.nanoTime() + unit.toNanos(timeout);
+            while (true) {
+                // taken before looking, so an append made after looking wakes the wait
+                final long seen = notifier.sequence();
+                final DocumentContext dc = readingDocument();
+                final long remaining = end - System.nanoTime();
+                if (dc.isPresent() || remaining <= 0)
+                    return dc;
+                dc.close();
+                // on interrupt, have one last look rather than spin until the timeout. The queue is
+                // looked at again now and then, for appenders which don't notify.
+                if (!notifier.await(seen, Math.min(remaining, AppendNotifier.RECHECK_NANOS))
+                        && Thread.currentThread().isInterrupted())
+                    return readingDocument();
+            }
+        }
+
+        @NotNull
+        private Wire decode(@NotNull Bytes<?> bytes) {
+            if (decodedWire == null) {
+                decodedWire = queue.wireType().apply(Bytes.elasticByteBuffer());
+                closableResources.decodedWireReference = decodedWire.bytes();
+            } else {
+                decodedWire.clear();
+            }
+            decoder.accept(bytes, decodedWire.bytes());
+            return decodedWire;
+        }
+
         @Override
         public boolean peekDocument() {
+            useMapping(false);
+            if (unmappedIndex != Long.MIN_VALUE) {
+                remap();
+                final Wire wire = wire();
+                // its cycle has gone since, so reading carries on from the start
+                if (state == UNINITIALISED || wire == null)
+                    return true;
+                address = wire.bytes().addressForRead(wire.bytes().readPosition(), 4);
+            }
             return UnsafeMemory.UNSAFE.getIntVolatile(null, address) > 0x0;
         }
 
@@ -1008,6 +1428,11 @@ public class SingleChronicleQueueExcerpts {
             for (int i = 0; i < 1000; i++) {
                 switch (state) {
                     case UNINITIALISED:
+                        if (unmappedIndex != Long.MIN_VALUE) {
+                            remap();
+                            if (state != UNINITIALISED)
+                                break;
+                        }
                         final long firstIndex = queue.firstIndex();
                         if (firstIndex == Long.MAX_VALUE)
                             return false;
@@ -1125,6 +1550,7 @@ public class SingleChronicleQueueExcerpts {
                     queue.release(this.store);
                 this.store = null;
                 closableResources.storeReference = null;
+                storeChanged();
                 return false;
             }
 
@@ -1179,6 +1605,8 @@ public class SingleChronicleQueueExcerpts {
         }
 
         private boolean inACycleNotForward() {
+            if (direction == BACKWARD && moveToIndexBackward(index))
+                return false;
             if (!moveToIndexInternal(index)) {
                 try {
                     // after toEnd() call, index is past the end of the queue
@@ -1194,6 +1622,57 @@ public class SingleChronicleQueueExcerpts {
             return false;
         }
 
+        /**
+         * Moves to an excerpt of the current cycle when reading backward. The positions of the
+         * excerpts from the start of its index block up to it are found with one lookup and a
+         * scan forward, and kept, so the excerpts before it in the block are read without going
+         * through the index.
+         *
+         * @return false if the excerpt isn't in the current cycle, or hasn't been written.
+         */
+        private boolean moveToIndexBackward(long index) {
+            final RollCycle rollCycle = queue.rollCycle();
+            if (state != FOUND_CYCLE || store == null || rollCycle.toCycle(index) != cycle)
+                return false;
+            final long seq = rollCycle.toSequenceNumber(index);
+            if (store != backwardStore || seq < backwardFromSeq || seq >= backwardFromSeq + backwardCount) {
+                if (!readBackwardPositions(seq))
+                    return false;
+            }
+            index(index);
+            wire().bytes().readPositionUnlimited(backwardPositions[(int) (seq - backwardFromSeq)]);
+            return true;
+        }
+
+        private boolean readBackwardPositions(long seq) {
+            backwardStore = null;
+            final int spacing = Math.min(MAX_BACKWARD_BLOCK, store instanceof SingleChronicleQueueStore
+                    ? ((SingleChronicleQueueStore) store).rollIndexSpacing()
+                    : queue.indexSpacing());
+            final long fromSeq = seq - seq % spacing;
+            if (!moveToIndexInternal(queue.rollCycle().toIndex(cycle, fromSeq)))
+                return false;
+            if (backwardPositions == null || backwardPositions.length < spacing)
+                backwardPositions = new long[spacing];
+
+            final Bytes<?> bytes = wire().bytes();
+            final int wanted = (int) (seq - fromSeq + 1);
+            long position = bytes.readPosition();
+            int count = 0;
+            while (count < wanted) {
+                final int header = bytes.readVolatileInt(position);
+                if (header == 0 || Wires.isNotComplete(header))
+                    return false;
+                if (Wires.isData(header))
+                    backwardPositions[count++] = position;
+                position += SPB_HEADER_SIZE + Wires.lengthOf(header);
+            }
+            backwardStore = store;
+            backwardFromSeq = fromSeq;
+            backwardCount = count;
+            return true;
+        }
+
         private void inACycleFound(Bytes<?> bytes) {
             context.closeReadLimit(bytes.capacity());
             wire().readAndSetLength(bytes.readPosition());
@@ -1320,6 +1799,7 @@ public class SingleChronicleQueueExcerpts {
 
         @Override
         public boolean moveToIndex(final long index) {
+            useMapping(true);
             if (moveToState.canReuseLastIndexMove(index, state, direction, queue, wire())) {
                 return true;
             } else if (moveToState.indexIsCloseToAndAheadOfLastIndexMove(index, state, direction, queue)) {
@@ -1369,9 +1849,51 @@ public class SingleChronicleQueueExcerpts {
             return scanResult;
         }
 
+        /**
+         * Bisects the samples of the time index of the cycle the time falls in. If none of them
+         * is before the time, or the cycle has no time index, this moves to the start of the cycle,
+         * or of the next one if there's nothing in it.
+         */
+        @Override
+        public boolean moveToTime(long epochMillis) {
+            useMapping(true);
+            final RollCycle rollCycle = queue.rollCycle();
+            final int cycle = Math.toIntExact(Math.floorDiv(epochMillis - queue.epoch(), (long) rollCycle.length()));
+            final File file = queue.timeIndexFile(cycle);
+            if (file.exists()) {
+                long index;
+                try {
+                    final TimeIndex timeIndex = TimeIndex.open(file, queue.isReadOnly());
+                    try {
+                        index = timeIndex.indexBefore(epochMillis);
+                    } finally {
+                        timeIndex.release();
+                    }
+                } catch (IOException e) {
+                    throw new IORuntimeException(e);
+                }
+                if (index != Long.MIN_VALUE && moveToIndex(index))
+                    return true;
+            }
+            final int lastCycle = queue.lastCycle();
+            if (cycle <= lastCycle) {
+                try {
+                    for (long c : queue.listCyclesBetween(Math.max(cycle, queue.firstCycle()), lastCycle)) {
+                        if (moveToIndex(rollCycle.toIndex((int) c, 0)))
+                            return true;
+                    }
+                } catch (ParseException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            toEnd();
+            return false;
+        }
+
         @NotNull
         @Override
         public final ExcerptTailer toStart() {
+            useMapping(true);
             assert direction != BACKWARD;
             final int firstCycle = queue.firstCycle();
             if (firstCycle == Integer.MAX_VALUE) {
@@ -1425,6 +1947,7 @@ public class SingleChronicleQueueExcerpts {
                 if (this.store != wireStore) {
                     this.store = wireStore;
                     closableResources.storeReference = wireStore;
+                    storeChanged();
                     resetWires();
                 }
                 // give the position of the last entry and
@@ -1496,6 +2019,7 @@ public class SingleChronicleQueueExcerpts {
         @NotNull
         @Override
         public ExcerptTailer toEnd() {
+            useMapping(true);
             if (direction.equals(TailerDirection.BACKWARD))
                 return originalToEnd();
 
@@ -1524,6 +2048,7 @@ public class SingleChronicleQueueExcerpts {
                 if (this.store != wireStore) {
                     this.store = wireStore;
                     closableResources.storeReference = wireStore;
+                    storeChanged();
                     resetWires();
                 }
                 // give the position of the last entry and
@@ -1554,6 +2079,7 @@ public class SingleChronicleQueueExcerpts {
         @NotNull
 
         public ExcerptTailer originalToEnd() {
+            useMapping(true);
             long index = approximateLastIndex();
 
             if (index == Long.MIN_VALUE) {
@@ -1731,6 +2257,7 @@ public class SingleChronicleQueueExcerpts {
             context.wire(null);
             this.store = nextStore;
             closableResources.storeReference = nextStore;
+            storeChanged();
             this.state = FOUND_CYCLE;
             this.setCycle(cycle);
             resetWires();
@@ -1745,10 +2272,86 @@ public class SingleChronicleQueueExcerpts {
                 queue.release(store);
                 store = null;
                 closableResources.storeReference = null;
+                storeChanged();
             }
             state = UNINITIALISED;
         }
 
+        /**
+         * Skips the checksum ahead of the payload of a data excerpt, having checked it if the queue
+         * verifies checksums on read. If it doesn't match, the tailer is left at the excerpt's
+         * header, so reading it again fails again until the tailer is moved past it.
+         *
+         * @return whether the checksum matched or wasn't checked
+         */
+        private boolean readChecksum(@NotNull Bytes<?> bytes) {
+            final long start = bytes.readPosition();
+            if (queue.verifyChecksums && !checksum.matches(bytes, start, bytes.readLimit())) {
+                bytes.readLimit(bytes.capacity()).readPosition(start - SPB_HEADER_SIZE);
+                return false;
+            }
+            bytes.readPosition(start + ExcerptChecksum.SIZE);
+            return true;
+        }
+
+        @NotNull
+        private IllegalStateException checksumMismatch() {
+            return new IllegalStateException(new StreamCorruptedException("The checksum of index "
+                    + Long.toHexString(index) + " doesn't match, in " + queue.file()));
+        }
+
+        private void storeChanged() {
+            if (mapping != null)
+                mapping.held(store != null);
+        }
+
+        /**
+         * @param moving whether the operation moves the tailer, so it needn't carry on from where
+         *               it was unmapped
+         */
+        private void useMapping(boolean moving) {
+            if (mapping != null) {
+                mapping.use();
+                if (moving)
+                    unmappedIndex = Long.MIN_VALUE;
+            }
+        }
+
+        /**
+         * Maps the cycle of an unmapped tailer again, at the index it was unmapped at, unless its
+         * cycle has gone since.
+         */
+        private void remap() {
+            final long resumeAt = unmappedIndex;
+            unmappedIndex = Long.MIN_VALUE;
+            mapping.remapped();
+            moveToIndexResult(resumeAt);
+        }
+
+        /**
+         * Releases the cycle and wires of a tailer which isn't in use, to keep within the queue's
+         * mapping budget. The next read maps the cycle again and carries on from the same index.
+         *
+         * @return whether it was unmapped
+         */
+        boolean unmap() {
+            if (store == null || busy)
+                return false;
+            final long index = this.index;
+            context.wire(null);
+            final Wire w0 = wireForIndex;
+            wireForIndex = null;
+            if (w0 != null)
+                w0.bytes().release();
+            closableResources.wireReference = null;
+            closableResources.wireForIndexReference = null;
+            backwardStore = null;
+            address = NoBytesStore.NO_PAGE;
+            release();
+            unmappedIndex = index;
+            return true;
+        }
+
         @Override
         public void readAfterReplicaAcknowledged(boolean readAfterReplicaAcknowledged) {
             this.readAfterReplicaAcknowledged = readAfterReplicaAcknowledged;
@@ -1969,11 +2572,32 @@ public class SingleChronicleQueueExcerpts {
         class StoreTailerContext extends BinaryReadDocumentContext {
 
             boolean rollbackOnClose = false;
+            // the decoded excerpt, if the queue has a decoder
+            @Nullable
+            private Wire decodedWire;
 
             StoreTailerContext() {
                 super(null);
             }
 
+            @Override
+            public Wire wire() {
+                Wire decodedWire = this.decodedWire;
+                return decodedWire != null ? decodedWire : this.wire;
+            }
+
+            /**
+             * @return the wire over the store, rather than any decoded excerpt.
+             */
+            @Nullable
+            Wire storeWire() {
+                return this.wire;
+            }
+
+            void decodedWire(@Nullable Wire decodedWire) {
+                this.decodedWire = decodedWire;
+            }
+
             @Override
             public void rollbackOnClose() {
                 rollbackOnClose = true;
@@ -1991,7 +2615,7 @@ public class SingleChronicleQueueExcerpts {
 
             @Override
             public void close() {
-
+                decodedWire = null;
                 try {
                     if (rollbackOnClose) {
                         present = false;
@@ -2009,6 +2633,7 @@ public class SingleChronicleQueueExcerpts {
 
                 } finally {
                     rollbackOnClose = false;
+                    busy = false;
                 }
             }
 
@@ -297,6 +297,13 @@ public class SingleChronicleQueueStore implements WireStore {
         return this.roll.epoch();
     }
 
+    /**
+     * Have scans of this store record positions in, and start from, {@code densePositions}.
+     */
+    void densePositions(@Nullable DensePositionIndex.Cycle densePositions) {
+        indexing.densePositions(densePositions);
+    }
+
     /**
      * Moves the position to the index
      *
@@ -436,6 +443,33 @@ public class SingleChronicleQueueStore implements WireStore {
 
     }
 
+    /**
+     * Records the sequence number of the last excerpt written without adding it to the index, which
+     * is left to a {@link QueueIndexer} to catch up.
+     */
+    void setLastSequence(long sequenceNumber, long position) {
+        sequence.setSequence(sequenceNumber, position);
+    }
+
+    /**
+     * Only the last position of the batch is recorded as the sequence for the write position, the
+     * others are only added to the index if they fall on an index boundary.
+     */
+    @Override
+    public void setPositionForSequenceNumbers(@NotNull final ExcerptContext ec, long firstSequenceNumber,
+                                              long[] positions, int offset, int length)
+            throws UnrecoverableTimeoutException, StreamCorruptedException {
+        if (length <= 0)
+            return;
+        long lastSequenceNumber = firstSequenceNumber + length - 1;
+        long nextSequence = indexing.nextEntryToBeIndexed();
+        for (long sequenceNumber = Math.max(firstSequenceNumber, nextSequence); sequenceNumber < lastSequenceNumber; sequenceNumber++) {
+            if (indexing.indexable(sequenceNumber))
+                indexing.setPositionForSequenceNumber(ec, sequenceNumber, positions[offset + (int) (sequenceNumber - firstSequenceNumber)]);
+        }
+        setPositionForSequenceNumber(ec, lastSequenceNumber, positions[offset + length - 1]);
+    }
+
     @Override
     public ScanResult linearScanTo(final long index, final long knownIndex, final ExcerptContext ec, final long knownAddress) {
         return indexing.linearScanTo(index, knownIndex, ec, knownAddress);
@@ -73,6 +73,17 @@ final class TableDirectoryListing implements DirectoryListing {
         }
     }
 
+    @Override
+    public void onCyclesRemovedBefore(final int cycle) {
+        closeCheck();
+        if (readOnly) {
+            LOGGER.warn("DirectoryListing is read-only, not updating listing");
+            return;
+        }
+        minCycleValue.setMaxValue(cycle);
+        modCount.addAtomicValue(1);
+    }
+
     @Override
     public int getMaxCreatedCycle() {
         closeCheck();
@@ -120,7 +131,7 @@ final class TableDirectoryListing implements DirectoryListing {
         while (true) {
             long currentMax = maxCycleValue.getVolatileValue();
             final File[] queueFiles = queuePath.toFile().
-                    listFiles((d, f) -> f.endsWith(SingleChronicleQueue.SUFFIX));
+                    listFiles((d, f) -> CycleArchive.isCycleFile(f));
             int min = UNSET_MIN_CYCLE;
             int max = UNSET_MAX_CYCLE;
             if (queueFiles != null) {
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014-2018 Chronicle Software
+ *
+ * http://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.values.LongValue;
+import net.openhft.chronicle.queue.impl.table.AbstractTSQueueLock;
+import net.openhft.chronicle.threads.TimingPauser;
+
+import java.io.File;
+import java.util.function.Supplier;
+
+import static net.openhft.chronicle.core.Jvm.getProcessId;
+import static net.openhft.chronicle.core.Jvm.warn;
+
+/**
+ * A fair {@link WriteLock} shared between processes through the table store. Each writer takes a
+ * ticket and waits until it is served, so writers get the lock in the order they asked for it,
+ * whichever process they are in.
+ * <p>
+ * The holder's PID is kept under the same key as {@link TableStoreWriteLock}, and taken with a CAS
+ * once the ticket is served, so the two still exclude each other. A lock which has been held for
+ * too long isn't overridden. With {@code takeOverFromDeadWriters}, a waiter which has seen no
+ * progress for the timeout takes over from a holder known to have died, which needs the holder's
+ * PID to be visible, so only happens on Linux in the host's PID namespace; a holder in another
+ * container sharing the queue can't be told from a dead one, so is waited for. Otherwise a lock
+ * left by a dead process has to be cleared by hand. A ticket which is served but never claimed,
+ * because its writer died while waiting, is skipped; should that writer turn out to be alive
+ * after all, it takes a new ticket.
+ */
+public class TableStoreTicketWriteLock extends AbstractTSQueueLock implements WriteLock {
+    private static final String LOCK_KEY = "chronicle.write.lock";
+    private static final String NEXT_TICKET_KEY = "chronicle.write.lock.nextTicket";
+    private static final String SERVING_KEY = "chronicle.write.lock.serving";
+    private static final long PID = getProcessId();
+
+    private final LongValue nextTicket;
+    private final LongValue serving;
+    private final boolean takeOverFromDeadWriters;
+    private final LongValue takenOver;
+    private final long timeout;
+    // the ticket of the holder, when it's in this process
+    private long heldTicket;
+
+    public TableStoreTicketWriteLock(File queueDirectoryPath, Supplier<TimingPauser> pauser, Long timeoutMs) {
+        this(queueDirectoryPath, pauser, timeoutMs, false);
+    }
+
+    /**
+     * @param takeOverFromDeadWriters whether to take over from a holder known to have died, once
+     *                                the timeout has passed, which is recorded for
+     *                                {@link #takenOver()}, which only fast recovery clears
+     */
+    public TableStoreTicketWriteLock(File queueDirectoryPath, Supplier<TimingPauser> pauser, Long timeoutMs, boolean takeOverFromDeadWriters) {
+        super(LOCK_KEY, queueDirectoryPath, pauser);
+        this.nextTicket = tableStore.doWithExclusiveLock(ts -> ts.acquireValueFor(NEXT_TICKET_KEY));
+        this.serving = tableStore.doWithExclusiveLock(ts -> ts.acquireValueFor(SERVING_KEY));
+        this.takeOverFromDeadWriters = takeOverFromDeadWriters;
+        this.takenOver = takeOverFromDeadWriters ? tableStore.doWithExclusiveLock(ts -> ts.acquireValueFor(TAKEN_OVER_KEY)) : null;
+        this.timeout = timeoutMs;
+    }
+
+    @Override
+    public void lock() {
+        closeCheck();
+        long ticket = nextTicket.addAtomicValue(1) - 1;
+        long lastServed = serving.getVolatileValue();
+        long lastProgressMS = System.currentTimeMillis();
+        long nextStallCheckMS = lastProgressMS + STALL_CHECK_MS;
+        long nextWarningMS = lastProgressMS + timeout;
+        try {
+            while (true) {
+                if (Thread.interrupted())
+                    throw new IllegalStateException("Interrupted for the lock file:" + path);
+                final long served = serving.getVolatileValue();
+                if (served == ticket && lock.compareAndSwapValue(UNLOCKED, PID)) {
+                    heldTicket = ticket;
+                    return;
+                }
+                if (served > ticket) {
+                    // skipped over as presumed dead, so queue again.
+                    ticket = nextTicket.addAtomicValue(1) - 1;
+                }
+
+                final long now = System.currentTimeMillis();
+                if (served != lastServed) {
+                    lastServed = served;
+                    lastProgressMS = now;
+                    nextStallCheckMS = now + STALL_CHECK_MS;
+                    nextWarningMS = now + timeout;
+                } else if (now > nextStallCheckMS) {
+                    recoverFromDeadWriter(served, now > lastProgressMS + timeout);
+                    nextStallCheckMS = now + STALL_CHECK_MS;
+                }
+                if (now > nextWarningMS) {
+                    warn().on(getClass(), "Waited " + timeout + "ms for the write lock, held by PID "
+                            + lock.getVolatileValue() + ", for the lock file:" + path);
+                    nextWarningMS = now + timeout;
+                }
+                pauser.pause();
+            }
+        } finally {
+            pauser.reset();
+        }
+    }
+
+    private void recoverFromDeadWriter(long served, boolean timedOut) {
+        final long holder = lock.getVolatileValue();
+        if (holder == UNLOCKED) {
+            // the served ticket hasn't been claimed
+            if (serving.compareAndSwapValue(served, served + 1))
+                warn().on(getClass(), "Skipped write lock ticket " + served + " which wasn't claimed, for the lock file:" + path);
+        } else if (takeOverFromDeadWriters && timedOut && holderIsKnownDead(holder)) {
+            warn().on(getClass(), "Write lock was held by PID " + holder + " which is no longer running, for the lock file:" + path);
+            // flagged first, so whoever gets the lock next sees it
+            takenOver.setOrderedValue(1);
+            if (lock.compareAndSwapValue(holder, UNLOCKED))
+                serving.compareAndSwapValue(served, served + 1);
+        }
+    }
+
+    @Override
+    public void unlock() {
+        closeCheck();
+        final long ticket = heldTicket;
+        if (!lock.compareAndSwapValue(PID, UNLOCKED)) {
+            warn().on(getClass(), "Write lock was unlocked by someone else! For the lock file:" + path);
+        }
+        // if a waiter has skipped it already, leave it alone
+        serving.compareAndSwapValue(ticket, ticket + 1);
+    }
+
+    @Override
+    public boolean locked() {
+        return lock.getVolatileValue() != UNLOCKED;
+    }
+
+    @Override
+    public boolean takenOver() {
+        return takenOver != null && takenOver.getVolatileValue() > 0;
+    }
+
+    @Override
+    public void recovered() {
+        if (takenOver != null)
+            takenOver.setOrderedValue(0);
+    }
+
+    @Override
+    public void close() {
+        Closeable.closeQuietly(nextTicket, serving, takenOver);
+        super.close();
+    }
+}
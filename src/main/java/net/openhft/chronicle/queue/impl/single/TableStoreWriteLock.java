@@ -17,6 +17,8 @@
  */
 package net.openhft.chronicle.queue.impl.single;
 
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.values.LongValue;
 import net.openhft.chronicle.queue.impl.table.AbstractTSQueueLock;
 import net.openhft.chronicle.threads.TimingPauser;
 
@@ -28,14 +30,31 @@ import java.util.function.Supplier;
 import static net.openhft.chronicle.core.Jvm.getProcessId;
 import static net.openhft.chronicle.core.Jvm.warn;
 
+/**
+ * A {@link WriteLock} shared between processes through the table store, holding the PID of the
+ * holder. A lock held for longer than the timeout is overridden; with
+ * {@code takeOverFromDeadWriters}, one overridden from a holder known to have died is recorded
+ * for {@link #takenOver()}, so what it left at the end of the queue is cleared. A holder can only
+ * be known to have died on Linux in the host's PID namespace; a writer in another container
+ * sharing the queue may just be slow, so what it is writing is left alone.
+ */
 public class TableStoreWriteLock extends AbstractTSQueueLock implements WriteLock {
     private static final String LOCK_KEY = "chronicle.write.lock";
     private static final long PID = getProcessId();
     private final long timeout;
+    private final boolean takeOverFromDeadWriters;
+    private final LongValue takenOver;
 
     public TableStoreWriteLock(File queueDirectoryPath, Supplier<TimingPauser> pauser, Long timeoutMs) {
+        this(queueDirectoryPath, pauser, timeoutMs, false);
+    }
+
+    public TableStoreWriteLock(File queueDirectoryPath, Supplier<TimingPauser> pauser, Long timeoutMs, boolean takeOverFromDeadWriters) {
         super(LOCK_KEY, queueDirectoryPath, pauser);
         timeout = timeoutMs;
+        this.takeOverFromDeadWriters = takeOverFromDeadWriters;
+        // only fast recovery clears it
+        this.takenOver = takeOverFromDeadWriters ? tableStore.doWithExclusiveLock(ts -> ts.acquireValueFor(TAKEN_OVER_KEY)) : null;
     }
 
     @Override
@@ -51,8 +70,14 @@ public class TableStoreWriteLock extends AbstractTSQueueLock implements WriteLoc
 
             // success
         } catch (TimeoutException e) {
+            final long holder = lock.getVolatileValue();
             warn().on(getClass(), "Couldn't acquire write lock after " + timeout
-                    + "ms for the lock file:" + path + ", overriding the lock. Lock was held by PID " + lock.getVolatileValue());
+                    + "ms for the lock file:" + path + ", overriding the lock. Lock was held by PID " + holder);
+            if (takeOverFromDeadWriters && holder != UNLOCKED && holderIsKnownDead(holder)) {
+                warn().on(getClass(), "Write lock was held by PID " + holder + " which is no longer running, for the lock file:" + path);
+                // flagged first, so whoever gets the lock next sees it
+                takenOver.setOrderedValue(1);
+            }
             forceUnlock();
             lock();
         } finally {
@@ -75,4 +100,21 @@ public class TableStoreWriteLock extends AbstractTSQueueLock implements WriteLoc
     public boolean locked() {
         return lock.getVolatileValue() != UNLOCKED;
     }
+
+    @Override
+    public boolean takenOver() {
+        return takenOver != null && takenOver.getVolatileValue() > 0;
+    }
+
+    @Override
+    public void recovered() {
+        if (takenOver != null)
+            takenOver.setOrderedValue(0);
+    }
+
+    @Override
+    public void close() {
+        Closeable.closeQuietly(takenOver);
+        super.close();
+    }
 }
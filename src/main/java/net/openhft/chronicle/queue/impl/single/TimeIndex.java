@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.MappedBytes;
+import net.openhft.chronicle.core.OS;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * The time index of one cycle, kept in a file beside the cycle's file, with {@link #SUFFIX} added
+ * to its name. It holds the time at which some of the cycle's excerpts were appended, sampled by
+ * the appenders, and is laid out as
+ * <pre>
+ * count:  long, written last
+ * sample: (time in millis: long, index: long) * count
+ * </pre>
+ * Samples are written under the write lock, in index order and with times which never go back, so
+ * finding the sample before a time is a binary search touching a few pages.
+ */
+final class TimeIndex {
+    static final String SUFFIX = ".time";
+    private static final long CHUNK_SIZE = 1 << 20;
+    private static final long SAMPLES = 8;
+    private static final int SAMPLE_SIZE = 16;
+
+    @NotNull
+    private final MappedBytes bytes;
+
+    private TimeIndex(@NotNull MappedBytes bytes) {
+        this.bytes = bytes;
+    }
+
+    @NotNull
+    static TimeIndex open(@NotNull File file, boolean readOnly) throws FileNotFoundException {
+        return new TimeIndex(MappedBytes.mappedBytes(file, CHUNK_SIZE, OS.pageSize(), readOnly));
+    }
+
+    long count() {
+        return bytes.readVolatileLong(0);
+    }
+
+    long timeAt(long sample) {
+        return bytes.readLong(SAMPLES + sample * SAMPLE_SIZE);
+    }
+
+    long indexAt(long sample) {
+        return bytes.readLong(SAMPLES + sample * SAMPLE_SIZE + 8);
+    }
+
+    /**
+     * Add a sample for the excerpt just appended if this is the first in the cycle, or at least
+     * {@code every} excerpts or {@code intervalMS} have passed since the last one.
+     */
+    void sample(long time, long index, int every, long intervalMS) {
+        final long count = count();
+        if (count > 0) {
+            final long lastTime = timeAt(count - 1);
+            final long lastIndex = indexAt(count - 1);
+            if (index <= lastIndex || (index - lastIndex < every && time - lastTime < intervalMS))
+                return;
+            // another process's clock may be behind
+            time = Math.max(time, lastTime);
+        }
+        final long offset = SAMPLES + count * SAMPLE_SIZE;
+        bytes.writeLong(offset, time);
+        bytes.writeLong(offset + 8, index);
+        bytes.writeOrderedLong(0, count + 1);
+    }
+
+    /**
+     * @return the index of the last sample taken before {@code time}, or {@code Long.MIN_VALUE} if
+     * there isn't one.
+     */
+    long indexBefore(long time) {
+        long lo = 0, hi = count();
+        // find the first sample at or after the time
+        while (lo < hi) {
+            final long mid = (lo + hi) >>> 1;
+            if (timeAt(mid) < time)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo == 0 ? Long.MIN_VALUE : indexAt(lo - 1);
+    }
+
+    void release() {
+        bytes.release();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.queue.impl.WireStore;
+import net.openhft.chronicle.wire.Wires;
+import org.jetbrains.annotations.NotNull;
+
+import static net.openhft.chronicle.wire.Wires.NOT_INITIALIZED;
+import static net.openhft.chronicle.wire.Wires.SPB_HEADER_SIZE;
+
+/**
+ * Clears what a writer which died holding the write lock left at the end of the queue, when the
+ * queue has {@link SingleChronicleQueueBuilder#fastRecovery(boolean)} set. The appender which
+ * takes the lock next does this before writing, so the next excerpt isn't written over half an
+ * excerpt, which tailers could otherwise read the rest of as headers.
+ * <p>
+ * The end of the queue is found from the store's write position, which together with the last
+ * sequence is the last entry {@link SCQIndexing} holds, by skipping the excerpts completed after
+ * it. From there, every word the dead writer wrote is zeroed, scanning until no more is found
+ * within the overlap size, so the time taken is bounded by the size of the excerpt left behind
+ * rather than by a timeout.
+ */
+final class TornTailRecovery {
+    private TornTailRecovery() {
+    }
+
+    /**
+     * @return the number of bytes cleared from the end of the last cycle
+     */
+    static long recover(@NotNull SingleChronicleQueue queue) {
+        final int cycle = queue.lastCycle();
+        if (cycle == Integer.MIN_VALUE)
+            return 0;
+        final WireStore store = queue.storeForCycle(cycle, queue.epoch(), false);
+        if (store == null)
+            return 0;
+        final Bytes<?> bytes = store.bytes();
+        try {
+            final long cleared = clearTornTail(bytes, store.writePosition(), queue.overlapSize());
+            if (cleared > 0)
+                Jvm.warn().on(TornTailRecovery.class, "Cleared " + cleared + " bytes left by a writer which died, at the end of cycle " + cycle);
+            return cleared;
+        } finally {
+            bytes.release();
+            queue.release(store);
+        }
+    }
+
+    static long clearTornTail(@NotNull Bytes<?> bytes, long writePosition, long window) {
+        long tail = writePosition;
+        int header;
+        while (true) {
+            header = bytes.readVolatileInt(tail);
+            if (Wires.isEndOfFile(header))
+                return 0;
+            if (header == NOT_INITIALIZED || Wires.isNotComplete(header))
+                break;
+            tail += Wires.lengthOf(header) + SPB_HEADER_SIZE;
+        }
+
+        long cleared = 0;
+        long end = tail + SPB_HEADER_SIZE;
+        for (long pos = end; pos < end + window; pos += 4) {
+            if (bytes.readInt(pos) != 0) {
+                bytes.writeInt(pos, 0);
+                cleared += 4;
+                end = pos + 4;
+            }
+        }
+        // the header last, so tailers don't read past it before the rest is cleared
+        if (header != NOT_INITIALIZED) {
+            bytes.writeOrderedInt(tail, NOT_INITIALIZED);
+            cleared += 4;
+        }
+        return cleared;
+    }
+}
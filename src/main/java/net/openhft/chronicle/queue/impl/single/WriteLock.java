@@ -27,4 +27,19 @@ public interface WriteLock extends Closeable {
     default boolean locked() {
         return false;
     }
+
+    /**
+     * @return whether, since {@link #recovered()} was last called, the lock has been taken over
+     * from a writer which never released it, in any process, so whatever that writer was in the
+     * middle of writing may have been left at the end of the queue.
+     */
+    default boolean takenOver() {
+        return false;
+    }
+
+    /**
+     * Called by the holder once what a writer it was taken over from left behind is cleared.
+     */
+    default void recovered() {
+    }
 }
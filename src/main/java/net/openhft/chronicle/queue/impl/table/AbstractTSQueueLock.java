@@ -18,17 +18,29 @@
 package net.openhft.chronicle.queue.impl.table;
 
 import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.OS;
 import net.openhft.chronicle.core.io.Closeable;
 import net.openhft.chronicle.core.values.LongValue;
 import net.openhft.chronicle.queue.impl.TableStore;
 import net.openhft.chronicle.threads.TimingPauser;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.function.Supplier;
 
 public abstract class AbstractTSQueueLock implements Closeable {
     protected static final long UNLOCKED = Long.MIN_VALUE;
+    // set by a write lock taken over from a writer which never released it, when that's recorded
+    protected static final String TAKEN_OVER_KEY = "chronicle.write.lock.takenOver";
+    // how long a waiter sees no progress before checking on the holder
+    protected static final long STALL_CHECK_MS = Long.getLong("chronicle.write.lock.stallCheckMs", 500);
+    private static final long PID = Jvm.getProcessId();
     private static final String QUEUE_LOCK_FILE = "queue-lock" + SingleTableBuilder.SUFFIX;
+    // the PID namespace of the host, in which every process on it is visible
+    private static final String INITIAL_PID_NAMESPACE = "pid:[4026531836]";
+    private static final boolean PIDS_VISIBLE = inInitialPidNamespace();
 
     protected final LongValue lock;
     protected final TimingPauser pauser;
@@ -54,6 +66,44 @@ public abstract class AbstractTSQueueLock implements Closeable {
         this.tableStore.close();
     }
 
+    /**
+     * Only Linux is checked; elsewhere every process is assumed to be alive, so a lock held by a
+     * dead process has to be cleared by hand, as with a hung one. A process in another PID
+     * namespace, such as another container sharing the queue, isn't visible, so looks dead; see
+     * {@link #holderIsKnownDead(long)}.
+     */
+    public static boolean isProcessAlive(long pid) {
+        if (pid == PID || !OS.isLinux())
+            return true;
+        return new File("/proc/" + pid).exists();
+    }
+
+    /**
+     * @return whether every process which could hold the lock is visible to
+     * {@link #isProcessAlive(long)}, which is only so on Linux in the host's PID namespace.
+     */
+    protected boolean pidsVisible() {
+        return PIDS_VISIBLE;
+    }
+
+    /**
+     * @return whether the holder of the lock is known not to be running, rather than just not
+     * visible from this process.
+     */
+    protected boolean holderIsKnownDead(long pid) {
+        return pidsVisible() && !isProcessAlive(pid);
+    }
+
+    private static boolean inInitialPidNamespace() {
+        if (!OS.isLinux())
+            return false;
+        try {
+            return INITIAL_PID_NAMESPACE.equals(Files.readSymbolicLink(Paths.get("/proc/self/ns/pid")).toString());
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
     protected void closeCheck() {
         if (tableStore.isClosed()) {
             throw new IllegalStateException("Underlying TableStore is already closed - was the Queue closed?");
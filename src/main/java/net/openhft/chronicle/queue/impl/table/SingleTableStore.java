@@ -30,6 +30,7 @@ import net.openhft.chronicle.queue.impl.single.SimpleStoreRecovery;
 import net.openhft.chronicle.queue.impl.single.StoreRecovery;
 import net.openhft.chronicle.wire.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.EOFException;
 import java.io.File;
@@ -208,7 +209,20 @@ public class SingleTableStore implements TableStore {
      * {@inheritDoc}
      */
     @Override
-    public synchronized LongValue acquireValueFor(CharSequence key) { // TODO Change to ThreadLocal values if performance is a problem.
+    public LongValue acquireValueFor(CharSequence key) {
+        return acquireValueFor(key, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nullable
+    @Override
+    public LongValue acquireExistingValueFor(CharSequence key) {
+        return acquireValueFor(key, false);
+    }
+
+    private synchronized LongValue acquireValueFor(CharSequence key, boolean create) { // TODO Change to ThreadLocal values if performance is a problem.
         StringBuilder sb = Wires.acquireStringBuilder();
         mappedBytes.reserve();
         try {
@@ -227,6 +241,8 @@ public class SingleTableStore implements TableStore {
                 mappedBytes.readPosition(readPosition + length);
             }
             // not found
+            if (!create)
+                return null;
             int safeLength = Maths.toUInt31(mappedBytes.realCapacity() - mappedBytes.readPosition());
             mappedBytes.writeLimit(mappedBytes.realCapacity());
             mappedBytes.writePosition(mappedBytes.readPosition());
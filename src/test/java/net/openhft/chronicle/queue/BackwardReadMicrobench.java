@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the whole queue, {@code messages} excerpts, forward from the start against
+ * reading it backward from the end.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BackwardReadMicrobench {
+
+    @Param({"1000000"})
+    public int messages;
+
+    @Param({"FORWARD", "BACKWARD"})
+    public TailerDirection direction;
+
+    private File path;
+    private SingleChronicleQueue queue;
+    private ExcerptTailer tailer;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BackwardReadMicrobench.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        path = DirectoryUtils.tempDir("backwardReadMicrobench");
+        queue = SingleChronicleQueueBuilder.binary(path).build();
+        final ExcerptAppender appender = queue.acquireAppender();
+        final Bytes<?> bytes = Bytes.allocateDirect(32);
+        for (int i = 0; i < messages; i++) {
+            bytes.clear().writeLong(i);
+            appender.writeBytes(bytes);
+        }
+        bytes.release();
+        tailer = queue.createTailer();
+    }
+
+    @Setup(Level.Invocation)
+    public void rewind() {
+        if (direction == TailerDirection.BACKWARD)
+            tailer.direction(direction).toEnd();
+        else
+            tailer.direction(direction).toStart();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.close();
+        IOTools.deleteDirWithFiles(path, 20);
+    }
+
+    @Benchmark
+    public int read(Blackhole blackhole) {
+        int count = 0;
+        while (true) {
+            try (DocumentContext dc = tailer.readingDocument()) {
+                if (!dc.isPresent())
+                    return count;
+                blackhole.consume(dc.wire().bytes().readLong());
+            }
+            count++;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing a burst of small messages one at a time with writing them as one batch.
+ * Both benchmarks write {@code batchSize} messages per invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BatchAppendMicrobench {
+
+    @Param({"50", "500"})
+    public int batchSize;
+
+    @Param({"32", "128"})
+    public int messageSize;
+
+    private File path;
+    private SingleChronicleQueue queue;
+    private ExcerptAppender appender;
+    private BytesStore[] messages;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BatchAppendMicrobench.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        path = DirectoryUtils.tempDir("batchAppendMicrobench");
+        queue = SingleChronicleQueueBuilder.binary(path).build();
+        appender = queue.acquireAppender();
+        messages = new BytesStore[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            Bytes<?> bytes = Bytes.allocateDirect(messageSize);
+            for (int j = 0; j < messageSize; j++)
+                bytes.writeByte((byte) ('A' + (i + j) % 26));
+            messages[i] = bytes;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.close();
+        for (BytesStore message : messages)
+            message.release();
+        IOTools.deleteDirWithFiles(path, 20);
+    }
+
+    @Benchmark
+    public void singleAppends() {
+        for (int i = 0; i < batchSize; i++)
+            appender.writeBytes(messages[i]);
+    }
+
+    @Benchmark
+    public void batchAppend() {
+        appender.writeBytes(messages, batchSize);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append throughput and latency with 1 to 16 appender threads writing to one queue, with and
+ * without in-process hand-over of the write lock.
+ * <p>
+ * Run with -Dthreads=1,2,4,8,16 to choose the thread counts.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContendedAppendMicrobench {
+
+    public static void main(String[] args) throws RunnerException {
+        for (String threads : System.getProperty("threads", "1,2,4,8,16").split(",")) {
+            new Runner(new OptionsBuilder()
+                    .include(ContendedAppendMicrobench.class.getSimpleName())
+                    .threads(Integer.parseInt(threads.trim()))
+                    .build()).run();
+        }
+    }
+
+    @Benchmark
+    public void append(QueueState queueState, AppenderState appenderState) {
+        queueState.queue.acquireAppender().writeBytes(appenderState.message);
+    }
+
+    @State(Scope.Benchmark)
+    public static class QueueState {
+        @Param({"0", "64"})
+        public int inProcessWriterHandoffs;
+
+        File path;
+        SingleChronicleQueue queue;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            path = DirectoryUtils.tempDir("contendedAppendMicrobench");
+            queue = SingleChronicleQueueBuilder.binary(path)
+                    .inProcessWriterHandoffs(inProcessWriterHandoffs)
+                    .build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            queue.close();
+            IOTools.deleteDirWithFiles(path, 20);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AppenderState {
+        Bytes<?> message;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            message = Bytes.allocateDirect(64);
+            for (int i = 0; i < 64; i++)
+                message.writeByte((byte) ('a' + i % 26));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            message.release();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the first write of each cycle, which rolls to a new file, with and without the next
+ * cycle's file being prepared in the background. Each invocation moves the clock on by one cycle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 100)
+@Fork(1)
+public class RollLatencyMicrobench {
+
+    @Param({"MINUTELY", "HOURLY"})
+    public RollCycles rollCycle;
+
+    @Param({"false", "true"})
+    public boolean prepareNextCycle;
+
+    private File path;
+    private SetTimeProvider timeProvider;
+    private SingleChronicleQueue queue;
+    private ExcerptAppender appender;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RollLatencyMicrobench.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        path = DirectoryUtils.tempDir("rollLatencyMicrobench");
+        timeProvider = new SetTimeProvider();
+        timeProvider.currentTimeMillis(System.currentTimeMillis());
+        queue = SingleChronicleQueueBuilder.binary(path)
+                .rollCycle(rollCycle)
+                .timeProvider(timeProvider)
+                .prepareNextCycle(prepareNextCycle)
+                .build();
+        appender = queue.acquireAppender();
+        appender.writeText("start");
+    }
+
+    @Setup(Level.Iteration)
+    public void awaitPreparedCycle() {
+        if (!prepareNextCycle)
+            return;
+        final long end = System.currentTimeMillis() + 10_000;
+        while (path.list((d, name) -> name.endsWith(".precreated")).length == 0) {
+            if (System.currentTimeMillis() > end)
+                throw new IllegalStateException("The next cycle was not prepared");
+            Jvm.pause(1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.close();
+        IOTools.deleteDirWithFiles(path, 20);
+    }
+
+    @Benchmark
+    public void firstWriteOfCycle() {
+        timeProvider.currentTimeMillis(timeProvider.currentTimeMillis() + rollCycle.length());
+        appender.writeText("roll");
+    }
+}
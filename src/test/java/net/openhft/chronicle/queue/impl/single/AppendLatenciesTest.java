@@ -0,0 +1,55 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.util.Histogram;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static net.openhft.chronicle.queue.impl.single.AppendLatencies.Stage.*;
+import static org.junit.Assert.assertEquals;
+
+public class AppendLatenciesTest {
+
+    @Test
+    public void recordsEachStageOfAnAppend() {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("recordsEachStageOfAnAppend"))
+                .testBlockSize()
+                .recordAppendLatencies(true)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            final Bytes<?> bytes = Bytes.allocateElasticDirect();
+            for (int i = 0; i < 100; i++) {
+                appender.writeText("text-" + i);
+                bytes.clear().append8bit("bytes-" + i);
+                appender.writeBytes(bytes);
+            }
+            bytes.release();
+
+            Map<AppendLatencies.Stage, Histogram> latencies = queue.appendLatencies(true);
+            assertEquals(200, latencies.get(LOCK).totalCount());
+            assertEquals(0, latencies.get(ROLL).totalCount());
+            assertEquals(200, latencies.get(HEADER).totalCount());
+            assertEquals(100, latencies.get(WRITE).totalCount());
+            assertEquals(100, latencies.get(COMMIT).totalCount());
+            assertEquals(200, latencies.get(INDEX).totalCount());
+
+            latencies = queue.appendLatencies(false);
+            for (Histogram histogram : latencies.values())
+                assertEquals(0, histogram.totalCount());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void notRecordedUnlessEnabled() {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("notRecordedUnlessEnabled"))
+                .testBlockSize()
+                .build()) {
+            queue.appendLatencies(false);
+        }
+    }
+}
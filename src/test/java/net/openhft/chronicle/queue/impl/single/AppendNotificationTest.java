@@ -0,0 +1,90 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AppendNotificationTest {
+
+    private static SingleChronicleQueue queue(File dir) {
+        return SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .appendNotification(true)
+                .build();
+    }
+
+    private static void writeText(SingleChronicleQueue queue, String text) {
+        try (DocumentContext dc = queue.acquireAppender().writingDocument()) {
+            dc.wire().getValueOut().text(text);
+        }
+    }
+
+    private static String readText(ExcerptTailer tailer, long timeoutMS) {
+        try (DocumentContext dc = tailer.readingDocument(timeoutMS, TimeUnit.MILLISECONDS)) {
+            return dc.isPresent() ? dc.wire().getValueIn().text() : null;
+        }
+    }
+
+    @Test
+    public void timesOutWhenNothingIsAppended() {
+        try (SingleChronicleQueue queue = queue(DirectoryUtils.tempDir("timesOutWhenNothingIsAppended"))) {
+            writeText(queue, "first");
+            final ExcerptTailer tailer = queue.createTailer();
+            assertEquals("first", readText(tailer, 1_000));
+
+            final long start = System.nanoTime();
+            assertNull(readText(tailer, 50));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+
+    @Test
+    public void wakesForAnAppendInThisQueue() throws Exception {
+        final File dir = DirectoryUtils.tempDir("wakesForAnAppendInThisQueue");
+        try (SingleChronicleQueue queue = queue(dir)) {
+            wakesForAnAppend(queue, queue);
+        }
+    }
+
+    @Test
+    public void wakesForAnAppendThroughTheSharedSequence() throws Exception {
+        final File dir = DirectoryUtils.tempDir("wakesForAnAppendThroughTheSharedSequence");
+        // a second queue over the same directory doesn't share the waiting threads, as with another process
+        try (SingleChronicleQueue writer = queue(dir);
+             SingleChronicleQueue reader = queue(dir)) {
+            wakesForAnAppend(writer, reader);
+        }
+    }
+
+    @Test
+    public void seesAnAppendFromAWriterWhichDoesNotNotify() throws Exception {
+        final File dir = DirectoryUtils.tempDir("seesAnAppendFromAWriterWhichDoesNotNotify");
+        try (SingleChronicleQueue writer = SingleChronicleQueueBuilder.binary(dir).testBlockSize().build();
+             SingleChronicleQueue reader = queue(dir)) {
+            wakesForAnAppend(writer, reader);
+        }
+    }
+
+    private void wakesForAnAppend(SingleChronicleQueue writer, SingleChronicleQueue reader) throws Exception {
+        final ExecutorService service = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> read = service.submit(() -> readText(reader.createTailer(), 10_000));
+            Thread.sleep(100);
+            final long start = System.nanoTime();
+            writeText(writer, "hello");
+            assertEquals("hello", read.get(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            service.shutdownNow();
+        }
+    }
+}
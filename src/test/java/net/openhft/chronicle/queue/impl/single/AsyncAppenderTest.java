@@ -0,0 +1,205 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesRingBufferStats;
+import net.openhft.chronicle.queue.BufferMode;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.*;
+
+public class AsyncAppenderTest {
+
+    @Test
+    public void excerptsAreWrittenByTheDrainer() {
+        final File dir = DirectoryUtils.tempDir("excerptsAreWrittenByTheDrainer");
+        final AtomicLong written = new AtomicLong();
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .writeBufferMode(BufferMode.Asynchronous)
+                .bufferCapacity(4 << 10)
+                .onRingBufferStats(stats -> written.addAndGet(stats.getAndClearWriteCount()))
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            assertTrue(appender instanceof AsyncAppender);
+            // many times the capacity of the buffer, so producers have to wait for the drainer
+            for (int i = 0; i < 2_000; i++) {
+                appender.writeText("msg-" + i);
+                try (DocumentContext dc = appender.writingDocument()) {
+                    dc.wire().write("i").int32(i);
+                }
+            }
+        }
+
+        // closing the queue writes out everything still in the buffer
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir).testBlockSize().build()) {
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int i = 0; i < 2_000; i++) {
+                assertEquals("msg-" + i, tailer.readText());
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    assertTrue(dc.isPresent());
+                    assertEquals(i, dc.wire().read("i").int32());
+                }
+            }
+            assertNull(tailer.readText());
+        }
+        assertEquals(4_000, written.get());
+    }
+
+    @Test
+    public void concurrentProducersShareTheBuffer() throws InterruptedException {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("concurrentProducersShareTheBuffer"))
+                .testBlockSize()
+                .writeBufferMode(BufferMode.Asynchronous)
+                .build()) {
+            final int threads = 4;
+            final int perThread = 5_000;
+            final List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int id = t;
+                Thread thread = new Thread(() -> {
+                    Bytes<?> bytes = Bytes.allocateElasticDirect();
+                    for (int i = 0; i < perThread; i++) {
+                        bytes.clear().append(id).append(':').append(i);
+                        queue.acquireAppender().writeBytes(bytes);
+                    }
+                    bytes.release();
+                });
+                producers.add(thread);
+                thread.start();
+            }
+            for (Thread producer : producers)
+                producer.join();
+
+            final ExcerptTailer tailer = queue.createTailer();
+            final Set<String> read = new HashSet<>();
+            final long end = System.currentTimeMillis() + 10_000;
+            while (read.size() < threads * perThread && System.currentTimeMillis() < end) {
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    if (dc.isPresent())
+                        read.add(dc.wire().bytes().toString());
+                }
+            }
+            assertEquals(threads * perThread, read.size());
+        }
+    }
+
+    @Test
+    public void eachAppenderKnowsTheIndexOfItsOwnLastExcerpt() throws InterruptedException {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("eachAppenderKnowsTheIndexOfItsOwnLastExcerpt"))
+                .testBlockSize()
+                .writeBufferMode(BufferMode.Asynchronous)
+                .build()) {
+            final int threads = 2;
+            final int perThread = 1_000;
+            final AtomicReferenceArray<ExcerptAppender> appenders = new AtomicReferenceArray<>(threads);
+            final List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int id = t;
+                Thread thread = new Thread(() -> {
+                    final ExcerptAppender appender = queue.acquireAppender();
+                    try {
+                        appender.lastIndexAppended();
+                        fail("nothing has been appended yet");
+                    } catch (IllegalStateException expected) {
+                        // expected
+                    }
+                    for (int i = 0; i < perThread; i++)
+                        appender.writeText(id + ":" + i);
+                    appenders.set(id, appender);
+                });
+                producers.add(thread);
+                thread.start();
+            }
+            for (Thread producer : producers)
+                producer.join();
+
+            // once the drainer has written an appender's last excerpt, its last index points at it
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int t = 0; t < threads; t++) {
+                final String last = t + ":" + (perThread - 1);
+                final long end = System.currentTimeMillis() + 10_000;
+                String read = null;
+                while (!last.equals(read) && System.currentTimeMillis() < end) {
+                    try {
+                        assertTrue(tailer.moveToIndex(appenders.get(t).lastIndexAppended()));
+                        read = tailer.readText();
+                    } catch (IllegalStateException notYetWritten) {
+                        Thread.yield();
+                    }
+                }
+                assertEquals(last, read);
+            }
+        }
+    }
+
+    @Test
+    public void theIndexOfAnAsyncExcerptIsNotKnownWhenWriting() {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("theIndexOfAnAsyncExcerptIsNotKnownWhenWriting"))
+                .testBlockSize()
+                .writeBufferMode(BufferMode.Asynchronous)
+                .build()) {
+            try (DocumentContext dc = queue.acquireAppender().writingDocument()) {
+                dc.wire().write("hello").text("world");
+                dc.index();
+                fail("the index isn't known until the drainer has written the excerpt");
+            } catch (UnsupportedOperationException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void ringBufferWrapsAround() {
+        final AsyncRingBuffer ringBuffer = new AsyncRingBuffer(4 << 10);
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("ringBufferWrapsAround"))
+                .testBlockSize()
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            final Bytes<?> bytes = Bytes.allocateElasticDirect();
+            final Bytes<?> tooLarge = Bytes.allocateElasticDirect(4000).writeSkip(4000);
+            for (int i = 0; i < 100; i++) {
+                bytes.clear();
+                for (int j = 0; j < 1000 + i; j++)
+                    bytes.writeByte((byte) ('a' + (i + j) % 26));
+                assertTrue(ringBuffer.offer(bytes));
+                assertFalse(ringBuffer.offer(tooLarge));
+                assertEquals(1, ringBuffer.drainTo(appender, 16));
+                assertTrue(ringBuffer.isEmpty());
+            }
+            BytesRingBufferStats stats = ringBuffer;
+            assertEquals(100, stats.getAndClearWriteCount());
+            assertEquals(100, stats.getAndClearMissedWriteCount());
+            assertEquals(100, ringBuffer.getAndClearReadCount());
+
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int i = 0; i < 100; i++) {
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    Bytes<?> read = dc.wire().bytes();
+                    assertEquals(1000 + i, read.readRemaining());
+                    for (int j = 0; j < 1000 + i; j++)
+                        assertEquals((byte) ('a' + (i + j) % 26), read.readByte());
+                }
+            }
+            bytes.release();
+            tooLarge.release();
+        } finally {
+            ringBuffer.release();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.queue.TailerDirection;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BackwardReadTest {
+    private static final int PER_CYCLE = 1_000;
+
+    @Test
+    public void readsBackwardAcrossCyclesWithOneLookupPerIndexBlock() {
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        timeProvider.currentTimeMillis(System.currentTimeMillis());
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("readsBackwardAcrossCycles"))
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .indexSpacing(16)
+                .timeProvider(timeProvider)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int i = 0; i < 2 * PER_CYCLE; i++) {
+                if (i == PER_CYCLE)
+                    timeProvider.advanceMillis(60_000);
+                appender.writeText("msg-" + i);
+            }
+
+            final SingleChronicleQueueExcerpts.StoreTailer tailer =
+                    (SingleChronicleQueueExcerpts.StoreTailer) queue.createTailer().direction(TailerDirection.BACKWARD).toEnd();
+            final int movesBefore = tailer.getIndexMoveCount();
+            for (int i = 2 * PER_CYCLE - 1; i >= 0; i--)
+                assertEquals("msg-" + i, tailer.readText());
+            assertNull(tailer.readText());
+
+            final int moves = tailer.getIndexMoveCount() - movesBefore;
+            assertTrue("moves=" + moves, moves < 2 * PER_CYCLE / 16 + 20);
+        }
+    }
+
+    @Test
+    public void readsBackwardFromAnIndexWithinABlock() {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("readsBackwardFromAnIndexWithinABlock"))
+                .testBlockSize()
+                .indexSpacing(16)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            long index = 0;
+            for (int i = 0; i < 40; i++) {
+                appender.writeText("msg-" + i);
+                if (i == 20)
+                    index = appender.lastIndexAppended();
+            }
+
+            final ExcerptTailer tailer = queue.createTailer().direction(TailerDirection.BACKWARD);
+            assertTrue(tailer.moveToIndex(index));
+            for (int i = 20; i >= 10; i--)
+                assertEquals("msg-" + i, tailer.readText());
+
+            // moving again starts from the new index
+            assertTrue(tailer.moveToIndex(index + 5));
+            for (int i = 25; i >= 0; i--)
+                assertEquals("msg-" + i, tailer.readText());
+            assertNull(tailer.readText());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.Checksum;
+
+import static org.junit.Assert.*;
+
+public class ChecksumTest {
+
+    private static SingleChronicleQueueBuilder builder(File dir) {
+        return SingleChronicleQueueBuilder.binary(dir).testBlockSize();
+    }
+
+    @Test
+    public void crc32cOnJava8MatchesTheStandard() {
+        final Checksum crc = new ExcerptChecksum.Crc32C();
+        final byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        crc.update(check, 0, check.length);
+        assertEquals(0xE3069283L, crc.getValue());
+    }
+
+    @Test
+    public void tailersReadThePayloadWithoutTheChecksum() {
+        final File dir = DirectoryUtils.tempDir("tailersReadThePayloadWithoutTheChecksum");
+        try (SingleChronicleQueue queue = builder(dir).checksums(true).verifyChecksums(true).build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            appender.writeText("text");
+            appender.writeBytes(Bytes.from("bytes"));
+            appender.writeBytes(new Bytes[]{Bytes.from("batch-0"), Bytes.from("batch-1")}, 2);
+            try (DocumentContext dc = appender.writingDocument()) {
+                dc.wire().write("field").text("document");
+            }
+            try (DocumentContext dc = appender.writingDocument(true)) {
+                dc.wire().write("meta").text("data");
+            }
+            appender.writeText("last");
+
+            final ExcerptTailer tailer = queue.createTailer();
+            assertEquals("text", tailer.readText());
+            assertEquals("bytes", tailer.readText());
+            assertEquals("batch-0", tailer.readText());
+            assertEquals("batch-1", tailer.readText());
+            try (DocumentContext dc = tailer.readingDocument()) {
+                assertEquals("document", dc.wire().read("field").text());
+            }
+            assertEquals("last", tailer.readText());
+            assertEquals(Collections.emptyList(), queue.scrubCycle(queue.lastCycle()));
+        }
+    }
+
+    @Test
+    public void findsAnExcerptWhichHasChanged() throws IOException {
+        final File dir = DirectoryUtils.tempDir("findsAnExcerptWhichHasChanged");
+        final long corrupted;
+        final File file;
+        try (SingleChronicleQueue queue = builder(dir).checksums(true).build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int i = 0; i < 3; i++)
+                appender.writeText("msg-" + i);
+            corrupted = appender.lastIndexAppended() - 1;
+            file = queue.cycleFile(queue.lastCycle());
+        }
+        flip(file, "msg-1");
+
+        // it's in the queue's metadata, so needn't be set again
+        try (SingleChronicleQueue queue = builder(dir).verifyChecksums(true).build()) {
+            assertEquals(Collections.singletonList(corrupted), queue.scrubCycle(queue.lastCycle()));
+
+            final ExcerptTailer tailer = queue.createTailer();
+            assertEquals("msg-0", tailer.readText());
+            for (int i = 0; i < 2; i++) {
+                try {
+                    tailer.readText();
+                    fail();
+                } catch (IllegalStateException expected) {
+                    assertEquals(corrupted, tailer.index());
+                }
+            }
+            assertTrue(tailer.moveToIndex(corrupted + 1));
+            assertEquals("msg-2", tailer.readText());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void canOnlyBeTurnedOnForANewQueue() {
+        final File dir = DirectoryUtils.tempDir("canOnlyBeTurnedOnForANewQueue");
+        try (SingleChronicleQueue queue = builder(dir).build()) {
+            queue.acquireAppender().writeText("no checksum");
+        }
+        builder(dir).checksums(true).build().close();
+    }
+
+    private static void flip(File file, String text) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            final byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            final byte[] find = text.getBytes(StandardCharsets.US_ASCII);
+            for (int i = 0; i + find.length <= bytes.length; i++) {
+                int j = 0;
+                while (j < find.length && bytes[i + j] == find[j])
+                    j++;
+                if (j == find.length) {
+                    raf.seek(i);
+                    raf.write('X');
+                    return;
+                }
+            }
+        }
+        fail(text + " not found in " + file);
+    }
+}
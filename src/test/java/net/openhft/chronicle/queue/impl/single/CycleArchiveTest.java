@@ -0,0 +1,119 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CycleArchiveTest {
+
+    @Test
+    public void restoresWhatWasArchived() throws IOException {
+        final File dir = DirectoryUtils.tempDir("restoresWhatWasArchived");
+        dir.mkdirs();
+        final File file = new File(dir, "cycle" + SingleChronicleQueue.SUFFIX);
+        final byte[] data = new byte[CycleArchive.BLOCK_SIZE * 3 / 2];
+        final Random random = new Random(1);
+        // half random, then repetitive, and an unwritten end
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) (i < data.length / 2 ? random.nextInt() : i % 7);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(data);
+            raf.setLength(CycleArchive.BLOCK_SIZE * 4L);
+        }
+
+        final File archive = CycleArchive.archiveFor(file);
+        CycleArchive.archive(file, archive);
+        assertTrue(archive.length() < data.length);
+
+        final File restored = new File(dir, "restored");
+        CycleArchive.restore(archive, restored);
+        assertEquals(file.length(), restored.length());
+        assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(restored.toPath()));
+    }
+
+    @Test
+    public void tailersReadArchivedCycles() {
+        final File dir = DirectoryUtils.tempDir("tailersReadArchivedCycles");
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        timeProvider.currentTimeMillis(System.currentTimeMillis());
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider)
+                .archiveReleasedCycles(0)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int cycle = 0; cycle < 3; cycle++) {
+                for (int i = 0; i < 10; i++)
+                    appender.writeText("msg-" + cycle + "-" + i);
+                timeProvider.advanceMillis(60_000);
+            }
+
+            final long end = System.currentTimeMillis() + 10_000;
+            while (count(dir, CycleArchive.SUFFIX) < 2 || count(dir, SingleChronicleQueue.SUFFIX) > 1) {
+                assertTrue("cycles were not archived", System.currentTimeMillis() < end);
+                Jvm.pause(10);
+            }
+
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int cycle = 0; cycle < 3; cycle++)
+                for (int i = 0; i < 10; i++)
+                    assertEquals("msg-" + cycle + "-" + i, tailer.readText());
+            assertNull(tailer.readText());
+            assertEquals(2, new File(dir, "archive-cache").list().length);
+        }
+    }
+
+    @Test
+    public void archivesCyclesOnceTheyAreOldEnough() {
+        final File dir = DirectoryUtils.tempDir("archivesCyclesOnceTheyAreOldEnough");
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        timeProvider.currentTimeMillis(System.currentTimeMillis());
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider)
+                .archiveReleasedCycles(1)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            // each cycle is released as the queue rolls, when it's still the one before the current
+            for (int cycle = 0; cycle < 4; cycle++) {
+                if (cycle > 0)
+                    timeProvider.advanceMillis(60_000);
+                for (int i = 0; i < 10; i++)
+                    appender.writeText("msg-" + cycle + "-" + i);
+            }
+
+            final long end = System.currentTimeMillis() + 10_000;
+            while (count(dir, CycleArchive.SUFFIX) < 2 || count(dir, SingleChronicleQueue.SUFFIX) > 2) {
+                assertTrue("cycles were not archived", System.currentTimeMillis() < end);
+                Jvm.pause(10);
+            }
+
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int cycle = 0; cycle < 4; cycle++)
+                for (int i = 0; i < 10; i++)
+                    assertEquals("msg-" + cycle + "-" + i, tailer.readText());
+            assertNull(tailer.readText());
+            // the cycle before the current one is kept as it is
+            assertEquals(2, count(dir, SingleChronicleQueue.SUFFIX));
+            assertEquals(2, count(dir, CycleArchive.SUFFIX));
+        }
+    }
+
+    private static int count(File dir, String suffix) {
+        return dir.list((d, name) -> name.endsWith(suffix)).length;
+    }
+}
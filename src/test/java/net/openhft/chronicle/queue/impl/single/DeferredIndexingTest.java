@@ -0,0 +1,97 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.queue.impl.WireStore;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeferredIndexingTest {
+    private static final int MESSAGES = 1000;
+
+    @Test
+    public void readsByIndexWhileTheIndexCatchesUp() {
+        final File dir = DirectoryUtils.tempDir("readsByIndexWhileTheIndexCatchesUp");
+        final long firstIndex;
+        final long lastIndex;
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.TEST4_DAILY)
+                .deferredIndexing(true)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            appender.writeText("msg-0");
+            firstIndex = appender.lastIndexAppended();
+            for (int i = 1; i < MESSAGES; i++)
+                appender.writeText("msg-" + i);
+            lastIndex = appender.lastIndexAppended();
+            assertEquals(MESSAGES - 1, lastIndex - firstIndex);
+
+            final ExcerptTailer tailer = queue.createTailer();
+            final Random random = new Random(1);
+            for (int i = 0; i < 100; i++) {
+                int n = random.nextInt(MESSAGES);
+                assertTrue(tailer.moveToIndex(firstIndex + n));
+                assertEquals("msg-" + n, tailer.readText());
+            }
+        }
+
+        // closing the queue lets the indexer finish
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.TEST4_DAILY)
+                .build()) {
+            final int cycle = queue.rollCycle().toCycle(lastIndex);
+            final WireStore store = queue.storeForCycle(cycle, queue.epoch(), false);
+            try {
+                final SCQIndexing indexing = ((SingleChronicleQueueStore) store).indexing;
+                assertTrue(indexing.nextEntryToBeIndexed() > queue.rollCycle().toSequenceNumber(lastIndex));
+            } finally {
+                queue.release(store);
+            }
+
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int n = MESSAGES - 1; n >= 0; n -= 7) {
+                assertTrue(tailer.moveToIndex(firstIndex + n));
+                assertEquals("msg-" + n, tailer.readText());
+            }
+        }
+    }
+
+    @Test
+    public void appendsAfterReopeningCarryOnIndexing() {
+        final File dir = DirectoryUtils.tempDir("appendsAfterReopeningCarryOnIndexing");
+        for (int round = 0; round < 3; round++) {
+            try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                    .testBlockSize()
+                    .rollCycle(RollCycles.TEST4_DAILY)
+                    .deferredIndexing(round != 1)
+                    .build()) {
+                final ExcerptAppender appender = queue.acquireAppender();
+                for (int i = 0; i < MESSAGES / 3; i++)
+                    appender.writeText("round-" + round + "-" + i);
+            }
+        }
+
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.TEST4_DAILY)
+                .build()) {
+            final ExcerptTailer tailer = queue.createTailer();
+            final long firstIndex = queue.firstIndex();
+            for (int round = 2; round >= 0; round--) {
+                for (int i = MESSAGES / 3 - 1; i >= 0; i -= 11) {
+                    assertTrue(tailer.moveToIndex(firstIndex + round * (MESSAGES / 3) + i));
+                    assertEquals("round-" + round + "-" + i, tailer.readText());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static net.openhft.chronicle.queue.impl.single.DensePositionIndex.BLOCK_ENTRIES;
+import static net.openhft.chronicle.queue.impl.single.DensePositionIndex.SPACING;
+import static org.junit.Assert.*;
+
+public class DensePositionIndexTest {
+    private static final long BLOCK_BYTES = BLOCK_ENTRIES * 8L;
+
+    @Test
+    public void findsTheNearestRecordedPosition() {
+        try (DensePositionIndex index = new DensePositionIndex(4 * BLOCK_BYTES)) {
+            final DensePositionIndex.Cycle cycle = index.forCycle(1);
+            final long[] found = new long[2];
+            assertFalse(cycle.floor(1000, 0, found));
+
+            cycle.record(SPACING, 100);
+            cycle.record(3L * SPACING, 300);
+            // in another block
+            cycle.record((long) SPACING * BLOCK_ENTRIES * 2, 999);
+            assertEquals(2 * BLOCK_BYTES, index.allocatedBytes());
+
+            assertTrue(cycle.floor(3L * SPACING + 5, 0, found));
+            assertArrayEquals(new long[]{3L * SPACING, 300}, found);
+            assertTrue(cycle.floor(3L * SPACING - 1, 0, found));
+            assertArrayEquals(new long[]{SPACING, 100}, found);
+            assertTrue(cycle.floor(Long.MAX_VALUE >>> 8, 0, found));
+            assertArrayEquals(new long[]{(long) SPACING * BLOCK_ENTRIES * 2, 999}, found);
+            // only after the known sequence
+            assertFalse(cycle.floor(3L * SPACING - 1, SPACING, found));
+        }
+    }
+
+    @Test
+    public void freesTheCycleUsedLeastRecently() {
+        try (DensePositionIndex index = new DensePositionIndex(2 * BLOCK_BYTES)) {
+            final DensePositionIndex.Cycle first = index.forCycle(1);
+            final DensePositionIndex.Cycle second = index.forCycle(2);
+            final DensePositionIndex.Cycle third = index.forCycle(3);
+            final long[] found = new long[2];
+            first.record(SPACING, 1);
+            second.record(SPACING, 2);
+            assertTrue(first.floor(SPACING, 0, found));
+
+            third.record(SPACING, 3);
+            assertEquals(2 * BLOCK_BYTES, index.allocatedBytes());
+            assertTrue(first.floor(SPACING, 0, found));
+            assertFalse(second.floor(SPACING, 0, found));
+            assertTrue(third.floor(SPACING, 0, found));
+        }
+    }
+
+    @Test
+    public void cyclesAreRecordedAndFreedConcurrently() throws InterruptedException {
+        // room for fewer blocks than the threads use, so cycles are freed as others are read
+        try (DensePositionIndex index = new DensePositionIndex(3 * BLOCK_BYTES)) {
+            final Thread[] threads = new Thread[4];
+            final AtomicReference<Throwable> failed = new AtomicReference<>();
+            for (int t = 0; t < threads.length; t++) {
+                final DensePositionIndex.Cycle cycle = index.forCycle(t);
+                final long position = 1000 + t;
+                threads[t] = new Thread(() -> {
+                    final long[] found = new long[2];
+                    try {
+                        for (int i = 0; i < 20_000; i++) {
+                            final long sequence = (long) SPACING * (i % (2 * BLOCK_ENTRIES));
+                            cycle.record(sequence, position);
+                            // whatever is found was recorded for this cycle, unless it was freed
+                            if (cycle.floor(sequence, -1, found))
+                                assertEquals(position, found[1]);
+                        }
+                    } catch (Throwable e) {
+                        failed.compareAndSet(null, e);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+            assertNull(failed.get());
+            assertTrue(index.allocatedBytes() <= 3 * BLOCK_BYTES);
+        }
+    }
+
+    @Test
+    public void randomAccessOnASparseIndex() {
+        final int entries = 50_000;
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("randomAccessOnASparseIndex"))
+                .testBlockSize()
+                .indexSpacing(1 << 16)
+                .densePositionIndexMemory(1 << 20)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int i = 0; i < entries; i++) {
+                final long v = i;
+                appender.writeBytes(b -> b.writeLong(v));
+            }
+            final long first = queue.firstIndex();
+            final ExcerptTailer tailer = queue.createTailer();
+            assertTrue(tailer.moveToIndex(first + entries - 1));
+            assertTrue(queue.densePositionIndexAllocated() > 0);
+
+            final Random random = new Random(1);
+            for (int i = 0; i < 1_000; i++) {
+                final int n = random.nextInt(entries);
+                assertTrue(tailer.moveToIndex(first + n));
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    assertTrue(dc.isPresent());
+                    assertEquals(n, dc.wire().bytes().readLong());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.RollCycles;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DurabilityPolicyTest {
+
+    @Test
+    public void syncOnDemandCoversEverythingWritten() {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("syncOnDemandCoversEverythingWritten"))
+                .testBlockSize()
+                .durabilityPolicy(DurabilityPolicy.onDemand())
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            assertEquals(Long.MIN_VALUE, queue.durableIndex());
+            for (int i = 0; i < 10; i++)
+                appender.writeText("msg-" + i);
+            assertEquals(Long.MIN_VALUE, queue.durableIndex());
+
+            assertEquals(appender.lastIndexAppended(), queue.sync());
+            assertEquals(appender.lastIndexAppended(), queue.durableIndex());
+        }
+    }
+
+    @Test
+    public void syncCoversCyclesRolledThroughSinceTheLastSync() {
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("syncCoversCyclesRolledThroughSinceTheLastSync"))
+                .testBlockSize()
+                .rollCycle(RollCycles.TEST_SECONDLY)
+                .timeProvider(timeProvider)
+                .durabilityPolicy(DurabilityPolicy.onDemand())
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            appender.writeText("first");
+            assertEquals(appender.lastIndexAppended(), queue.sync());
+
+            for (int i = 0; i < 3; i++) {
+                timeProvider.advanceMillis(1_000);
+                appender.writeText("msg-" + i);
+            }
+            assertEquals(appender.lastIndexAppended(), queue.sync());
+            assertEquals(appender.lastIndexAppended(), queue.durableIndex());
+        }
+    }
+
+    @Test
+    public void periodicSyncCatchesUp() throws InterruptedException {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("periodicSyncCatchesUp"))
+                .testBlockSize()
+                .durabilityPolicy(DurabilityPolicy.everyMillis(5))
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int i = 0; i < 100; i++)
+                appender.writeText("msg-" + i);
+            final long end = System.currentTimeMillis() + 5_000;
+            while (queue.durableIndex() != appender.lastIndexAppended() && System.currentTimeMillis() < end)
+                Thread.sleep(1);
+            assertEquals(appender.lastIndexAppended(), queue.durableIndex());
+        }
+    }
+
+    @Test
+    public void byteThresholdSyncCatchesUp() throws InterruptedException {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("byteThresholdSyncCatchesUp"))
+                .testBlockSize()
+                .durabilityPolicy(DurabilityPolicy.everyBytes(1 << 10))
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            final StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 200; i++)
+                text.append('x');
+            for (int i = 0; i < 10; i++)
+                appender.writeText(text);
+            final long end = System.currentTimeMillis() + 5_000;
+            while (queue.durableIndex() == Long.MIN_VALUE && System.currentTimeMillis() < end)
+                Thread.sleep(1);
+            assertTrue(queue.durableIndex() != Long.MIN_VALUE);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void syncNeedsAPolicy() {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("syncNeedsAPolicy"))
+                .testBlockSize()
+                .build()) {
+            queue.sync();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueExcerpts.InternalAppender;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ExcerptCompressionTest {
+    private static final String FIX = "8=FIX.4.4\u00019=178\u000135=D\u000149=SENDER\u000156=TARGET\u000134=%d\u0001" +
+            "52=20180101-12:00:00.000\u000111=ORDER%d\u000121=1\u000155=EUR/USD\u000154=1\u000160=20180101-12:00:00.000\u0001" +
+            "38=1000000\u000140=2\u000144=1.2345%d\u000159=0\u000110=123\u0001";
+
+    @Test
+    public void lz4RoundTripsAllShapesOfData() {
+        final LZ4BlockCodec codec = new LZ4BlockCodec();
+        final Random random = new Random(1);
+        final Bytes<?> in = Bytes.allocateElasticDirect();
+        final Bytes<?> compressed = Bytes.allocateElasticDirect();
+        final Bytes<?> out = Bytes.allocateElasticDirect();
+        try {
+            for (int length : new int[]{0, 1, 12, 13, 17, 64, 100, 1000, 70_000}) {
+                for (int kind = 0; kind < 3; kind++) {
+                    in.clear();
+                    for (int i = 0; i < length; i++) {
+                        switch (kind) {
+                            case 0: // incompressible
+                                in.writeByte((byte) random.nextInt());
+                                break;
+                            case 1: // runs, overlapping matches
+                                in.writeByte((byte) (i / 50));
+                                break;
+                            default: // text
+                                in.writeByte((byte) "the quick brown fox jumps over ".charAt((i + i / 997) % 31));
+                        }
+                    }
+                    compressed.clear();
+                    out.clear();
+                    codec.compress(in, compressed);
+                    codec.decompress(compressed, out);
+                    assertEquals("length " + length + " kind " + kind, in.toString(), out.toString());
+                    assertEquals(0, in.readPosition());
+                }
+            }
+        } finally {
+            in.release();
+            compressed.release();
+            out.release();
+        }
+    }
+
+    @Test
+    public void lz4CompressedQueue() {
+        final File dir = DirectoryUtils.tempDir("lz4CompressedQueue");
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .lz4Compression()
+                .build()) {
+            writeAndReadFix(queue);
+        }
+        assertStoredSmallerThan(dir, String.format(FIX, 0, 0, 0).length());
+    }
+
+    @Test
+    public void deflateCompressedQueueWithDictionary() {
+        final File dir = DirectoryUtils.tempDir("deflateCompressedQueueWithDictionary");
+        final byte[] dictionary = String.format(FIX, 1, 1, 1).getBytes(StandardCharsets.ISO_8859_1);
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .deflateCompression(dictionary, 6)
+                .build()) {
+            writeAndReadFix(queue);
+        }
+        assertStoredSmallerThan(dir, String.format(FIX, 0, 0, 0).length() / 3);
+    }
+
+    private void writeAndReadFix(SingleChronicleQueue queue) {
+        final ExcerptAppender appender = queue.acquireAppender();
+        final Bytes<?> bytes = Bytes.allocateElasticDirect();
+        for (int i = 0; i < 100; i++) {
+            if (i % 2 == 0) {
+                appender.writeText(String.format(FIX, i, i, i));
+            } else {
+                bytes.clear().append8bit(String.format(FIX, i, i, i));
+                appender.writeBytes(bytes);
+            }
+        }
+        bytes.release();
+        try (DocumentContext dc = appender.writingDocument(true)) {
+            dc.wire().write("meta").text("not compressed");
+        }
+
+        final ExcerptTailer tailer = queue.createTailer();
+        for (int i = 0; i < 100; i++)
+            assertEquals(String.format(FIX, i, i, i), tailer.readText());
+        assertNull(tailer.readText());
+    }
+
+    @Test
+    public void excerptsWrittenAtAnIndexAreEncoded() {
+        final File dir = DirectoryUtils.tempDir("excerptsWrittenAtAnIndexAreEncoded");
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .lz4Compression()
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            final int cycle = queue.cycle();
+            final Bytes<?> bytes = Bytes.allocateElasticDirect();
+            for (int i = 0; i < 100; i++) {
+                final long index = queue.rollCycle().toIndex(cycle, i);
+                if (i % 2 == 0) {
+                    bytes.clear().append8bit(String.format(FIX, i, i, i));
+                    ((InternalAppender) appender).writeBytes(index, bytes);
+                } else {
+                    try (DocumentContext dc = appender.writingDocument(index)) {
+                        dc.wire().bytes().append8bit(String.format(FIX, i, i, i));
+                    }
+                }
+            }
+            bytes.release();
+
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int i = 0; i < 100; i++)
+                assertEquals(String.format(FIX, i, i, i), tailer.readText());
+            assertNull(tailer.readText());
+        }
+        assertStoredSmallerThan(dir, String.format(FIX, 0, 0, 0).length());
+    }
+
+    @Test
+    public void lz4QueueIsReadWithoutSayingSo() {
+        final File dir = DirectoryUtils.tempDir("lz4QueueIsReadWithoutSayingSo");
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .lz4Compression()
+                .build()) {
+            queue.acquireAppender().writeText(String.format(FIX, 0, 0, 0));
+        }
+        assertEquals(ExcerptCodec.LZ4, ExcerptCodec.recordedIn(dir));
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .readOnly(true)
+                .build()) {
+            assertEquals(String.format(FIX, 0, 0, 0), queue.createTailer().readText());
+        }
+    }
+
+    @Test
+    public void queueOpenedWithAnotherCodecIsRefused() {
+        final File dir = DirectoryUtils.tempDir("queueOpenedWithAnotherCodecIsRefused");
+        final byte[] dictionary = String.format(FIX, 1, 1, 1).getBytes(StandardCharsets.ISO_8859_1);
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .deflateCompression(dictionary, 6)
+                .build()) {
+            queue.acquireAppender().writeText(String.format(FIX, 0, 0, 0));
+        }
+        try (SingleChronicleQueue ignored = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .lz4Compression()
+                .build()) {
+            fail("opened with LZ4");
+        } catch (IllegalStateException expected) {
+        }
+        // the dictionary isn't kept, so this can't be read without saying so either
+        try (SingleChronicleQueue ignored = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .build()) {
+            fail("opened without a codec");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void codecCanOnlyBeSetForANewQueue() {
+        final File dir = DirectoryUtils.tempDir("codecCanOnlyBeSetForANewQueue");
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .build()) {
+            queue.acquireAppender().writeText("not compressed");
+        }
+        SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .lz4Compression()
+                .build()
+                .close();
+    }
+
+    private void assertStoredSmallerThan(File dir, int limit) {
+        // the cycle files without the metadata, which would have them decoded
+        final File rawDir = DirectoryUtils.tempDir(dir.getName() + "-raw");
+        final File[] cycleFiles = dir.listFiles((d, name) -> name.endsWith(SingleChronicleQueue.SUFFIX));
+        assertNotNull(cycleFiles);
+        try {
+            rawDir.mkdirs();
+            for (File cycleFile : cycleFiles)
+                Files.copy(cycleFile.toPath(), new File(rawDir, cycleFile.getName()).toPath());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        try (SingleChronicleQueue raw = SingleChronicleQueueBuilder.binary(rawDir).testBlockSize().build()) {
+            final ExcerptTailer tailer = raw.createTailer();
+            for (int i = 0; i < 100; i++) {
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    assertTrue(dc.isPresent());
+                    final long stored = dc.wire().bytes().readRemaining();
+                    assertTrue("stored " + stored + " limit " + limit, stored < limit);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.impl.TableStore;
+import net.openhft.chronicle.queue.impl.WireStore;
+import net.openhft.chronicle.queue.impl.table.SingleTableBuilder;
+import net.openhft.chronicle.threads.TimeoutPauser;
+import net.openhft.chronicle.wire.Wires;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class FastRecoveryTest {
+    private static final long DEAD_PID = Integer.MAX_VALUE - 1;
+    private static final long TIMEOUT_MS = 1_000;
+
+    @Test
+    public void recoversFromADeadWriterOnceTheLockTimesOut() {
+        // a dead writer can only be told from one in another container in the host's PID namespace
+        Assume.assumeTrue(inHostPidNamespace());
+        final File dir = DirectoryUtils.tempDir("recoversFromADeadWriter");
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .timeoutMS(TIMEOUT_MS)
+                .fastRecovery(true)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int i = 0; i < 10; i++)
+                appender.writeText("text-" + i);
+
+            // a writer died holding the lock, half way through a long excerpt.
+            tearTail(queue);
+            try (TableStore table = SingleTableBuilder.binary(new File(dir, "queue-lock" + SingleTableBuilder.SUFFIX)).build()) {
+                table.acquireValueFor("chronicle.write.lock").setValue(DEAD_PID);
+            }
+
+            appender.writeText("after");
+            appender.writeText("next");
+
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int i = 0; i < 10; i++)
+                assertEquals("text-" + i, tailer.readText());
+            assertEquals("after", tailer.readText());
+            assertEquals("next", tailer.readText());
+            assertNull(tailer.readText());
+        }
+    }
+
+    @Test
+    public void aHolderWhichIsNotVisibleIsNotTakenOverFrom() {
+        Assume.assumeTrue(OS.isLinux());
+        final File dir = DirectoryUtils.tempDir("aHolderWhichIsNotVisibleIsNotTakenOverFrom");
+        // alive in another PID namespace, so not in /proc
+        final TableStoreWriteLock lock = new TableStoreWriteLock(dir, () -> new TimeoutPauser(500_000), 500L, true) {
+            @Override
+            protected boolean pidsVisible() {
+                return false;
+            }
+        };
+        try (TableStore table = SingleTableBuilder.binary(new File(dir, "queue-lock" + SingleTableBuilder.SUFFIX)).build()) {
+            table.acquireValueFor("chronicle.write.lock").setValue(DEAD_PID);
+            final long start = System.currentTimeMillis();
+            // overridden once the timeout has passed, as any lock is, but what it's writing is left alone
+            lock.lock();
+            assertTrue(System.currentTimeMillis() - start >= 500);
+            assertFalse(lock.takenOver());
+            lock.unlock();
+        } finally {
+            lock.close();
+        }
+    }
+
+    @Test
+    public void aHolderKnownToBeDeadIsTakenOverFromOnceTheLockTimesOut() {
+        Assume.assumeTrue(OS.isLinux());
+        final File dir = DirectoryUtils.tempDir("aHolderKnownToBeDeadIsTakenOverFrom");
+        final TableStoreWriteLock lock = new TableStoreWriteLock(dir, () -> new TimeoutPauser(500_000), 500L, true) {
+            @Override
+            protected boolean pidsVisible() {
+                return true;
+            }
+        };
+        try (TableStore table = SingleTableBuilder.binary(new File(dir, "queue-lock" + SingleTableBuilder.SUFFIX)).build()) {
+            table.acquireValueFor("chronicle.write.lock").setValue(DEAD_PID);
+            final long start = System.currentTimeMillis();
+            lock.lock();
+            assertTrue(System.currentTimeMillis() - start >= 500);
+            assertTrue(lock.takenOver());
+            lock.unlock();
+            lock.recovered();
+            assertFalse(lock.takenOver());
+        } finally {
+            lock.close();
+        }
+    }
+
+    @Test
+    public void clearsOnlyWhatWasLeftAfterTheLastExcerpt() {
+        final File dir = DirectoryUtils.tempDir("clearsOnlyWhatWasLeft");
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int i = 0; i < 10; i++)
+                appender.writeText("text-" + i);
+            assertEquals(0, TornTailRecovery.recover(queue));
+
+            tearTail(queue);
+            assertEquals(4 + 100 * 4, TornTailRecovery.recover(queue));
+            assertEquals(0, TornTailRecovery.recover(queue));
+
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int i = 0; i < 10; i++)
+                assertEquals("text-" + i, tailer.readText());
+            assertNull(tailer.readText());
+        }
+    }
+
+    private static boolean inHostPidNamespace() {
+        if (!OS.isLinux())
+            return false;
+        try {
+            return "pid:[4026531836]".equals(Files.readSymbolicLink(Paths.get("/proc/self/ns/pid")).toString());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void tearTail(SingleChronicleQueue queue) {
+        final WireStore store = queue.storeForCycle(queue.cycle(), queue.epoch(), false);
+        final Bytes<?> bytes = store.bytes();
+        try {
+            final long last = store.writePosition();
+            final long tail = last + Wires.lengthOf(bytes.readVolatileInt(last)) + Wires.SPB_HEADER_SIZE;
+            bytes.writeInt(tail, Wires.NOT_COMPLETE);
+            for (int i = 1; i <= 100; i++)
+                bytes.writeInt(tail + i * 4, 0x5A5A5A5A);
+        } finally {
+            bytes.release();
+            queue.release(store);
+        }
+    }
+}
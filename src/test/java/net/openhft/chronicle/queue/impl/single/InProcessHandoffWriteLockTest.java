@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InProcessHandoffWriteLockTest {
+
+    @Test
+    public void releasesCrossProcessLockWhenNoOneIsWaiting() {
+        final CountingWriteLock crossProcess = new CountingWriteLock();
+        final WriteLock lock = new InProcessHandoffWriteLock(crossProcess, 8);
+
+        lock.lock();
+        assertTrue(lock.locked());
+        lock.unlock();
+        assertFalse(lock.locked());
+
+        lock.lock();
+        lock.unlock();
+        assertEquals(2, crossProcess.lockCount.get());
+        assertEquals(2, crossProcess.unlockCount.get());
+    }
+
+    @Test
+    public void isNotReentrant() {
+        final CountingWriteLock crossProcess = new CountingWriteLock();
+        final WriteLock lock = new InProcessHandoffWriteLock(crossProcess, 8);
+
+        lock.lock();
+        try {
+            lock.lock();
+            fail("locked twice");
+        } catch (IllegalStateException expected) {
+        }
+        // still held, until the one unlock
+        assertTrue(lock.locked());
+        lock.unlock();
+        assertFalse(lock.locked());
+    }
+
+    @Test
+    public void handsOverCrossProcessLockToLocalWaiters() throws InterruptedException {
+        final CountingWriteLock crossProcess = new CountingWriteLock();
+        final WriteLock lock = new InProcessHandoffWriteLock(crossProcess, 1_000);
+        final int threads = 8;
+        final int iterations = 10_000;
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicInteger violations = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < iterations; i++) {
+                    lock.lock();
+                    try {
+                        if (inside.incrementAndGet() != 1)
+                            violations.incrementAndGet();
+                        inside.decrementAndGet();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+            workers.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+
+        assertEquals(0, violations.get());
+        assertFalse(lock.locked());
+        assertEquals(crossProcess.lockCount.get(), crossProcess.unlockCount.get());
+        // some of the locks were handed over
+        assertTrue(crossProcess.lockCount.get() < threads * iterations);
+    }
+
+    @Test
+    public void handsOverAtMostMaxHandoffsInARow() throws InterruptedException {
+        final CountingWriteLock crossProcess = new CountingWriteLock();
+        final WriteLock lock = new InProcessHandoffWriteLock(crossProcess, 1);
+        final CountDownLatch secondLocked = new CountDownLatch(1);
+        final CountDownLatch secondUnlock = new CountDownLatch(1);
+
+        lock.lock();
+        final Thread second = new Thread(() -> {
+            lock.lock();
+            secondLocked.countDown();
+            try {
+                secondUnlock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lock.unlock();
+        });
+        second.start();
+        awaitWaiting(second);
+        lock.unlock();
+        secondLocked.await();
+        // handed over, once
+        assertEquals(1, crossProcess.lockCount.get());
+        assertEquals(0, crossProcess.unlockCount.get());
+
+        final Thread third = new Thread(() -> {
+            lock.lock();
+            lock.unlock();
+        });
+        third.start();
+        awaitWaiting(third);
+        secondUnlock.countDown();
+        second.join();
+        third.join();
+        // but not twice in a row
+        assertEquals(2, crossProcess.lockCount.get());
+        assertEquals(2, crossProcess.unlockCount.get());
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING)
+            Thread.sleep(1);
+    }
+
+    @Test
+    public void concurrentAppendersWriteEveryMessage() throws InterruptedException {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("concurrentAppendersWriteEveryMessage"))
+                .testBlockSize()
+                .inProcessWriterHandoffs(64)
+                .build()) {
+            final int threads = 4;
+            final int perThread = 1_000;
+            final List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int id = t;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++)
+                        queue.acquireAppender().writeText(id + ":" + i);
+                });
+                writers.add(thread);
+                thread.start();
+            }
+            for (Thread writer : writers)
+                writer.join();
+
+            final Set<String> read = new HashSet<>();
+            final ExcerptTailer tailer = queue.createTailer();
+            while (true) {
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    if (!dc.isPresent())
+                        break;
+                    read.add(dc.wire().bytes().toString());
+                }
+            }
+            assertEquals(threads * perThread, read.size());
+        }
+    }
+
+    static final class CountingWriteLock implements WriteLock {
+        final AtomicInteger lockCount = new AtomicInteger();
+        final AtomicInteger unlockCount = new AtomicInteger();
+        private volatile boolean locked;
+
+        @Override
+        public void lock() {
+            assertFalse("already locked", locked);
+            locked = true;
+            lockCount.incrementAndGet();
+        }
+
+        @Override
+        public void unlock() {
+            assertTrue("not locked", locked);
+            locked = false;
+            unlockCount.incrementAndGet();
+        }
+
+        @Override
+        public boolean locked() {
+            return locked;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class MappingBudgetTest {
+    private static final int TAILERS = 4;
+
+    @Test
+    public void unmapsIdleTailersWhichCarryOnWhereTheyWere() {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("unmapsIdleTailersWhichCarryOnWhereTheyWere"))
+                .testBlockSize()
+                .mappedBytesBudget(1)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int i = 0; i < 10; i++)
+                appender.writeText("msg-" + i);
+
+            final ExcerptTailer[] tailers = new ExcerptTailer[TAILERS];
+            for (int t = 0; t < TAILERS; t++) {
+                tailers[t] = queue.createTailer();
+                assertEquals("msg-0", tailers[t].readText());
+                assertEquals("msg-1", tailers[t].readText());
+            }
+            final MappingBudget budget = queue.mappingBudget();
+            // only the tailer last read with is still mapped
+            assertEquals(TAILERS - 1, budget.unmaps());
+            final long mappedByOne = budget.mappedBytes();
+            assertTrue(mappedByOne > 0);
+
+            for (int t = 0; t < TAILERS; t++) {
+                assertEquals("msg-2", tailers[t].readText());
+                assertEquals(queue.rollCycle().toIndex(queue.firstCycle(), 3), tailers[t].index());
+            }
+            // each one read with has unmapped the one before
+            assertEquals(TAILERS, budget.remaps());
+            assertEquals(2 * TAILERS, budget.maps());
+            assertEquals(mappedByOne, budget.mappedBytes());
+
+            // moving a tailer doesn't carry on from where it was unmapped
+            tailers[0].toStart();
+            assertEquals("msg-0", tailers[0].readText());
+        }
+    }
+
+    @Test
+    public void tailersOfOtherThreadsAreUnmappedByTheirThread() throws Exception {
+        final ExecutorService other = Executors.newSingleThreadExecutor();
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("tailersOfOtherThreadsAreUnmappedByTheirThread"))
+                .testBlockSize()
+                .mappedBytesBudget(1)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int i = 0; i < 10; i++)
+                appender.writeText("msg-" + i);
+            final MappingBudget budget = queue.mappingBudget();
+
+            final ExcerptTailer otherTailer = other.submit(() -> {
+                final ExcerptTailer tailer = queue.createTailer();
+                assertEquals("msg-0", tailer.readText());
+                return tailer;
+            }).get();
+            final ExcerptTailer tailer = queue.createTailer();
+            assertEquals("msg-0", tailer.readText());
+            // flagged, but left for its thread to unmap
+            assertEquals(0, budget.unmaps());
+
+            // which it does on its next use, still seeing what's waiting
+            assertTrue(other.submit(otherTailer::peekDocument).get());
+            assertEquals(1, budget.unmaps());
+            assertEquals(1, budget.remaps());
+            assertEquals("msg-1", other.submit(() -> otherTailer.readText()).get());
+
+            // and the other thread's map flagged this thread's tailer in turn
+            assertEquals("msg-1", tailer.readText());
+            assertEquals(2, budget.unmaps());
+            assertEquals(2, budget.remaps());
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void anUnmappedTailerStillSeesWhatIsWaiting() {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("anUnmappedTailerStillSeesWhatIsWaiting"))
+                .testBlockSize()
+                .mappedBytesBudget(1)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int i = 0; i < 3; i++)
+                appender.writeText("msg-" + i);
+
+            final ExcerptTailer first = queue.createTailer();
+            assertEquals("msg-0", first.readText());
+            final ExcerptTailer second = queue.createTailer();
+            assertEquals("msg-0", second.readText());
+            assertEquals(1, queue.mappingBudget().unmaps());
+
+            assertTrue(first.peekDocument());
+            assertEquals("msg-1", first.readText());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void noBudgetUnlessSet() {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("noBudgetUnlessSet"))
+                .testBlockSize()
+                .build()) {
+            queue.mappingBudget();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MoveToTimeTest {
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private static long readLong(ExcerptTailer tailer) {
+        try (DocumentContext dc = tailer.readingDocument()) {
+            assertTrue(dc.isPresent());
+            return dc.wire().bytes().readLong();
+        }
+    }
+
+    @Test
+    public void movesToAtMostOneSampleBeforeTheTime() {
+        final File dir = DirectoryUtils.tempDir("movesToAtMostOneSampleBeforeTheTime");
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        // the start of a minute, with two cycles of one excerpt per millisecond, then a gap of a cycle.
+        final long start = (System.currentTimeMillis() / MINUTE + 1) * MINUTE;
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider)
+                .timeIndex(100, 10)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (long t = 0; t < 2 * MINUTE; t += 10) {
+                timeProvider.currentTimeMillis(start + t);
+                final long v = t;
+                appender.writeBytes(b -> b.writeLong(v));
+            }
+            timeProvider.currentTimeMillis(start + 3 * MINUTE);
+            appender.writeBytes(b -> b.writeLong(3 * MINUTE));
+            // the last cycle is cached for the millisecond
+            timeProvider.currentTimeMillis(start + 3 * MINUTE + 1);
+
+            final ExcerptTailer tailer = queue.createTailer();
+            for (long t : new long[]{5, 1_000, 12_345, MINUTE - 1, MINUTE, MINUTE + 20_005}) {
+                assertTrue(tailer.moveToTime(start + t));
+                final long v = readLong(tailer);
+                // sampled every 10 ms, i.e. every excerpt
+                assertTrue(t + " -> " + v, v < t && v >= t - 10 || v == t);
+            }
+
+            // before the queue starts
+            assertTrue(tailer.moveToTime(start - 5 * MINUTE));
+            assertEquals(0, readLong(tailer));
+            // in the cycle which is missing, so from the start of the next one
+            assertTrue(tailer.moveToTime(start + 2 * MINUTE + 30_000));
+            assertEquals(3 * MINUTE, readLong(tailer));
+            // after the end
+            assertFalse(tailer.moveToTime(start + 10 * MINUTE));
+        }
+        assertTrue(new File(dir, dir.list((d, n) -> n.endsWith(".cq4" + TimeIndex.SUFFIX))[0]).length() > 0);
+    }
+
+    @Test
+    public void samplesEveryNExcerpts() throws Exception {
+        final File file = new File(DirectoryUtils.tempDir("samplesEveryNExcerpts"), "test" + TimeIndex.SUFFIX);
+        file.getParentFile().mkdirs();
+        final TimeIndex timeIndex = TimeIndex.open(file, false);
+        try {
+            for (int i = 0; i < 1_000; i++)
+                timeIndex.sample(1_000 + i / 100, i, 50, 1_000);
+            assertEquals(20, timeIndex.count());
+            assertEquals(Long.MIN_VALUE, timeIndex.indexBefore(1_000));
+            assertEquals(50, timeIndex.indexBefore(1_001));
+            assertEquals(950, timeIndex.indexBefore(2_000));
+        } finally {
+            timeIndex.release();
+        }
+    }
+}
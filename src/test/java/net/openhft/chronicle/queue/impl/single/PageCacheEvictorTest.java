@@ -0,0 +1,58 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PageCacheEvictorTest {
+    private static final long MINUTE = 60_000;
+
+    @Test
+    public void evictsCyclesEveryConsumerHasRead() {
+        Assume.assumeTrue(OS.isLinux());
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        timeProvider.currentTimeMillis(System.currentTimeMillis() / MINUTE * MINUTE);
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("evictsCyclesEveryConsumerHasRead"))
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider)
+                .evictConsumedCycles(true)
+                .build()) {
+            final ExcerptTailer consumer = queue.createTailer();
+            queue.registerConsumer(consumer);
+            final ExcerptAppender appender = queue.acquireAppender();
+            for (int i = 0; i < 3; i++) {
+                appender.writeText("msg-" + i);
+                timeProvider.advanceMillis(MINUTE);
+            }
+            appender.writeText("msg-3");
+
+            // the appender has released the first cycles, but the consumer hasn't read them
+            Jvm.pause(100);
+            assertEquals(0, queue.pageCacheCyclesEvicted());
+
+            assertEquals("msg-0", consumer.readText());
+            assertEquals("msg-1", consumer.readText());
+            final long end = System.currentTimeMillis() + 5_000;
+            while (queue.pageCacheCyclesEvicted() < 1) {
+                assertTrue(System.currentTimeMillis() < end);
+                Jvm.pause(10);
+            }
+            assertEquals(1, queue.pageCacheCyclesEvicted());
+            assertTrue(queue.pageCacheBytesEvicted() > 0);
+
+            // the pages are dropped, not the data
+            consumer.toStart();
+            assertEquals("msg-0", consumer.readText());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class QueueRerollerTest {
+    private static final int PER_MINUTE = 100;
+
+    // three minutes in one hour, and two in the next
+    private static File writeMinutely(String name, boolean checksums) {
+        return writeMinutely(name, checksums, ExcerptCodec.NONE);
+    }
+
+    private static File writeMinutely(String name, boolean checksums, ExcerptCodec codec) {
+        final File dir = DirectoryUtils.tempDir(name);
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        final long hour = TimeUnit.HOURS.toMillis(1000);
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider)
+                .checksums(checksums)
+                .impliedCodec(codec)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            int n = 0;
+            for (long minute : new long[]{57, 58, 59, 60, 61}) {
+                timeProvider.currentTimeMillis(hour + TimeUnit.MINUTES.toMillis(minute));
+                for (int i = 0; i < PER_MINUTE; i++)
+                    appender.writeText("text-" + n++);
+            }
+        }
+        return dir;
+    }
+
+    @Test
+    public void mergesCyclesIntoALongerRollCycle() throws ParseException {
+        final File source = writeMinutely("mergesCyclesSource", false);
+        final File target = DirectoryUtils.tempDir("mergesCyclesTarget");
+
+        final QueueReroller.Result result = new QueueReroller(source, target, RollCycles.HOURLY)
+                .threads(2)
+                .batchSize(16)
+                .reroll();
+        assertEquals(5, result.sourceCycles());
+        assertEquals(2, result.targetCycles());
+        assertEquals(5 * PER_MINUTE, result.excerpts());
+        assertTrue(result.bytes() > 0);
+
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(target).build()) {
+            assertEquals(RollCycles.HOURLY, queue.rollCycle());
+            assertEquals(2, queue.listCyclesBetween(queue.firstCycle(), queue.lastCycle()).size());
+            assertEquals(3 * PER_MINUTE, queue.exceptsPerCycle(queue.firstCycle()));
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int n = 0; n < 5 * PER_MINUTE; n++)
+                assertEquals("text-" + n, tailer.readText());
+            assertNull(tailer.readText());
+        }
+    }
+
+    @Test
+    public void keepsChecksums() {
+        final File source = writeMinutely("keepsChecksumsSource", true);
+        final File target = DirectoryUtils.tempDir("keepsChecksumsTarget");
+
+        new QueueReroller(source, target, RollCycles.DAILY).reroll();
+
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(target)
+                .verifyChecksums(true)
+                .build()) {
+            assertTrue(queue.checksums);
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int n = 0; n < 5 * PER_MINUTE; n++)
+                assertEquals("text-" + n, tailer.readText());
+            assertNull(tailer.readText());
+        }
+    }
+
+    @Test
+    public void keepsTheCodec() {
+        final File source = writeMinutely("keepsTheCodecSource", true, ExcerptCodec.LZ4);
+        final File target = DirectoryUtils.tempDir("keepsTheCodecTarget");
+
+        new QueueReroller(source, target, RollCycles.DAILY).reroll();
+
+        assertEquals(ExcerptCodec.LZ4, ExcerptCodec.recordedIn(target));
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(target)
+                .verifyChecksums(true)
+                .build()) {
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int n = 0; n < 5 * PER_MINUTE; n++)
+                assertEquals("text-" + n, tailer.readText());
+            assertNull(tailer.readText());
+        }
+    }
+
+    @Test
+    public void leavesTheSourceAsItWas() throws IOException {
+        final File source = writeMinutely("leavesTheSourceAsItWasSource", true);
+        final Map<String, byte[]> before = contents(source);
+
+        new QueueReroller(source, DirectoryUtils.tempDir("leavesTheSourceAsItWasTarget"), RollCycles.HOURLY).reroll();
+
+        final Map<String, byte[]> after = contents(source);
+        assertEquals(before.keySet(), after.keySet());
+        for (Map.Entry<String, byte[]> entry : before.entrySet())
+            assertArrayEquals(entry.getKey(), entry.getValue(), after.get(entry.getKey()));
+    }
+
+    @Test
+    public void refusesTargetCyclesWhichCantHoldTheirExcerpts() {
+        final File source = writeMinutely("cantHoldTheirExcerptsSource", false);
+        final File target = DirectoryUtils.tempDir("cantHoldTheirExcerptsTarget");
+        try {
+            // TEST_DAILY indexes only 64 excerpts a day
+            new QueueReroller(source, target, RollCycles.TEST_DAILY).reroll();
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        final String[] written = target.list();
+        assertTrue(written == null || written.length == 0);
+    }
+
+    private static Map<String, byte[]> contents(File dir) throws IOException {
+        final Map<String, byte[]> contents = new TreeMap<>();
+        final File[] files = dir.listFiles();
+        assertNotNull(files);
+        for (File file : files)
+            contents.put(file.getName(), Files.readAllBytes(file.toPath()));
+        return contents;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rollCycleMustBeAMultipleOfTheSource() {
+        final File source = writeMinutely("multipleOfTheSource", false);
+        new QueueReroller(source, DirectoryUtils.tempDir("multipleOfTheTarget"), RollCycles.TEST_SECONDLY).reroll();
+    }
+}
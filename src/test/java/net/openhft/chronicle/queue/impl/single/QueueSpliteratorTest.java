@@ -0,0 +1,94 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+public class QueueSpliteratorTest {
+    private static final int PER_CYCLE = 5_000;
+    private static final Function<DocumentContext, Long> READ_LONG = dc -> dc.wire().bytes().readLong();
+
+    private static SingleChronicleQueue queueOf(String name, int cycleCount, int skipCycle) {
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        timeProvider.currentTimeMillis(System.currentTimeMillis());
+        final SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(DirectoryUtils.tempDir(name))
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider)
+                .build();
+        final ExcerptAppender appender = queue.acquireAppender();
+        long value = 0;
+        for (int c = 0; c < cycleCount; c++) {
+            if (c != skipCycle) {
+                for (int i = 0; i < PER_CYCLE; i++) {
+                    final long v = value++;
+                    appender.writeBytes(b -> b.writeLong(v));
+                }
+            }
+            timeProvider.currentTimeMillis(timeProvider.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+        }
+        return queue;
+    }
+
+    @Test
+    public void parallelStreamReadsTheRangeInOrder() {
+        try (SingleChronicleQueue queue = queueOf("parallelStreamReadsTheRangeInOrder", 4, 2)) {
+            final RollCycle rollCycle = queue.rollCycle();
+            final int firstCycle = queue.firstCycle();
+            final long from = rollCycle.toIndex(firstCycle, 1_234);
+            // the third cycle is missing, so this ends part way through the fourth.
+            final long to = rollCycle.toIndex(firstCycle + 3, 4_321);
+
+            final List<Long> expected = LongStream.range(1_234, 2 * PER_CYCLE + 4_321).boxed().collect(Collectors.toList());
+            assertEquals(expected.size(), queue.spliterator(from, to, READ_LONG).estimateSize());
+            assertEquals(expected, queue.stream(from, to, READ_LONG, false).collect(Collectors.toList()));
+            assertEquals(expected, queue.stream(from, to, READ_LONG, true).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void splitsByCycleThenByIndexBlock() {
+        try (SingleChronicleQueue queue = queueOf("splitsByCycleThenByIndexBlock", 2, -1)) {
+            final RollCycle rollCycle = queue.rollCycle();
+            final int firstCycle = queue.firstCycle();
+            final Spliterator<Long> second = queue.spliterator(
+                    rollCycle.toIndex(firstCycle, 0), rollCycle.toIndex(firstCycle + 2, 0), READ_LONG);
+            final Spliterator<Long> first = second.trySplit();
+            assertNotNull(first);
+            assertEquals(PER_CYCLE, first.estimateSize());
+            assertEquals(PER_CYCLE, second.estimateSize());
+
+            final Spliterator<Long> firstHalf = first.trySplit();
+            assertNotNull(firstHalf);
+            assertEquals(0, firstHalf.estimateSize() % queue.indexSpacing());
+            assertEquals(PER_CYCLE, firstHalf.estimateSize() + first.estimateSize());
+
+            final List<Long> values = new ArrayList<>();
+            firstHalf.forEachRemaining(values::add);
+            first.forEachRemaining(values::add);
+            assertEquals(LongStream.range(0, PER_CYCLE).boxed().collect(Collectors.toList()), values);
+        }
+    }
+
+    @Test
+    public void emptyRange() {
+        try (SingleChronicleQueue queue = queueOf("emptyRange", 1, -1)) {
+            final long first = queue.firstIndex();
+            assertEquals(0, queue.stream(first, first, READ_LONG, true).count());
+        }
+    }
+}
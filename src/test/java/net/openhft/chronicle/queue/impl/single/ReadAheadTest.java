@@ -0,0 +1,76 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.TailerDirection;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ReadAheadTest {
+    private static final long READ_AHEAD = 4 << 20;
+
+    @Test
+    public void readsAheadOfASequentialTailer() {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("readsAheadOfASequentialTailer"))
+                .tailerReadAhead(READ_AHEAD)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            final Bytes<?> bytes = Bytes.allocateElasticDirect(1024);
+            for (int i = 0; i < 8192; i++) {
+                bytes.clear().writeInt(i);
+                while (bytes.writePosition() < 1024)
+                    bytes.writeByte((byte) 'X');
+                appender.writeBytes(bytes);
+            }
+            bytes.release();
+            assertEquals(0, queue.readAheadBytes());
+
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int i = 0; i < 16; i++) {
+                final int expected = i;
+                assertTrue(tailer.readBytes(in -> assertEquals(expected, in.readInt())));
+            }
+            final long end = System.currentTimeMillis() + 5_000;
+            while (queue.readAheadBytes() < READ_AHEAD / 2) {
+                assertTrue("read ahead " + queue.readAheadBytes(), System.currentTimeMillis() < end);
+                Jvm.pause(10);
+            }
+
+            // reading ahead doesn't change what's read
+            for (int i = 16; i < 8192; i++) {
+                final int expected = i;
+                assertTrue(tailer.readBytes(in -> assertEquals(expected, in.readInt())));
+            }
+            assertFalse(tailer.readBytes(in -> fail()));
+        }
+    }
+
+    @Test
+    public void nothingIsReadOnceTheLastCycleHasBeenReadToItsEnd() throws IOException {
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("nothingIsReadOnceTheLastCycleHasBeenReadToItsEnd"))
+                .testBlockSize()
+                .build()) {
+            queue.acquireAppender().writeText("hello");
+            // not started, so only read ahead here
+            final ReadAhead readAhead = new ReadAhead(queue, READ_AHEAD);
+            final ReadAhead.Cursor cursor = readAhead.cursor();
+            cursor.onRead(queue.cycle(), 0, TailerDirection.FORWARD);
+
+            assertTrue(cursor.readAhead());
+            final long read = readAhead.bytesRead();
+            assertTrue(read > 0);
+            // caught up, with no next cycle, so not busy
+            for (int i = 0; i < 10; i++)
+                assertFalse(cursor.readAhead());
+            assertEquals(read, readAhead.bytesRead());
+        }
+    }
+}
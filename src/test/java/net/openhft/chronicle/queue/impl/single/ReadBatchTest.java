@@ -0,0 +1,64 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReadBatchTest {
+
+    @Test
+    public void readsAcrossCyclesAndSkipsMetaData() {
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        timeProvider.currentTimeMillis(System.currentTimeMillis());
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("readsAcrossCyclesAndSkipsMetaData"))
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            int value = 0;
+            for (int cycle = 0; cycle < 3; cycle++) {
+                for (int i = 0; i < 20; i++) {
+                    final int v = value++;
+                    appender.writeBytes(b -> b.writeInt(v));
+                    if (i % 7 == 0) {
+                        try (DocumentContext dc = appender.writingDocument(true)) {
+                            dc.wire().write("meta").int32(v);
+                        }
+                    }
+                }
+                timeProvider.currentTimeMillis(timeProvider.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+            }
+
+            final ExcerptTailer tailer = queue.createTailer();
+            final ExcerptTailer single = queue.createTailer();
+            final List<Integer> values = new ArrayList<>();
+            int read;
+            while ((read = tailer.readBatch(b -> values.add(b.readInt()), 7)) > 0) {
+                for (int i = 0; i < read; i++)
+                    single.readBytes(b -> b.readInt());
+                assertEquals(single.index(), tailer.index());
+            }
+
+            assertEquals(value, values.size());
+            for (int i = 0; i < value; i++)
+                assertEquals(i, (int) values.get(i));
+
+            // and it picks up where it left off
+            appender.writeBytes(b -> b.writeInt(-1));
+            assertEquals(1, tailer.readBatch(b -> assertEquals(-1, b.readInt()), 7));
+            assertEquals(0, tailer.readBatch(b -> b.readInt(), 7));
+        }
+    }
+}
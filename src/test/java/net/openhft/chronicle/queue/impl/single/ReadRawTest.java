@@ -0,0 +1,54 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReadRawTest {
+
+    @Test
+    public void relaysExcerptsAsTheyAre() {
+        try (SingleChronicleQueue source = SingleChronicleQueueBuilder
+                .binary(DirectoryUtils.tempDir("relaysExcerptsAsTheyAre-source"))
+                .testBlockSize()
+                .build();
+             SingleChronicleQueue sink = SingleChronicleQueueBuilder
+                     .binary(DirectoryUtils.tempDir("relaysExcerptsAsTheyAre-sink"))
+                     .testBlockSize()
+                     .build()) {
+            final ExcerptAppender appender = source.acquireAppender();
+            final List<Long> indexes = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                appender.writeText("text-" + i);
+                indexes.add(appender.lastIndexAppended());
+                if (i % 10 == 0) {
+                    try (DocumentContext dc = appender.writingDocument(true)) {
+                        dc.wire().write("meta").int32(i);
+                    }
+                }
+            }
+
+            final ExcerptTailer tailer = source.createTailer();
+            final ExcerptAppender relay = sink.acquireAppender();
+            final List<Long> relayed = new ArrayList<>();
+            while (tailer.readRaw((index, payload) -> {
+                relayed.add(index);
+                relay.writeBytes(payload);
+            })) ;
+            assertEquals(indexes, relayed);
+            assertFalse(tailer.readRaw((index, payload) -> fail()));
+
+            final ExcerptTailer sinkTailer = sink.createTailer();
+            for (int i = 0; i < 50; i++)
+                assertEquals("text-" + i, sinkTailer.readText());
+            assertNull(sinkTailer.readText());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class RetentionTest {
+    private static final long MINUTE = 60_000;
+    private static final int CYCLES = 5;
+
+    private static SingleChronicleQueueBuilder builder(File dir, SetTimeProvider timeProvider) {
+        return SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider);
+    }
+
+    private static SetTimeProvider startOfAMinute() {
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        timeProvider.currentTimeMillis(System.currentTimeMillis() / MINUTE * MINUTE);
+        return timeProvider;
+    }
+
+    private static int writeCycles(SingleChronicleQueue queue) {
+        for (int i = 0; i < CYCLES; i++) {
+            queue.acquireAppender().writeText("msg-" + i);
+            if (i < CYCLES - 1)
+                ((SetTimeProvider) queue.time()).advanceMillis(MINUTE);
+        }
+        return queue.firstCycle();
+    }
+
+    @Test
+    public void deletesCyclesWhichHaveExpired() {
+        final File dir = DirectoryUtils.tempDir("deletesCyclesWhichHaveExpired");
+        try (SingleChronicleQueue queue = builder(dir, startOfAMinute()).retention(2 * MINUTE, 0).build()) {
+            final int first = writeCycles(queue);
+            queue.applyRetention();
+
+            // the third cycle ended two minutes after the first started, less than two minutes ago
+            assertEquals(first + 2, queue.firstCycle());
+            assertEquals(queue.rollCycle().toIndex(first + 2, 0), queue.firstIndex());
+            final ExcerptTailer tailer = queue.createTailer();
+            assertEquals("msg-2", tailer.readText());
+            assertEquals(CYCLES - 2, dir.list((d, name) -> name.endsWith(SingleChronicleQueue.SUFFIX)).length);
+        }
+    }
+
+    @Test
+    public void keepsWhatARegisteredConsumerHasNotRead() {
+        final File dir = DirectoryUtils.tempDir("keepsWhatARegisteredConsumerHasNotRead");
+        try (SingleChronicleQueue queue = builder(dir, startOfAMinute()).retention(1, 0).build()) {
+            final int first = writeCycles(queue);
+            final ExcerptTailer consumer = queue.createTailer();
+            queue.registerConsumer(consumer);
+            queue.applyRetention();
+            assertEquals(first, queue.firstCycle());
+
+            assertEquals("msg-0", consumer.readText());
+            assertEquals("msg-1", consumer.readText());
+            queue.applyRetention();
+            assertEquals(first + 1, queue.firstCycle());
+
+            queue.unregisterConsumer(consumer);
+            consumer.toEnd();
+            queue.applyRetention();
+            // the last cycle is always kept
+            assertEquals(first + CYCLES - 1, queue.firstCycle());
+        }
+    }
+
+    @Test
+    public void aConsumerWithNoPositionHoldsTheFirstCycle() {
+        final File dir = DirectoryUtils.tempDir("aConsumerWithNoPositionHoldsTheFirstCycle");
+        try (SingleChronicleQueue queue = builder(dir, startOfAMinute()).retention(1, 0).build()) {
+            // created on an empty queue, so at index 0 until it reads
+            final ExcerptTailer consumer = queue.createTailer();
+            queue.registerConsumer(consumer);
+            final int first = writeCycles(queue);
+            queue.applyRetention();
+            assertEquals(first, queue.firstCycle());
+            assertEquals("msg-0", consumer.readText());
+        }
+    }
+
+    @Test
+    public void keepsTheQueueWithinItsSize() {
+        final File dir = DirectoryUtils.tempDir("keepsTheQueueWithinItsSize");
+        final SetTimeProvider timeProvider = startOfAMinute();
+        final long cycleLength;
+        try (SingleChronicleQueue queue = builder(dir, timeProvider).build()) {
+            cycleLength = queue.cycleFileLength(writeCycles(queue));
+        }
+        try (SingleChronicleQueue queue = builder(dir, timeProvider).retention(0, cycleLength * 5 / 2).build()) {
+            final int last = queue.lastCycle();
+            queue.applyRetention();
+            assertEquals(last - 1, queue.firstCycle());
+        }
+    }
+}
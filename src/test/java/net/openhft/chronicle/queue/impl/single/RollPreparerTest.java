@@ -0,0 +1,94 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycles;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RollPreparerTest {
+
+    private static File[] preCreatedFiles(File dir) {
+        return dir.listFiles((d, name) -> name.endsWith(".precreated"));
+    }
+
+    private static void waitForPreCreatedFile(File dir) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 5_000;
+        while (preCreatedFiles(dir).length == 0 && System.currentTimeMillis() < end)
+            Thread.sleep(1);
+        assertEquals(1, preCreatedFiles(dir).length);
+    }
+
+    @Test
+    public void rollsToThePreparedFile() throws InterruptedException {
+        final File dir = DirectoryUtils.tempDir("rollsToThePreparedFile");
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        timeProvider.currentTimeMillis(System.currentTimeMillis());
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider)
+                .prepareNextCycle(true)
+                .build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            appender.writeText("first");
+            final int firstCycle = appender.cycle();
+            waitForPreCreatedFile(dir);
+
+            timeProvider.currentTimeMillis(timeProvider.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+            appender.writeText("second");
+            assertEquals(firstCycle + 1, appender.cycle());
+
+            final ExcerptTailer tailer = queue.createTailer();
+            assertEquals("first", tailer.readText());
+            assertEquals("second", tailer.readText());
+            assertNull(tailer.readText());
+
+            // and the one after is prepared in turn
+            waitForPreCreatedFile(dir);
+        }
+        assertEquals(0, preCreatedFiles(dir).length);
+
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider)
+                .build()) {
+            final ExcerptTailer tailer = queue.createTailer();
+            assertEquals("first", tailer.readText());
+            assertEquals("second", tailer.readText());
+            assertNull(tailer.readText());
+        }
+    }
+
+    @Test
+    public void deletesAPreparedFileWhichWasNotUsed() throws InterruptedException {
+        final File dir = DirectoryUtils.tempDir("deletesAPreparedFileWhichWasNotUsed");
+        final SetTimeProvider timeProvider = new SetTimeProvider();
+        timeProvider.currentTimeMillis(System.currentTimeMillis());
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(dir)
+                .testBlockSize()
+                .rollCycle(RollCycles.MINUTELY)
+                .timeProvider(timeProvider)
+                .prepareNextCycle(true)
+                .build()) {
+            queue.acquireAppender().writeText("first");
+            waitForPreCreatedFile(dir);
+            final File unused = preCreatedFiles(dir)[0];
+
+            // skip two cycles without writing
+            timeProvider.currentTimeMillis(timeProvider.currentTimeMillis() + TimeUnit.MINUTES.toMillis(2));
+            final long end = System.currentTimeMillis() + 5_000;
+            while (unused.exists() && System.currentTimeMillis() < end)
+                Thread.sleep(1);
+            assertFalse(unused.exists());
+            waitForPreCreatedFile(dir);
+        }
+    }
+}
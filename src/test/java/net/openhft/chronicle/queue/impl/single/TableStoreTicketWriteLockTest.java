@@ -0,0 +1,148 @@
+package net.openhft.chronicle.queue.impl.single;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.values.LongValue;
+import net.openhft.chronicle.queue.DirectoryUtils;
+import net.openhft.chronicle.queue.impl.TableStore;
+import net.openhft.chronicle.queue.impl.table.AbstractTSQueueLock;
+import net.openhft.chronicle.queue.impl.table.SingleTableBuilder;
+import net.openhft.chronicle.threads.TimeoutPauser;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TableStoreTicketWriteLockTest {
+    private static final long DEAD_PID = Integer.MAX_VALUE - 1;
+
+    private static TableStoreTicketWriteLock newLock(File dir) {
+        return new TableStoreTicketWriteLock(dir, () -> new TimeoutPauser(500_000), 10_000L);
+    }
+
+    private static TableStoreTicketWriteLock takingOverLock(File dir, boolean pidsVisible) {
+        return new TableStoreTicketWriteLock(dir, () -> new TimeoutPauser(500_000), 1_000L, true) {
+            @Override
+            protected boolean pidsVisible() {
+                return pidsVisible;
+            }
+        };
+    }
+
+    private static TableStore lockTable(File dir) {
+        return SingleTableBuilder.binary(new File(dir, "queue-lock" + SingleTableBuilder.SUFFIX)).build();
+    }
+
+    @Test
+    public void excludesAcrossThreads() throws InterruptedException {
+        final File dir = DirectoryUtils.tempDir("excludesAcrossThreads");
+        final TableStoreTicketWriteLock lock = newLock(dir);
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicInteger violations = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    lock.lock();
+                    try {
+                        if (inside.incrementAndGet() != 1)
+                            violations.incrementAndGet();
+                        inside.decrementAndGet();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(0, violations.get());
+        assertFalse(lock.locked());
+        lock.close();
+    }
+
+    @Test
+    public void takesOverFromADeadProcess() {
+        Assume.assumeTrue(OS.isLinux());
+        final File dir = DirectoryUtils.tempDir("takesOverFromADeadProcess");
+        final TableStoreTicketWriteLock lock = takingOverLock(dir, true);
+        try (TableStore table = lockTable(dir)) {
+            // a process took the first ticket and the lock, then died.
+            final LongValue nextTicket = table.acquireValueFor("chronicle.write.lock.nextTicket");
+            nextTicket.addAtomicValue(1);
+            table.acquireValueFor("chronicle.write.lock").setValue(DEAD_PID);
+            assertTrue(lock.locked());
+
+            final long start = System.currentTimeMillis();
+            lock.lock();
+            // not before the timeout
+            assertTrue(System.currentTimeMillis() - start >= 1_000);
+            assertTrue(lock.takenOver());
+            lock.unlock();
+            assertFalse(lock.locked());
+        } finally {
+            lock.close();
+        }
+    }
+
+    @Test
+    public void waitsForAHolderWhichIsNotVisible() throws InterruptedException {
+        Assume.assumeTrue(OS.isLinux());
+        final File dir = DirectoryUtils.tempDir("waitsForAHolderWhichIsNotVisible");
+        // the holder's PID isn't in /proc, as it would be for a writer in another container
+        final TableStoreTicketWriteLock lock = takingOverLock(dir, false);
+        try (TableStore table = lockTable(dir)) {
+            table.acquireValueFor("chronicle.write.lock.nextTicket").addAtomicValue(1);
+            final LongValue holder = table.acquireValueFor("chronicle.write.lock");
+            holder.setValue(DEAD_PID);
+
+            final Thread waiter = new Thread(() -> {
+                lock.lock();
+                lock.unlock();
+            });
+            waiter.start();
+            waiter.join(3_000);
+            assertTrue("took over from a holder which may be alive", waiter.isAlive());
+            assertFalse(lock.takenOver());
+
+            // the holder unlocks
+            holder.setValue(Long.MIN_VALUE);
+            table.acquireValueFor("chronicle.write.lock.serving").addAtomicValue(1);
+            waiter.join(10_000);
+            assertFalse(waiter.isAlive());
+            assertFalse(lock.takenOver());
+        } finally {
+            lock.close();
+        }
+    }
+
+    @Test
+    public void skipsATicketWhichIsNeverClaimed() {
+        final File dir = DirectoryUtils.tempDir("skipsATicketWhichIsNeverClaimed");
+        final TableStoreTicketWriteLock lock = newLock(dir);
+        try (TableStore table = lockTable(dir)) {
+            // a process took the first ticket, then died before claiming the lock.
+            table.acquireValueFor("chronicle.write.lock.nextTicket").addAtomicValue(1);
+
+            lock.lock();
+            lock.unlock();
+            assertFalse(lock.locked());
+        } finally {
+            lock.close();
+        }
+    }
+
+    @Test
+    public void deadProcessesAreNotAlive() {
+        assertTrue(AbstractTSQueueLock.isProcessAlive(Jvm.getProcessId()));
+        if (OS.isLinux())
+            assertFalse(AbstractTSQueueLock.isProcessAlive(DEAD_PID));
+    }
+}
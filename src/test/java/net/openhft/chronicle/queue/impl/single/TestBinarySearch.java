@@ -6,6 +6,7 @@ import net.openhft.chronicle.core.time.SetTimeProvider;
 import net.openhft.chronicle.queue.ChronicleQueueTestBase;
 import net.openhft.chronicle.queue.ExcerptAppender;
 import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycle;
 import net.openhft.chronicle.queue.RollCycles;
 import net.openhft.chronicle.wire.AbstractMarshallable;
 import net.openhft.chronicle.wire.DocumentContext;
@@ -108,6 +109,61 @@ public class TestBinarySearch extends ChronicleQueueTestBase {
 
     }
 
+    @Test
+    public void testBinarySearchOverIndexBlocks() throws ParseException {
+        final File tmpDir = getTmpDir();
+        try (SingleChronicleQueue queue = SingleChronicleQueueBuilder.binary(tmpDir)
+                .rollCycle(RollCycles.DAILY)
+                .indexSpacing(4)
+                .build()) {
+
+            final ExcerptAppender appender = queue.acquireAppender();
+            final int messages = 1_000;
+            for (int i = 0; i < messages; i++) {
+                try (final DocumentContext dc = appender.writingDocument()) {
+                    final MyData myData = new MyData();
+                    myData.key = i * 2;
+                    myData.value = "some value where the key=" + myData.key;
+                    dc.wire().getValueOut().typedMarshallable(myData);
+                }
+            }
+
+            final Comparator<Wire> comparator = (o1, o2) -> Integer.compare(keyOf(o1), keyOf(o2));
+            final RollCycle rollCycle = queue.rollCycle();
+            final int cycle = rollCycle.toCycle(queue.firstIndex());
+            final ExcerptTailer tailer = queue.createTailer();
+            for (int j = 0; j < messages * 2; j++) {
+                final Wire key = toWire(j);
+                final long index = BinarySearch.search(queue, key, comparator);
+                key.bytes().release();
+                if (j % 2 != 0) {
+                    // not in the queue, so where it would be inserted, before the next key up
+                    Assert.assertEquals(-rollCycle.toIndex(cycle, (j + 1) / 2), index);
+                    continue;
+                }
+                Assert.assertTrue(tailer.moveToIndex(index));
+                try (final DocumentContext documentContext = tailer.readingDocument()) {
+                    final MyData myData = documentContext.wire().getValueIn().typedMarshallable();
+                    Assert.assertEquals(j, myData.key);
+                }
+            }
+
+        } finally {
+            System.gc();
+            deleteDir(tmpDir);
+        }
+    }
+
+    private static int keyOf(@NotNull Wire wire) {
+        final long readPosition = wire.bytes().readPosition();
+        try (final DocumentContext dc = wire.readingDocument()) {
+            final MyData myData = dc.wire().getValueIn().typedMarshallable();
+            return myData.key;
+        } finally {
+            wire.bytes().readPosition(readPosition);
+        }
+    }
+
     @NotNull
     private Wire toWire(int key) {
         final MyData myData = new MyData();
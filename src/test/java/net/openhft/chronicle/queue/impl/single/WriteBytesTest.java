@@ -1,8 +1,11 @@
 package net.openhft.chronicle.queue.impl.single;
 
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.bytes.HeapBytesStore;
 import net.openhft.chronicle.queue.ExcerptAppender;
 import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -11,6 +14,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public final class WriteBytesTest {
@@ -36,4 +41,49 @@ public final class WriteBytesTest {
             assertTrue(Arrays.equals(PAYLOAD, copy.underlyingObject()));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldWriteBatchOfBytes() throws IOException {
+        try (final SingleChronicleQueue queue = SingleChronicleQueueBuilder.
+                binary(tmpDir.newFolder()).testBlockSize().build()) {
+            final ExcerptAppender appender = queue.acquireAppender();
+            appender.writeBytes(Bytes.from("first"));
+            final long firstIndex = appender.lastIndexAppended();
+
+            final int count = 300;
+            final BytesStore[] batch = new BytesStore[count];
+            for (int i = 0; i < count; i++)
+                batch[i] = Bytes.from("msg-" + i);
+            appender.writeBytes(batch, count);
+            assertEquals(firstIndex + count, appender.lastIndexAppended());
+
+            appender.writeBytes(Bytes.from("last"));
+            assertEquals(firstIndex + count + 1, appender.lastIndexAppended());
+
+            final ExcerptTailer tailer = queue.createTailer();
+            try (DocumentContext dc = tailer.readingDocument()) {
+                assertEquals("first", dc.wire().bytes().toString());
+            }
+            for (int i = 0; i < count; i++) {
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    assertTrue(dc.isPresent());
+                    assertEquals(firstIndex + 1 + i, dc.index());
+                    assertEquals("msg-" + i, dc.wire().bytes().toString());
+                }
+            }
+            try (DocumentContext dc = tailer.readingDocument()) {
+                assertEquals("last", dc.wire().bytes().toString());
+            }
+            try (DocumentContext dc = tailer.readingDocument()) {
+                assertFalse(dc.isPresent());
+            }
+
+            // random access relies on the index written for the batch
+            final ExcerptTailer random = queue.createTailer();
+            assertTrue(random.moveToIndex(firstIndex + 200));
+            try (DocumentContext dc = random.readingDocument()) {
+                assertEquals("msg-199", dc.wire().bytes().toString());
+            }
+        }
+    }
+}